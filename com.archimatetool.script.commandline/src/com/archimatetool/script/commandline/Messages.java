@@ -13,6 +13,20 @@ public class Messages extends NLS {
     public static String RunScriptProvider_2;
 
     public static String RunScriptProvider_3;
+
+    public static String RunScriptProvider_4;
+
+    public static String RunScriptProvider_5;
+
+    public static String RunScriptProvider_6;
+
+    public static String RunScriptProvider_7;
+
+    public static String RunScriptProvider_8;
+
+    public static String RunScriptProvider_9;
+
+    public static String RunScriptProvider_10;
     static {
         // initialize resource bundle
         NLS.initializeMessages(BUNDLE_NAME, Messages.class);
@@ -10,6 +10,7 @@ import java.io.File;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.Option;
 import org.apache.commons.cli.Options;
+import org.eclipse.osgi.util.NLS;
 
 import com.archimatetool.commandline.AbstractCommandLineProvider;
 import com.archimatetool.editor.utils.StringUtils;
@@ -23,6 +24,14 @@ import com.archimatetool.script.RunArchiScript;
  * Archi -consoleLog -nosplash -application com.archimatetool.commandline.app
    --script.runScript "file"
  * 
+ * Options:
+ * 
+ * --script.noUndo Don't record the script's changes for Undo
+ * --script.rollbackOnError Undo the script's changes if the script fails
+ * --script.chunkSize "n" Put the script's changes on the Undo stack every n changes
+ * --script.chunkMemory "mb" Put the script's changes on the Undo stack every time memory use grows by about mb megabytes
+ * --script.dryRun ["file"] Report the script's changes and then undo them, optionally writing the report to file as JSON
+ * --script.journal "file" Append every change made by the script to file in NDJSON format
  * 
  * @author Phillip Beauvoir
  */
@@ -31,6 +40,12 @@ public class RunScriptProvider extends AbstractCommandLineProvider {
     static final String PREFIX = Messages.RunScriptProvider_0;
     
     static final String OPTION_RUN_SCRIPT = "script.runScript"; //$NON-NLS-1$
+    static final String OPTION_NO_UNDO = "script.noUndo"; //$NON-NLS-1$
+    static final String OPTION_ROLLBACK_ON_ERROR = "script.rollbackOnError"; //$NON-NLS-1$
+    static final String OPTION_CHUNK_SIZE = "script.chunkSize"; //$NON-NLS-1$
+    static final String OPTION_CHUNK_MEMORY = "script.chunkMemory"; //$NON-NLS-1$
+    static final String OPTION_DRY_RUN = "script.dryRun"; //$NON-NLS-1$
+    static final String OPTION_JOURNAL = "script.journal"; //$NON-NLS-1$
     
     public RunScriptProvider() {
     }
@@ -50,6 +65,29 @@ public class RunScriptProvider extends AbstractCommandLineProvider {
         File scriptFile = new File(sFile);
 
         RunArchiScript runner = new RunArchiScript(scriptFile);
+        runner.setUndoEnabled(!commandLine.hasOption(OPTION_NO_UNDO));
+        if(commandLine.hasOption(OPTION_ROLLBACK_ON_ERROR)) {
+            runner.setRollbackOnError(true);
+        }
+        
+        try {
+            runner.setChunking(getIntOption(commandLine, OPTION_CHUNK_SIZE), getIntOption(commandLine, OPTION_CHUNK_MEMORY));
+        }
+        catch(NumberFormatException ex) {
+            logError(NLS.bind(Messages.RunScriptProvider_8, ex.getMessage()));
+            return;
+        }
+        
+        String journalFile = commandLine.getOptionValue(OPTION_JOURNAL);
+        if(StringUtils.isSet(journalFile)) {
+            runner.setJournalFile(new File(journalFile));
+        }
+        
+        if(commandLine.hasOption(OPTION_DRY_RUN)) {
+            String summaryFile = commandLine.getOptionValue(OPTION_DRY_RUN);
+            runner.setDryRun(true, StringUtils.isSet(summaryFile) ? new File(summaryFile) : null);
+        }
+        
         runner.run();
     }
     
@@ -65,9 +103,59 @@ public class RunScriptProvider extends AbstractCommandLineProvider {
                 .build();
         options.addOption(option);
         
+        option = Option.builder()
+                .longOpt(OPTION_NO_UNDO)
+                .desc(Messages.RunScriptProvider_4)
+                .build();
+        options.addOption(option);
+        
+        option = Option.builder()
+                .longOpt(OPTION_ROLLBACK_ON_ERROR)
+                .desc(Messages.RunScriptProvider_5)
+                .build();
+        options.addOption(option);
+        
+        option = Option.builder()
+                .longOpt(OPTION_CHUNK_SIZE)
+                .hasArg()
+                .argName("n") //$NON-NLS-1$
+                .desc(Messages.RunScriptProvider_6)
+                .build();
+        options.addOption(option);
+        
+        option = Option.builder()
+                .longOpt(OPTION_CHUNK_MEMORY)
+                .hasArg()
+                .argName("mb") //$NON-NLS-1$
+                .desc(Messages.RunScriptProvider_7)
+                .build();
+        options.addOption(option);
+        
+        option = Option.builder()
+                .longOpt(OPTION_DRY_RUN)
+                .hasArg()
+                .optionalArg(true)
+                .argName("file") //$NON-NLS-1$
+                .desc(Messages.RunScriptProvider_9)
+                .build();
+        options.addOption(option);
+        
+        option = Option.builder()
+                .longOpt(OPTION_JOURNAL)
+                .hasArg()
+                .argName("file") //$NON-NLS-1$
+                .desc(Messages.RunScriptProvider_10)
+                .build();
+        options.addOption(option);
+        
         return options;
     }
     
+    private int getIntOption(CommandLine commandLine, String option) {
+        String value = commandLine.getOptionValue(option);
+        return StringUtils.isSet(value) ? Integer.parseInt(value.trim()) : 0;
+    }
+    
     private boolean hasCorrectOptions(CommandLine commandLine) {
         return commandLine.hasOption(OPTION_RUN_SCRIPT);
     }
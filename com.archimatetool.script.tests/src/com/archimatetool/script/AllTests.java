@@ -6,6 +6,7 @@
 package com.archimatetool.script;
 
 
+import com.archimatetool.script.dom.jarchi.FSTests;
 import com.archimatetool.script.dom.model.ArchimateDiagramModelObjectProxyTests;
 import com.archimatetool.script.dom.model.ArchimateDiagramModelProxyTests;
 import com.archimatetool.script.dom.model.ArchimateElementProxyTests;
@@ -15,6 +16,7 @@ import com.archimatetool.script.dom.model.CanvasDiagramModelProxyTests;
 import com.archimatetool.script.dom.model.CurrentModelTests;
 import com.archimatetool.script.dom.model.DiagramModelConnectionProxyTests;
 import com.archimatetool.script.dom.model.DiagramModelGroupProxyTests;
+import com.archimatetool.script.dom.model.DiagramModelIndexTests;
 import com.archimatetool.script.dom.model.DiagramModelNoteProxyTests;
 import com.archimatetool.script.dom.model.DiagramModelReferenceProxyTests;
 import com.archimatetool.script.dom.model.EObjectProxyCollectionTests;
@@ -22,8 +24,12 @@ import com.archimatetool.script.dom.model.FolderProxyTests;
 import com.archimatetool.script.dom.model.ModelFactoryTests;
 import com.archimatetool.script.dom.model.ModelTests;
 import com.archimatetool.script.dom.model.ModelUtilTests;
+import com.archimatetool.script.dom.model.RelationshipMatrixTests;
 import com.archimatetool.script.dom.model.SelectorFilterFactoryTests;
 import com.archimatetool.script.dom.model.SketchDiagramModelProxyTests;
+import com.archimatetool.script.views.console.ConsoleBufferTests;
+import com.archimatetool.script.views.console.ConsoleSpillFileTests;
+import com.archimatetool.script.views.console.ConsoleViewTests;
 
 import junit.framework.TestSuite;
 
@@ -43,14 +49,21 @@ public class AllTests {
         suite.addTest(DiagramModelConnectionProxyTests.suite());
         suite.addTest(DiagramModelNoteProxyTests.suite());
         suite.addTest(DiagramModelGroupProxyTests.suite());
+        suite.addTest(DiagramModelIndexTests.suite());
         suite.addTest(DiagramModelReferenceProxyTests.suite());
         suite.addTest(EObjectProxyCollectionTests.suite());
         suite.addTest(FolderProxyTests.suite());
+        suite.addTest(FSTests.suite());
         suite.addTest(ModelFactoryTests.suite());
 		suite.addTest(ModelTests.suite());
         suite.addTest(ModelUtilTests.suite());
+        suite.addTest(RefreshUIHandlerTests.suite());
+        suite.addTest(RelationshipMatrixTests.suite());
         suite.addTest(SelectorFilterFactoryTests.suite());
         suite.addTest(SketchDiagramModelProxyTests.suite());
+        suite.addTest(ConsoleBufferTests.suite());
+        suite.addTest(ConsoleSpillFileTests.suite());
+        suite.addTest(ConsoleViewTests.suite());
 		
         return suite;
 	}
@@ -0,0 +1,58 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import junit.framework.JUnit4TestAdapter;
+
+
+/**
+ * RefreshUIHandler Tests
+ */
+public class RefreshUIHandlerTests {
+    
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(RefreshUIHandlerTests.class);
+    }
+    
+    @Test
+    public void getNextInterval_IsNineTimesTheCost() {
+        assertEquals(180_000_000L, RefreshUIHandler.getNextInterval(20_000_000L));
+    }
+    
+    @Test
+    public void getNextInterval_IsClamped() {
+        assertEquals(50_000_000L, RefreshUIHandler.getNextInterval(0));
+        assertEquals(50_000_000L, RefreshUIHandler.getNextInterval(1_000_000L));
+        assertEquals(1_000_000_000L, RefreshUIHandler.getNextInterval(500_000_000L));
+    }
+    
+    @Test
+    public void statistics_AreResetAtInit() throws Exception {
+        RefreshUIHandler.init();
+        
+        try {
+            assertEquals(0, RefreshUIHandler.getRefreshCount());
+            assertEquals(0, RefreshUIHandler.getRefreshTime());
+            assertEquals(100, RefreshUIHandler.getRefreshInterval());
+            
+            Thread.sleep(20);
+            assertTrue(RefreshUIHandler.getScriptTime() >= 20);
+        }
+        finally {
+            RefreshUIHandler.finalise();
+        }
+        
+        // Script time stops when the script ends
+        long scriptTime = RefreshUIHandler.getScriptTime();
+        Thread.sleep(20);
+        assertEquals(scriptTime, RefreshUIHandler.getScriptTime());
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.jarchi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.archimatetool.editor.utils.FileUtils;
+
+import junit.framework.JUnit4TestAdapter;
+
+
+/**
+ * FS Tests
+ */
+@SuppressWarnings("nls")
+public class FSTests {
+    
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(FSTests.class);
+    }
+
+    private FS fs;
+    private File folder;
+    
+    @Before
+    public void runBeforeEachTest() throws IOException {
+        fs = new FS();
+        folder = Files.createTempDirectory("~fs").toFile();
+    }
+    
+    @After
+    public void runAfterEachTest() throws IOException {
+        fs.dispose();
+        FileUtils.deleteFolder(folder);
+    }
+    
+    @Test
+    public void open_WritesWhenClosed() throws IOException {
+        File file = new File(folder, "sub/test.txt");
+        
+        FSWriter writer = fs.open(file.getPath());
+        writer.write("Line 1\n");
+        writer.write("Line 2\n");
+        writer.close();
+        
+        assertEquals("Line 1\nLine 2\n", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+    
+    @Test
+    public void open_Append() throws IOException {
+        File file = new File(folder, "test.txt");
+        fs.writeFile(file.getPath(), "First\n");
+        
+        FSWriter writer = fs.open(file.getPath(), Collections.singletonMap("append", true));
+        writer.write("Second\n");
+        writer.close();
+        
+        assertEquals("First\nSecond\n", fs.readText(file.getPath()));
+    }
+    
+    @Test
+    public void open_WriteAfterCloseThrowsException() throws IOException {
+        FSWriter writer = fs.open(new File(folder, "test.txt").getPath());
+        writer.close();
+        
+        try {
+            writer.write("Text");
+            fail("Should have thrown exception");
+        }
+        catch(IOException ex) {
+            // Expected
+        }
+    }
+    
+    @Test
+    public void dispose_ClosesOpenWriters() throws IOException {
+        File file = new File(folder, "test.txt");
+        
+        FSWriter writer = fs.open(file.getPath());
+        writer.write("Not closed by the script");
+        
+        fs.dispose();
+        
+        assertEquals("Not closed by the script", fs.readText(file.getPath()));
+    }
+    
+    @Test
+    public void readLines() throws IOException {
+        File file = new File(folder, "test.txt");
+        fs.writeFile(file.getPath(), "Line 1\nLine 2\r\nLine 3");
+        
+        List<String> lines = new ArrayList<>();
+        fs.readLines(file.getPath(), lines::add);
+        
+        assertEquals(3, lines.size());
+        assertEquals("Line 1", lines.get(0));
+        assertEquals("Line 2", lines.get(1));
+        assertEquals("Line 3", lines.get(2));
+    }
+    
+    @Test
+    public void readText() throws IOException {
+        File file = new File(folder, "test.txt");
+        fs.writeFile(file.getPath(), "Caf\u00e9\n\u00fcber");
+        
+        assertEquals("Caf\u00e9\n\u00fcber", fs.readText(file.getPath()));
+    }
+    
+    @Test
+    public void readText_Encoding() throws IOException {
+        File file = new File(folder, "test.txt");
+        fs.writeFile(file.getPath(), "Caf\u00e9", "ISO-8859-1");
+        
+        assertEquals("Caf\u00e9", fs.readText(file.getPath(), "ISO-8859-1"));
+    }
+    
+    @Test
+    public void readText_ThenWriteSameFile() throws IOException {
+        File file = new File(folder, "test.txt");
+        fs.writeFile(file.getPath(), "Before");
+        
+        String text = fs.readText(file.getPath());
+        fs.writeFile(file.getPath(), text + " and after");
+        
+        assertEquals("Before and after", fs.readText(file.getPath()));
+    }
+}
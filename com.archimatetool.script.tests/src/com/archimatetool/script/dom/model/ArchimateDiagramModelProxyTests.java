@@ -11,6 +11,8 @@ import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
@@ -19,11 +21,17 @@ import org.junit.Before;
 import org.junit.Test;
 
 import com.archimatetool.model.IArchimateDiagramModel;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IBounds;
 import com.archimatetool.model.IConnectable;
 import com.archimatetool.model.IDiagramModel;
 import com.archimatetool.model.IDiagramModelComponent;
+import com.archimatetool.model.IDiagramModelConnection;
+import com.archimatetool.model.IDiagramModelObject;
 import com.archimatetool.model.IDiagramModelReference;
 import com.archimatetool.model.util.ArchimateModelUtils;
+import com.archimatetool.script.ArchiScriptException;
 
 import junit.framework.JUnit4TestAdapter;
 
@@ -195,4 +203,150 @@ public class ArchimateDiagramModelProxyTests extends DiagramModelProxyTests {
         assertTrue(actualTestProxy.isAllowedConceptForViewpoint("resource"));
         assertTrue(actualTestProxy.isAllowedConceptForViewpoint("outcome"));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void layout_Layered() {
+        DiagramModelObjectProxy[] dmos = createLayoutView();
+        dmos[0].getView().layout("layered");
+        
+        assertPosition(dmos[0], 100, 20);
+        assertEquals(115, getY(dmos[1]));
+        assertEquals(115, getY(dmos[2]));
+        assertTrue(getX(dmos[1]) != getX(dmos[2]));
+        assertEquals(210, getY(dmos[3]));
+    }
+    
+    @Test
+    public void layout_Grid() {
+        DiagramModelObjectProxy[] dmos = createLayoutView();
+        
+        Map<String, Object> options = new HashMap<>();
+        options.put("columns", 2);
+        dmos[0].getView().layout("grid", options);
+        
+        assertPosition(dmos[0], 20, 20);
+        assertPosition(dmos[1], 180, 20);
+        assertPosition(dmos[2], 20, 115);
+        assertPosition(dmos[3], 180, 115);
+    }
+    
+    @Test
+    public void layout_Tree() {
+        DiagramModelObjectProxy[] dmos = createLayoutView();
+        dmos[0].getView().layout("tree");
+        
+        assertPosition(dmos[0], 100, 20);
+        assertPosition(dmos[1], 20, 115);
+        assertPosition(dmos[2], 180, 115);
+        assertPosition(dmos[3], 180, 210);
+    }
+    
+    @Test(expected = ArchiScriptException.class)
+    public void layout_UnknownType() {
+        createLayoutView()[0].getView().layout("bogus");
+    }
+    
+    @Test
+    public void getBoundsArray_SetBoundsArray() {
+        EObjectProxyCollection objects = actualTestProxy.getObjects();
+        int[] bounds = actualTestProxy.getBoundsArray();
+        assertEquals(objects.size() * 4, bounds.length);
+        
+        IBounds first = ((IDiagramModelObject)objects.get(0).getEObject()).getBounds();
+        assertEquals(first.getX(), bounds[0]);
+        assertEquals(first.getHeight(), bounds[3]);
+        
+        for(int i = 0; i < bounds.length; i += 4) {
+            bounds[i] += 10;
+        }
+        actualTestProxy.setBoundsArray(bounds);
+        
+        assertEquals(first.getX() + 10, ((IDiagramModelObject)objects.get(0).getEObject()).getBounds().getX());
+        assertTrue(Arrays.equals(bounds, actualTestProxy.getBoundsArray()));
+    }
+    
+    @Test(expected = ArchiScriptException.class)
+    public void setBoundsArray_WrongLength() {
+        actualTestProxy.setBoundsArray(new int[] { 1, 2, 3 });
+    }
+    
+    @Test(expected = ArchiScriptException.class)
+    public void setBoundsArray_NotAnArray() {
+        actualTestProxy.setBoundsArray("1, 2, 3, 4");
+    }
+    
+    @Test(expected = ArchiScriptException.class)
+    public void setBendpointsArray_NotANumber() {
+        actualTestProxy.setBendpointsArray(Arrays.asList(1, "a", 2, 3, 4));
+    }
+    
+    @Test
+    public void setBoundsArray_ScriptArray() {
+        DiagramModelProxy view = createLayoutView()[0].getView();
+        int[] bounds = view.getBoundsArray();
+        bounds[0] = 123;
+        
+        // A JavaScript array in Nashorn is a Map with a length and a value for each index
+        Map<String, Object> array = new HashMap<>();
+        array.put("length", bounds.length);
+        for(int i = 0; i < bounds.length; i++) {
+            array.put(String.valueOf(i), bounds[i]);
+        }
+        
+        view.setBoundsArray(array);
+        assertEquals(123, view.getBoundsArray()[0]);
+    }
+    
+    @Test
+    public void getBendpointsArray_SetBendpointsArray() {
+        DiagramModelProxy view = createLayoutView()[0].getView();
+        assertEquals(3, view.getConnections().size());
+        assertTrue(Arrays.equals(new int[] { 0, 0, 0 }, view.getBendpointsArray()));
+        
+        // Set from a script list
+        view.setBendpointsArray(Arrays.asList(1, 10, 20, 30, 40, 0, 2, 1, 2, 3, 4, 5, 6, 7, 8));
+        assertTrue(Arrays.equals(new int[] { 1, 10, 20, 30, 40, 0, 2, 1, 2, 3, 4, 5, 6, 7, 8 }, view.getBendpointsArray()));
+        
+        IDiagramModelConnection connection = (IDiagramModelConnection)view.getConnections().get(0).getEObject();
+        assertEquals(1, connection.getBendpoints().size());
+        assertEquals(30, connection.getBendpoints().get(0).getEndX());
+    }
+    
+    /**
+     * A view of A -> B, A -> C, C -> D
+     */
+    private DiagramModelObjectProxy[] createLayoutView() {
+        IArchimateModel model = IArchimateFactory.eINSTANCE.createArchimateModel();
+        model.setDefaults();
+        ArchimateModelProxy modelProxy = (ArchimateModelProxy)EObjectProxy.get(model);
+        ArchimateDiagramModelProxy view = modelProxy.createArchimateView("View");
+        
+        ArchimateElementProxy[] elements = new ArchimateElementProxy[4];
+        DiagramModelObjectProxy[] dmos = new DiagramModelObjectProxy[4];
+        for(int i = 0; i < 4; i++) {
+            elements[i] = modelProxy.createElement("business-actor", "Actor " + i);
+            dmos[i] = view.add(elements[i], 500 - i * 100, 500, 120, 55);
+        }
+        
+        int[][] ends = { { 0, 1 }, { 0, 2 }, { 2, 3 } };
+        for(int[] end : ends) {
+            ArchimateRelationshipProxy relation = modelProxy.createRelationship("association-relationship", "", elements[end[0]], elements[end[1]]);
+            view.add(relation, dmos[end[0]], dmos[end[1]]);
+        }
+        
+        return dmos;
+    }
+    
+    private int getX(DiagramModelObjectProxy dmo) {
+        return dmo.getEObject().getBounds().getX();
+    }
+    
+    private int getY(DiagramModelObjectProxy dmo) {
+        return dmo.getEObject().getBounds().getY();
+    }
+    
+    private void assertPosition(DiagramModelObjectProxy dmo, int x, int y) {
+        assertEquals(x, getX(dmo));
+        assertEquals(y, getY(dmo));
+    }
+}
@@ -14,13 +14,18 @@ import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 
 import org.eclipse.emf.ecore.EObject;
 import org.junit.Before;
 import org.junit.Test;
 
 import com.archimatetool.editor.model.IArchiveManager;
+import com.archimatetool.model.FolderType;
 import com.archimatetool.model.IArchimateElement;
 import com.archimatetool.model.IArchimateFactory;
 import com.archimatetool.model.IArchimateModel;
@@ -247,4 +252,196 @@ public class ArchimateModelProxyTests extends EObjectProxyTests {
         ArchimateElementProxy target = actualTestProxy.createElement("BusinessRole", "Role");
         actualTestProxy.createRelationship("AccessRelationship", "Fido", source, target);
     }
-}
\ No newline at end of file
+    
+    @Test
+    public void createElements() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("Owner", "Bob");
+        
+        Map<String, Object> spec1 = new HashMap<>();
+        spec1.put("type", "business-actor");
+        spec1.put("name", "Actor");
+        spec1.put("properties", properties);
+        
+        Map<String, Object> spec2 = new HashMap<>();
+        spec2.put("type", "application-component");
+        
+        EObjectProxyCollection collection = actualTestProxy.createElements(Arrays.asList(spec1, spec2));
+        assertEquals(2, collection.size());
+        
+        IArchimateElement element = (IArchimateElement)collection.get(0).getEObject();
+        assertEquals("Actor", element.getName());
+        assertEquals("Bob", element.getProperties().get(0).getValue());
+        assertSame(actualTestProxy.getEObject().getFolder(FolderType.BUSINESS), element.eContainer());
+        
+        element = (IArchimateElement)collection.get(1).getEObject();
+        assertEquals(IArchimatePackage.eINSTANCE.getApplicationComponent(), element.eClass());
+        assertSame(actualTestProxy.getEObject().getFolder(FolderType.APPLICATION), element.eContainer());
+    }
+    
+    @Test
+    public void createElements_BogusTypeCreatesNothing() {
+        Map<String, Object> spec1 = new HashMap<>();
+        spec1.put("type", "business-actor");
+        
+        Map<String, Object> spec2 = new HashMap<>();
+        spec2.put("type", "access-relationship");
+        
+        assertThrows(ArchiScriptException.class, () -> actualTestProxy.createElements(Arrays.asList(spec1, spec2)));
+        assertEquals(0, actualTestProxy.find("element").size());
+    }
+    
+    @Test
+    public void createRelationships() {
+        ArchimateElementProxy source = actualTestProxy.createElement("business-actor", "Fido");
+        ArchimateElementProxy target = actualTestProxy.createElement("business-role", "Role");
+        
+        Map<String, Object> spec1 = new HashMap<>();
+        spec1.put("type", "assignment-relationship");
+        spec1.put("source", source);
+        spec1.put("target", target.getId());
+        
+        EObjectProxyCollection collection = actualTestProxy.createRelationships(Arrays.asList(spec1));
+        assertEquals(1, collection.size());
+        
+        IArchimateRelationship relation = (IArchimateRelationship)collection.get(0).getEObject();
+        assertSame(source.getEObject(), relation.getSource());
+        assertSame(target.getEObject(), relation.getTarget());
+        assertTrue(source.getEObject().getSourceRelationships().contains(relation));
+        assertNotNull(relation.eContainer());
+    }
+    
+    @Test
+    public void createRelationships_ProxiesThenIds() {
+        ArchimateElementProxy source = actualTestProxy.createElement("business-actor", "Fido");
+        ArchimateElementProxy target = actualTestProxy.createElement("business-role", "Role");
+        
+        Map<String, Object> spec1 = new HashMap<>();
+        spec1.put("type", "assignment-relationship");
+        spec1.put("source", source);
+        spec1.put("target", target);
+        
+        Map<String, Object> spec2 = new HashMap<>();
+        spec2.put("type", "association-relationship");
+        spec2.put("source", source.getId());
+        spec2.put("target", target.getId());
+        
+        EObjectProxyCollection collection = actualTestProxy.createRelationships(Arrays.asList(spec1, spec2));
+        assertEquals(2, collection.size());
+        
+        IArchimateRelationship relation = (IArchimateRelationship)collection.get(1).getEObject();
+        assertSame(source.getEObject(), relation.getSource());
+        assertSame(target.getEObject(), relation.getTarget());
+    }
+    
+    @Test(expected = ArchiScriptException.class)
+    public void createRelationships_Invalid() {
+        ArchimateElementProxy source = actualTestProxy.createElement("business-actor", "Fido");
+        ArchimateElementProxy target = actualTestProxy.createElement("business-role", "Role");
+        
+        Map<String, Object> spec1 = new HashMap<>();
+        spec1.put("type", "access-relationship");
+        spec1.put("source", source);
+        spec1.put("target", target);
+        
+        actualTestProxy.createRelationships(Arrays.asList(spec1));
+    }
+    
+    @Test
+    public void validateRelationships() {
+        ArchimateElementProxy source = actualTestProxy.createElement("business-actor", "Fido");
+        ArchimateElementProxy target = actualTestProxy.createElement("business-role", "Role");
+        actualTestProxy.createRelationship("assignment-relationship", "Valid", source, target);
+        
+        assertEquals(0, actualTestProxy.validateRelationships().size());
+        
+        // Add an invalid relationship directly
+        IArchimateRelationship relation = IArchimateFactory.eINSTANCE.createAccessRelationship();
+        relation.connect(source.getEObject(), target.getEObject());
+        actualTestProxy.getEObject().getFolder(FolderType.RELATIONS).getElements().add(relation);
+        
+        EObjectProxyCollection invalid = actualTestProxy.validateRelationships();
+        assertEquals(1, invalid.size());
+        assertSame(relation, invalid.get(0).getEObject());
+    }
+    
+    @Test
+    public void findDuplicates() {
+        createDuplicates();
+        
+        List<EObjectProxyCollection> groups = actualTestProxy.findDuplicates();
+        assertEquals(2, groups.size());
+        assertEquals(2, groups.get(0).size());
+        assertEquals("Customer", groups.get(0).get(0).getName());
+        assertEquals("customer ", groups.get(0).get(1).getName());
+        assertEquals(2, groups.get(1).size());
+        assertEquals("Customer-Portal", groups.get(1).get(0).getName());
+        assertEquals("Customer Portal", groups.get(1).get(1).getName());
+    }
+    
+    @Test
+    public void findDuplicates_Fuzzy() {
+        createDuplicates();
+        
+        Map<String, Object> options = new HashMap<>();
+        options.put("fuzzy", true);
+        
+        List<EObjectProxyCollection> groups = actualTestProxy.findDuplicates(options);
+        assertEquals(2, groups.size());
+        assertEquals(2, groups.get(0).size());
+        assertEquals(3, groups.get(1).size());
+        assertEquals("Customer Portals", groups.get(1).get(2).getName());
+        
+        // Only business roles
+        options.put("selector", "business-role");
+        assertEquals(0, actualTestProxy.findDuplicates(options).size());
+    }
+    
+    @Test
+    public void orphans_UnreferencedRelationships() {
+        ArchimateElementProxy actor = actualTestProxy.createElement("business-actor", "Actor");
+        ArchimateElementProxy role = actualTestProxy.createElement("business-role", "Role");
+        ArchimateRelationshipProxy relation = actualTestProxy.createRelationship("assignment-relationship", "", actor, role);
+        
+        assertEquals(2, actualTestProxy.orphans().size());
+        assertEquals(1, actualTestProxy.unreferencedRelationships().size());
+        
+        ArchimateDiagramModelProxy view = actualTestProxy.createArchimateView("View");
+        DiagramModelObjectProxy dmo1 = view.add(actor, 10, 10, 120, 55);
+        
+        EObjectProxyCollection orphans = actualTestProxy.orphans();
+        assertEquals(1, orphans.size());
+        assertSame(role.getEObject(), orphans.get(0).getEObject());
+        
+        DiagramModelObjectProxy dmo2 = view.add(role, 200, 10, 120, 55);
+        view.add(relation, dmo1, dmo2);
+        
+        assertEquals(0, actualTestProxy.orphans().size());
+        assertEquals(0, actualTestProxy.unreferencedRelationships().size());
+    }
+    
+    @Test
+    public void emptyFolders() {
+        assertEquals(0, actualTestProxy.emptyFolders().size());
+        
+        FolderProxy folder1 = ((FolderProxy)EObjectProxy.get(actualTestProxy.getEObject().getFolder(FolderType.BUSINESS))).createFolder("Folder1");
+        FolderProxy folder2 = folder1.createFolder("Folder2");
+        
+        EObjectProxyCollection folders = actualTestProxy.emptyFolders();
+        assertEquals(1, folders.size());
+        assertSame(folder2.getEObject(), folders.get(0).getEObject());
+        
+        folder2.add(actualTestProxy.createElement("business-actor", "Actor"));
+        assertEquals(0, actualTestProxy.emptyFolders().size());
+    }
+    
+    private void createDuplicates() {
+        actualTestProxy.createElement("business-actor", "Customer");
+        actualTestProxy.createElement("business-actor", "customer ");
+        actualTestProxy.createElement("business-actor", "Customer-Portal");
+        actualTestProxy.createElement("business-actor", "Customer Portal");
+        actualTestProxy.createElement("business-actor", "Customer Portals");
+        actualTestProxy.createElement("business-actor", "Insurer");
+        actualTestProxy.createElement("business-role", "Customer");
+    }
+}
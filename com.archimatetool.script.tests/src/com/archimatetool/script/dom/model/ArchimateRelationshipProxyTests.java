@@ -177,6 +177,51 @@ public class ArchimateRelationshipProxyTests extends ArchimateConceptProxyTests
         actualTestProxy.setTarget(proxy);
     }
 
+    @Test
+    public void reconnect() {
+        IArchimateModel model = IArchimateFactory.eINSTANCE.createArchimateModel();
+        model.setDefaults();
+        ArchimateModelProxy modelProxy = (ArchimateModelProxy)EObjectProxy.get(model);
+        ArchimateDiagramModelProxy view = modelProxy.createArchimateView("View");
+        
+        ArchimateElementProxy actor1 = modelProxy.createElement("business-actor", "Actor 1");
+        ArchimateElementProxy actor2 = modelProxy.createElement("business-actor", "Actor 2");
+        ArchimateElementProxy actor3 = modelProxy.createElement("business-actor", "Actor 3");
+        ArchimateElementProxy actor4 = modelProxy.createElement("business-actor", "Actor 4");
+        
+        DiagramModelObjectProxy dmo1 = view.add(actor1, 10, 10, 120, 55);
+        DiagramModelObjectProxy dmo2 = view.add(actor2, 200, 10, 120, 55);
+        DiagramModelObjectProxy dmo3 = view.add(actor3, 400, 10, 120, 55);
+        
+        ArchimateRelationshipProxy relation = modelProxy.createRelationship("association-relationship", "", actor1, actor2);
+        DiagramModelConnectionProxy connection = view.add(relation, dmo1, dmo2);
+        
+        // Reconnect the target in the model and in the View
+        assertSame(relation, relation.reconnect(null, actor3));
+        assertEquals(actor1, relation.getSource());
+        assertEquals(actor3, relation.getTarget());
+        assertEquals(dmo1, connection.getSource());
+        assertEquals(dmo3, connection.getTarget());
+        
+        // Reconnect both ends
+        relation.reconnect(actor2, actor1);
+        assertEquals(actor2, relation.getSource());
+        assertEquals(actor1, relation.getTarget());
+        assertEquals(dmo2, connection.getSource());
+        assertEquals(dmo1, connection.getTarget());
+        
+        // Actor 4 is not in the View so the connection is deleted
+        relation.setSource(actor4);
+        assertEquals(actor4, relation.getSource());
+        assertEquals(0, relation.objectRefs().size());
+    }
+    
+    @Test(expected = ArchiScriptException.class)
+    public void reconnect_Bogus() {
+        ArchimateConceptProxy proxy = (ArchimateConceptProxy)EObjectProxy.get(IArchimateFactory.eINSTANCE.createRequirement());
+        actualTestProxy.reconnect(null, proxy);
+    }
+
     @Test
     public void setAccessType() {
         IArchimateModel model = IArchimateFactory.eINSTANCE.createArchimateModel();
@@ -0,0 +1,128 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.Iterator;
+
+import org.eclipse.emf.ecore.EObject;
+import org.junit.Test;
+
+import com.archimatetool.editor.model.DiagramModelUtils;
+import com.archimatetool.model.IArchimateDiagramModel;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IBounds;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IDiagramModelContainer;
+import com.archimatetool.model.IDiagramModelGroup;
+import com.archimatetool.model.IDiagramModelObject;
+import com.archimatetool.script.commands.CommandHandler;
+
+import junit.framework.JUnit4TestAdapter;
+
+
+/**
+ * DiagramModelIndex Tests
+ */
+public class DiagramModelIndexTests {
+    
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(DiagramModelIndexTests.class);
+    }
+    
+    @Test
+    public void getNestedParent_SameAsAllContents() {
+        ArchimateModelProxy modelProxy = TestsHelper.loadTestModel(TestsHelper.TEST_MODEL_FILE_ARCHISURANCE);
+        
+        for(IDiagramModel dm : modelProxy.getEObject().getDiagramModels()) {
+            DiagramModelIndex index = DiagramModelIndex.get(dm);
+            
+            for(int x = -20; x < 1000; x += 37) {
+                for(int y = -20; y < 800; y += 41) {
+                    IBounds bounds = IArchimateFactory.eINSTANCE.createBounds(x, y, 10, 10);
+                    assertSame(getNestedParent(dm, bounds), index.getNestedParent(dm, bounds));
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void getNestedParent_UpdatedOnChanges() {
+        CommandHandler.init("Test");
+        
+        try {
+            checkUpdatedOnChanges(IArchimateFactory.eINSTANCE.createArchimateDiagramModel());
+        }
+        finally {
+            CommandHandler.finalise();
+        }
+    }
+    
+    private void checkUpdatedOnChanges(IArchimateDiagramModel dm) {
+        DiagramModelIndex index = DiagramModelIndex.get(dm);
+        IBounds bounds = IArchimateFactory.eINSTANCE.createBounds(50, 50, 10, 10);
+        
+        // Add
+        IDiagramModelGroup group = IArchimateFactory.eINSTANCE.createDiagramModelGroup();
+        group.setBounds(0, 0, 400, 400);
+        dm.getChildren().add(group);
+        assertSame(group, index.getNestedParent(dm, bounds));
+        
+        // Add nested
+        IDiagramModelGroup child = IArchimateFactory.eINSTANCE.createDiagramModelGroup();
+        child.setBounds(40, 40, 100, 100);
+        group.getChildren().add(child);
+        assertSame(child, index.getNestedParent(dm, bounds));
+        assertSame(child, index.getNestedParent(group, bounds));
+        
+        // Move the parent so that the child moves too
+        group.setBounds(500, 500, 400, 400);
+        assertSame(dm, index.getNestedParent(dm, bounds));
+        assertSame(child, index.getNestedParent(dm, IArchimateFactory.eINSTANCE.createBounds(550, 550, 10, 10)));
+        
+        // Delete
+        dm.getChildren().remove(group);
+        assertSame(dm, index.getNestedParent(dm, IArchimateFactory.eINSTANCE.createBounds(550, 550, 10, 10)));
+    }
+    
+    @Test
+    public void get_KeptUntilScriptEnds() {
+        IArchimateDiagramModel dm = IArchimateFactory.eINSTANCE.createArchimateDiagramModel();
+        
+        // Not kept or listening when no script is running
+        DiagramModelIndex.get(dm);
+        assertEquals(0, dm.eAdapters().size());
+        
+        CommandHandler.init("Test");
+        
+        try {
+            DiagramModelIndex index = DiagramModelIndex.get(dm);
+            assertSame(index, DiagramModelIndex.get(dm));
+            assertEquals(1, dm.eAdapters().size());
+        }
+        finally {
+            CommandHandler.finalise();
+        }
+        
+        assertEquals(0, dm.eAdapters().size());
+    }
+    
+    // The original search of all contents
+    private IDiagramModelContainer getNestedParent(IDiagramModelContainer parent, IBounds bounds) {
+        for(Iterator<EObject> iter = parent.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            if(eObject instanceof IDiagramModelContainer) {
+                IBounds dmoBounds = DiagramModelUtils.getAbsoluteBounds((IDiagramModelObject)eObject);
+                if(DiagramModelUtils.outerBoundsContainsInnerBounds(dmoBounds, bounds)) {
+                    parent = (IDiagramModelContainer)eObject;
+                }
+            }
+        }
+        return parent;
+    }
+}
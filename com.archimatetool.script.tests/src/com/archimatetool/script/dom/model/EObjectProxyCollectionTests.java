@@ -7,21 +7,35 @@ package com.archimatetool.script.dom.model;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import org.eclipse.emf.ecore.EObject;
 import org.junit.Test;
 
+import com.archimatetool.model.IArchimateElement;
 import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
 import com.archimatetool.model.IAssociationRelationship;
 import com.archimatetool.model.IBusinessActor;
 import com.archimatetool.model.IBusinessRole;
 import com.archimatetool.model.IDiagramModelArchimateObject;
 import com.archimatetool.model.IDiagramModelGroup;
 import com.archimatetool.model.IFolder;
+import com.archimatetool.model.IProperty;
 import com.archimatetool.model.util.ArchimateModelUtils;
+import com.archimatetool.script.ArchiScriptException;
 
 import junit.framework.JUnit4TestAdapter;
 
@@ -157,4 +171,215 @@ public class EObjectProxyCollectionTests {
             assertEquals(collection.get(i), clone.get(i));
         }
     }    
+
+    @Test
+    public void exportCsv() throws Exception {
+        EObjectProxyCollection collection = createExportCollection();
+        
+        File file = File.createTempFile("~temp", ".csv");
+        file.deleteOnExit();
+        
+        collection.exportCsv(file.getPath(), Arrays.asList("id", "name", "prop:Owner", "source.name", "target.id"));
+        
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(4, lines.size());
+        assertEquals("id,name,prop:Owner,source.name,target.id", lines.get(0));
+        assertEquals("a1,\"Actor, \"\"one\"\"\",Bob,,", lines.get(1));
+        assertEquals("r1,Role,,,", lines.get(2));
+        assertEquals("rel1,,,\"Actor, \"\"one\"\"\",r1", lines.get(3));
+    }
+    
+    @Test
+    public void exportJson() throws Exception {
+        EObjectProxyCollection collection = createExportCollection();
+        
+        File file = File.createTempFile("~temp", ".json");
+        file.deleteOnExit();
+        
+        collection.exportJson(file.getPath());
+        
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(5, lines.size());
+        assertEquals("[", lines.get(0));
+        assertEquals("{\"id\":\"a1\",\"type\":\"business-actor\",\"name\":\"Actor, \\\"one\\\"\"},", lines.get(1));
+        assertEquals("{\"id\":\"r1\",\"type\":\"business-role\",\"name\":\"Role\"},", lines.get(2));
+        assertEquals("{\"id\":\"rel1\",\"type\":\"association-relationship\",\"name\":\"\"}", lines.get(3));
+        assertEquals("]", lines.get(4));
+    }
+    
+    @Test
+    public void setType() {
+        ArchimateModelProxy modelProxy = TestsHelper.loadTestModel(TestsHelper.TEST_MODEL_FILE_ARCHISURANCE);
+        EObjectProxyCollection collection = modelProxy.find("business-actor");
+        
+        int outRels = collection.outRels().size();
+        int inRels = collection.inRels().size();
+        int objectRefs = collection.objectRefs().size();
+        assertTrue(collection.size() > 1);
+        
+        assertSame(collection, collection.setType("business-role"));
+        
+        for(EObjectProxy proxy : collection) {
+            assertTrue(proxy.getEObject() instanceof IBusinessRole);
+            assertTrue(proxy.getEObject().eContainer() instanceof IFolder);
+        }
+        
+        assertEquals(outRels, collection.outRels().size());
+        assertEquals(inRels, collection.inRels().size());
+        assertEquals(objectRefs, collection.objectRefs().size());
+        assertTrue(modelProxy.find("business-actor").isEmpty());
+    }
+    
+    @Test
+    public void setType_ChecksAllBeforeChanging() {
+        ArchimateModelProxy modelProxy = TestsHelper.loadTestModel(TestsHelper.TEST_MODEL_FILE_ARCHISURANCE);
+        ArchimateElementProxy actor = modelProxy.createElement("business-actor", "Actor");
+        ArchimateElementProxy role = modelProxy.createElement("business-role", "Role");
+        ArchimateRelationshipProxy relationship = modelProxy.createRelationship("assignment-relationship", "", actor, role);
+        
+        // The relationship can be set to this type but the element can't
+        EObjectProxyCollection collection = new EObjectProxyCollection();
+        collection.add(relationship);
+        collection.add(actor);
+        
+        try {
+            collection.setType("association-relationship");
+            fail("Should have thrown exception");
+        }
+        catch(ArchiScriptException ex) {
+            // Expected
+        }
+        
+        // Nothing was changed
+        assertTrue(relationship.getEObject().eContainer() instanceof IFolder);
+        assertEquals(1, actor.getEObject().getSourceRelationships().size());
+        assertSame(relationship.getEObject(), actor.getEObject().getSourceRelationships().get(0));
+        assertTrue(actor.getEObject() instanceof IBusinessActor);
+    }
+    
+    @Test(expected = ArchiScriptException.class)
+    public void mergeInto_NullTarget() {
+        new EObjectProxyCollection().mergeInto(null);
+    }
+    
+    @Test
+    public void mergeInto() {
+        ArchimateModelProxy modelProxy = TestsHelper.loadTestModel(TestsHelper.TEST_MODEL_MERGE);
+        
+        ArchimateElementProxy targetProxy = (ArchimateElementProxy)EObjectProxy.get(ArchimateModelUtils.getObjectByID(modelProxy.getEObject(),
+                "76aa9eb3-8cdd-471c-81e4-965d94e12dd9"));
+        ArchimateElementProxy otherProxy = (ArchimateElementProxy)EObjectProxy.get(ArchimateModelUtils.getObjectByID(modelProxy.getEObject(),
+                "ad78af0a-24ce-44b2-b512-35f6f77204e3"));
+        
+        EObjectProxyCollection collection = new EObjectProxyCollection();
+        collection.add(targetProxy);
+        collection.add(otherProxy);
+        
+        assertSame(targetProxy, collection.mergeInto(targetProxy));
+        
+        IArchimateElement targetElement = targetProxy.getEObject();
+        assertEquals("Doc1\nDoc2", targetProxy.getDocumentation());
+        assertEquals(3, targetElement.getProperties().size());
+        assertEquals(4, targetProxy.objectRefs().size());
+        assertEquals(1, targetElement.getSourceRelationships().size());
+        assertEquals(2, targetElement.getTargetRelationships().size());
+        
+        // The other element is kept, as merge() does
+        assertNotNull(otherProxy.getEObject().eContainer());
+        assertEquals(0, otherProxy.objectRefs().size());
+        assertEquals(0, otherProxy.getEObject().getSourceRelationships().size());
+        assertEquals(0, otherProxy.getEObject().getTargetRelationships().size());
+    }
+    
+    @Test
+    public void mergeInto_Delete() {
+        ArchimateModelProxy modelProxy = TestsHelper.loadTestModel(TestsHelper.TEST_MODEL_MERGE);
+        
+        ArchimateElementProxy targetProxy = (ArchimateElementProxy)EObjectProxy.get(ArchimateModelUtils.getObjectByID(modelProxy.getEObject(),
+                "76aa9eb3-8cdd-471c-81e4-965d94e12dd9"));
+        ArchimateElementProxy otherProxy = (ArchimateElementProxy)EObjectProxy.get(ArchimateModelUtils.getObjectByID(modelProxy.getEObject(),
+                "ad78af0a-24ce-44b2-b512-35f6f77204e3"));
+        
+        EObjectProxyCollection collection = new EObjectProxyCollection();
+        collection.add(otherProxy);
+        
+        collection.mergeInto(targetProxy, Collections.singletonMap("delete", true));
+        
+        assertEquals(4, targetProxy.objectRefs().size());
+        
+        // The other element is deleted
+        assertNull(otherProxy.getEObject().eContainer());
+    }
+    
+    @Test(expected = ArchiScriptException.class)
+    public void mergeInto_WrongTypeThrowsException() {
+        ArchimateModelProxy modelProxy = TestsHelper.loadTestModel(TestsHelper.TEST_MODEL_MERGE);
+        
+        ArchimateElementProxy targetProxy = (ArchimateElementProxy)EObjectProxy.get(ArchimateModelUtils.getObjectByID(modelProxy.getEObject(),
+                "76aa9eb3-8cdd-471c-81e4-965d94e12dd9"));
+        
+        EObjectProxyCollection collection = new EObjectProxyCollection();
+        collection.add(EObjectProxy.get(ArchimateModelUtils.getObjectByID(modelProxy.getEObject(), "a3a16448-0760-4d5c-860e-d9f8826340a6")));
+        collection.mergeInto(targetProxy);
+    }
+    
+    @Test
+    public void reconnect() {
+        IArchimateModel model = IArchimateFactory.eINSTANCE.createArchimateModel();
+        model.setDefaults();
+        ArchimateModelProxy modelProxy = (ArchimateModelProxy)EObjectProxy.get(model);
+        ArchimateDiagramModelProxy view = modelProxy.createArchimateView("View");
+        
+        ArchimateElementProxy source = modelProxy.createElement("business-actor", "Source");
+        ArchimateElementProxy target = modelProxy.createElement("business-actor", "Target");
+        DiagramModelObjectProxy sourceDmo = view.add(source, 10, 10, 120, 55);
+        DiagramModelObjectProxy targetDmo = view.add(target, 200, 10, 120, 55);
+        
+        EObjectProxyCollection collection = new EObjectProxyCollection();
+        List<DiagramModelConnectionProxy> connections = new ArrayList<>();
+        
+        for(int i = 0; i < 5; i++) {
+            ArchimateElementProxy actor = modelProxy.createElement("business-actor", "Actor " + i);
+            DiagramModelObjectProxy dmo = view.add(actor, 10, 100 + i * 100, 120, 55);
+            ArchimateRelationshipProxy relation = modelProxy.createRelationship("association-relationship", "", actor, actor);
+            connections.add(view.add(relation, dmo, dmo));
+            collection.add(relation);
+        }
+        
+        assertSame(collection, collection.reconnect(source, target));
+        
+        for(int i = 0; i < 5; i++) {
+            ArchimateRelationshipProxy relation = (ArchimateRelationshipProxy)collection.get(i);
+            assertEquals(source, relation.getSource());
+            assertEquals(target, relation.getTarget());
+            assertEquals(sourceDmo, connections.get(i).getSource());
+            assertEquals(targetDmo, connections.get(i).getTarget());
+        }
+    }
+    
+    private EObjectProxyCollection createExportCollection() {
+        IBusinessActor actor = IArchimateFactory.eINSTANCE.createBusinessActor();
+        actor.setId("a1");
+        actor.setName("Actor, \"one\"");
+        IProperty property = IArchimateFactory.eINSTANCE.createProperty();
+        property.setKey("Owner");
+        property.setValue("Bob");
+        actor.getProperties().add(property);
+        
+        IBusinessRole role = IArchimateFactory.eINSTANCE.createBusinessRole();
+        role.setId("r1");
+        role.setName("Role");
+        
+        IAssociationRelationship relation = IArchimateFactory.eINSTANCE.createAssociationRelationship();
+        relation.setId("rel1");
+        relation.setName("");
+        relation.connect(actor, role);
+        
+        EObjectProxyCollection collection = new EObjectProxyCollection();
+        collection.add(EObjectProxy.get(actor));
+        collection.add(EObjectProxy.get(role));
+        collection.add(EObjectProxy.get(relation));
+        
+        return collection;
+    }
 }
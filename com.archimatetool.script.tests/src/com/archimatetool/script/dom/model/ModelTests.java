@@ -7,18 +7,37 @@ package com.archimatetool.script.dom.model;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.beans.PropertyChangeListener;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.eclipse.gef.commands.CommandStack;
+import org.eclipse.gef.commands.CompoundCommand;
+import org.eclipse.jface.preference.IPreferenceStore;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import com.archimatetool.editor.ArchiPlugin;
 import com.archimatetool.editor.model.IArchiveManager;
+import com.archimatetool.editor.model.IEditorModelManager;
+import com.archimatetool.editor.preferences.IPreferenceConstants;
+import com.archimatetool.editor.utils.FileUtils;
 import com.archimatetool.script.ArchiScriptException;
+import com.archimatetool.script.commands.ChangeSummary;
+import com.archimatetool.script.commands.CommandHandler;
 import com.archimatetool.script.dom.DomExtensionFactory;
 
 import junit.framework.JUnit4TestAdapter;
@@ -88,4 +107,581 @@ public class ModelTests {
     public void isAllowedRelationship_Exception() {
         model.isAllowedRelationship("bogus", "business-actor", "business-role");
     }
+
+    @Test
+    public void setUndoEnabled() {
+        assertTrue(model.isUndoEnabled());
+        
+        model.setUndoEnabled(false);
+        assertFalse(model.isUndoEnabled());
+        
+        model.setUndoEnabled(true);
+        assertTrue(model.isUndoEnabled());
+    }
+    
+    @Test
+    public void setUndoEnabled_ChangesCannotBeUndone() {
+        CommandHandler.init("Test");
+        
+        ArchimateModelProxy modelProxy = model.create("Test");
+        CommandStack stack = new CommandStack();
+        
+        try {
+            modelProxy.getArchimateModel().setAdapter(CommandStack.class, stack);
+            
+            model.setUndoEnabled(false);
+            modelProxy.createElement("business-actor", "1");
+            modelProxy.createElement("business-actor", "2").setName("Renamed");
+        }
+        finally {
+            CommandHandler.finalise();
+        }
+        
+        assertEquals(2, modelProxy.find("element").size());
+        
+        // Nothing to undo but the model is marked as dirty
+        assertFalse(stack.canUndo());
+        assertTrue(stack.isDirty());
+    }
+    
+    @Test
+    public void transaction_RollsBackOnException() {
+        CommandHandler.init("Test");
+        
+        try {
+            ArchimateModelProxy modelProxy = model.create("Test");
+            modelProxy.createElement("business-actor", "Kept");
+            
+            try {
+                model.transaction(() -> {
+                    modelProxy.createElement("business-actor", "Rolled back");
+                    throw new RuntimeException("Failed");
+                });
+                fail("Should have thrown exception");
+            }
+            catch(RuntimeException ex) {
+                assertEquals("Failed", ex.getMessage());
+            }
+            
+            assertEquals(1, modelProxy.find("element").size());
+            assertEquals("Kept", modelProxy.find("element").first().getName());
+        }
+        finally {
+            CommandHandler.finalise();
+        }
+    }
+    
+    @Test
+    public void savepoint_Rollback() {
+        CommandHandler.init("Test");
+        
+        try {
+            ArchimateModelProxy modelProxy = model.create("Test");
+            
+            int first = model.savepoint();
+            modelProxy.createElement("business-actor", "1");
+            
+            model.savepoint();
+            modelProxy.createElement("business-actor", "2");
+            
+            model.rollback();
+            assertEquals(1, modelProxy.find("element").size());
+            
+            model.rollback(first);
+            assertEquals(0, modelProxy.find("element").size());
+        }
+        finally {
+            CommandHandler.finalise();
+        }
+    }
+    
+    @Test
+    public void transaction_KeepsChangesOnExit() {
+        CommandHandler.init("Test");
+        
+        try {
+            ArchimateModelProxy modelProxy = model.create("Test");
+            
+            try {
+                model.transaction(() -> {
+                    modelProxy.createElement("business-actor", "Kept");
+                    throw new RuntimeException("__EXIT__");
+                });
+                fail("Should have thrown exception");
+            }
+            catch(RuntimeException ex) {
+                assertEquals("__EXIT__", ex.getMessage());
+            }
+            
+            assertEquals(1, modelProxy.find("element").size());
+        }
+        finally {
+            CommandHandler.finalise();
+        }
+    }
+    
+    @Test
+    public void transaction_FunctionRollsBack() {
+        CommandHandler.init("Test");
+        
+        try {
+            ArchimateModelProxy modelProxy = model.create("Test");
+            
+            model.transaction(() -> {
+                modelProxy.createElement("business-actor", "Rolled back");
+                model.rollback();
+                modelProxy.createElement("business-actor", "Kept");
+            });
+            
+            assertEquals(1, modelProxy.find("element").size());
+            assertEquals("Kept", modelProxy.find("element").first().getName());
+            
+            try {
+                model.transaction(() -> {
+                    model.rollback();
+                    throw new RuntimeException("Failed");
+                });
+                fail("Should have thrown exception");
+            }
+            catch(RuntimeException ex) {
+                assertEquals("Failed", ex.getMessage());
+            }
+        }
+        finally {
+            CommandHandler.finalise();
+        }
+    }
+    
+    @Test
+    public void savepoint_ReleasedIdIsNotReused() {
+        CommandHandler.init("Test");
+        
+        try {
+            ArchimateModelProxy modelProxy = model.create("Test");
+            
+            int first = model.savepoint();
+            model.release(first);
+            
+            int second = model.savepoint();
+            assertNotEquals(first, second);
+            modelProxy.createElement("business-actor", "1");
+            
+            try {
+                model.rollback(first);
+                fail("Should have thrown exception");
+            }
+            catch(ArchiScriptException ex) {
+                // Expected
+            }
+            
+            assertEquals(1, modelProxy.find("element").size());
+        }
+        finally {
+            CommandHandler.finalise();
+        }
+    }
+    
+    @Test
+    public void getRunStatistics() {
+        Map<String, Object> statistics = model.getRunStatistics();
+        assertEquals(4, statistics.size());
+        assertTrue(statistics.get("refreshCount") instanceof Integer);
+        assertTrue(statistics.get("refreshTime") instanceof Long);
+        assertTrue(statistics.get("scriptTime") instanceof Long);
+        assertTrue(statistics.get("refreshInterval") instanceof Long);
+    }
+    
+    @Test
+    public void setNotificationBatching() {
+        CommandHandler.init("Test");
+        
+        ArchimateModelProxy modelProxy = model.create("Test");
+        
+        int[] counts = new int[2];
+        PropertyChangeListener listener = event -> {
+            if(event.getSource() == modelProxy.getArchimateModel()) {
+                if(IEditorModelManager.PROPERTY_ECORE_EVENTS_START.equals(event.getPropertyName())) {
+                    counts[0]++;
+                }
+                else if(IEditorModelManager.PROPERTY_ECORE_EVENTS_END.equals(event.getPropertyName())) {
+                    counts[1]++;
+                }
+            }
+        };
+        
+        IEditorModelManager.INSTANCE.addPropertyChangeListener(listener);
+        
+        try {
+            model.setNotificationBatching(true, 2);
+            
+            modelProxy.createElement("business-actor", "1");
+            assertEquals(1, counts[0]);
+            assertEquals(0, counts[1]);
+            
+            modelProxy.createElement("business-actor", "2");
+            assertEquals(1, counts[0]);
+            assertEquals(1, counts[1]);
+            
+            modelProxy.createElement("business-actor", "3");
+            assertEquals(2, counts[0]);
+            assertEquals(1, counts[1]);
+            
+            // The last batch is flushed when the script ends
+            CommandHandler.finalise();
+            assertEquals(2, counts[0]);
+            assertEquals(2, counts[1]);
+        }
+        finally {
+            CommandHandler.finalise();
+            IEditorModelManager.INSTANCE.removePropertyChangeListener(listener);
+        }
+    }
+    
+    @Test
+    public void setChunkedCommit() {
+        CommandHandler.init("Test");
+        
+        try {
+            ArchimateModelProxy modelProxy = model.create("Test");
+            CommandStack stack = new CommandStack();
+            modelProxy.getArchimateModel().setAdapter(CommandStack.class, stack);
+            
+            model.setChunkedCommit(2, 0);
+            
+            modelProxy.createElement("business-actor", "1");
+            assertEquals(0, stack.getCommands().length);
+            
+            modelProxy.createElement("business-actor", "2");
+            assertEquals(1, stack.getCommands().length);
+            
+            modelProxy.createElement("business-actor", "3");
+            assertEquals(1, stack.getCommands().length);
+        }
+        finally {
+            CommandHandler.finalise();
+        }
+    }
+    
+    @Test
+    public void setChunkedCommit_CountLimit() {
+        CommandHandler.init("Test");
+        
+        CommandStack stack = new CommandStack();
+        
+        try {
+            ArchimateModelProxy modelProxy = model.create("Test");
+            modelProxy.getArchimateModel().setAdapter(CommandStack.class, stack);
+            
+            // A large memory limit doesn't change when chunks are committed by count
+            model.setChunkedCommit(3, 1024);
+            
+            for(int i = 0; i < 7; i++) {
+                modelProxy.createElement("business-actor", "" + i);
+            }
+            assertEquals(2, stack.getCommands().length);
+            
+            // No chunks are committed while there is a savepoint
+            int savepoint = model.savepoint();
+            for(int i = 0; i < 6; i++) {
+                modelProxy.createElement("business-actor", "" + i);
+            }
+            assertEquals(2, stack.getCommands().length);
+            model.release(savepoint);
+        }
+        finally {
+            CommandHandler.finalise();
+        }
+        
+        // The rest are committed when the script ends
+        assertEquals(3, stack.getCommands().length);
+        assertEquals("Script: 'Test' (part 1)", stack.getCommands()[0].getLabel());
+        assertEquals("Script: 'Test' (part 2)", stack.getCommands()[1].getLabel());
+        assertEquals("Script: 'Test' (part 3)", stack.getCommands()[2].getLabel());
+    }
+    
+    @Test
+    public void setCommandsAreCoalesced() {
+        CommandHandler.init("Test");
+        
+        ArchimateElementProxy element;
+        CommandStack stack = new CommandStack();
+        
+        try {
+            ArchimateModelProxy modelProxy = model.create("Test");
+            element = modelProxy.createElement("business-actor", "Original");
+            modelProxy.getArchimateModel().setAdapter(CommandStack.class, stack);
+            
+            element.setName("1");
+            element.setName("2");
+            element.setDocumentation("Doc");
+            element.setName("3");
+        }
+        finally {
+            CommandHandler.finalise();
+        }
+        
+        CompoundCommand compound = (CompoundCommand)stack.getCommands()[0];
+        assertEquals(3, compound.size());
+        
+        stack.undo();
+        assertEquals("Original", element.getName());
+        assertEquals("", element.getDocumentation());
+        
+        stack.redo();
+        assertEquals("3", element.getName());
+        assertEquals("Doc", element.getDocumentation());
+    }
+    
+    @Test
+    public void setCommandsAreNotCoalescedWhenUndoDisabled() {
+        CommandHandler.init("Test");
+        
+        CommandStack stack = new CommandStack();
+        
+        try {
+            ArchimateModelProxy modelProxy = model.create("Test");
+            ArchimateElementProxy element = modelProxy.createElement("business-actor", "Original");
+            modelProxy.getArchimateModel().setAdapter(CommandStack.class, stack);
+            
+            element.setName("1");
+            model.setUndoEnabled(false);
+            element.setName("2");
+        }
+        finally {
+            CommandHandler.finalise();
+        }
+        
+        // The change made without Undo can't be undone
+        assertFalse(stack.canUndo());
+    }
+    
+    @Test
+    public void dryRun() {
+        CommandHandler.init("Test");
+        CommandHandler.setDryRun(true);
+        
+        ArchimateModelProxy modelProxy = model.create("Test");
+        
+        ChangeSummary summary;
+        
+        try {
+            ArchimateElementProxy element = modelProxy.createElement("business-actor", "Actor");
+            element.setName("Renamed");
+            
+            summary = CommandHandler.endDryRun();
+        }
+        finally {
+            CommandHandler.finalise();
+        }
+        
+        assertEquals(0, modelProxy.find("element").size());
+        assertEquals(Integer.valueOf(1), summary.getCommandCounts().get("set name"));
+        assertEquals(1, summary.getCreatedIds().size());
+        assertTrue(summary.getDeletedIds().isEmpty());
+    }
+    
+    @Test
+    public void dryRun_SaveIsSkipped() throws IOException {
+        File folder = Files.createTempDirectory("~dryrun").toFile();
+        File file = new File(folder, "test.archimate");
+        
+        CommandHandler.init("Test");
+        CommandHandler.setDryRun(true);
+        
+        try {
+            ArchimateModelProxy modelProxy = model.create("Test");
+            modelProxy.createElement("business-actor", "Actor");
+            
+            modelProxy.save(file.getPath());
+            assertFalse(file.exists());
+            assertNull(modelProxy.getPath());
+        }
+        finally {
+            CommandHandler.finalise();
+            FileUtils.deleteFolder(folder);
+        }
+    }
+
+    @Test
+    public void setJournal() throws IOException {
+        File file = File.createTempFile("~temp", ".ndjson");
+        file.deleteOnExit();
+        
+        CommandHandler.init("Test");
+        
+        try {
+            model.setJournal(file.getPath());
+            
+            ArchimateModelProxy modelProxy = model.create("Test");
+            ArchimateElementProxy element = modelProxy.createElement("business-actor", "Actor");
+            element.setName("Renamed");
+        }
+        finally {
+            CommandHandler.finalise();
+        }
+        
+        List<String> lines = Files.readAllLines(file.toPath());
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("\"event\":\"add\""));
+        assertTrue(lines.get(1).contains("\"feature\":\"name\",\"old\":\"Actor\",\"new\":\"Renamed\""));
+    }
+    
+    @Test
+    public void renderViews() throws IOException {
+        ArchimateModelProxy modelProxy = TestsHelper.loadTestModel(TestsHelper.TEST_MODEL_FILE_ARCHISURANCE);
+        EObjectProxyCollection views = modelProxy.find("view");
+        
+        File folder = Files.createTempDirectory("~render").toFile();
+        
+        try {
+            List<String> paths = model.renderViews(views, folder.getPath(), "PNG", Collections.singletonMap("threads", 2));
+            assertEquals(views.size(), paths.size());
+            assertEquals(views.size(), folder.list().length);
+            
+            for(String path : paths) {
+                assertTrue(path.endsWith(".png"));
+                byte[] bytes = Files.readAllBytes(new File(path).toPath());
+                // PNG signature
+                assertEquals((byte)0x89, bytes[0]);
+                assertEquals('P', bytes[1]);
+            }
+        }
+        finally {
+            FileUtils.deleteFolder(folder);
+        }
+    }
+    
+    @Test
+    public void renderViewAsBase64_Cache() throws IOException {
+        ArchimateModelProxy modelProxy = TestsHelper.loadTestModel(TestsHelper.TEST_MODEL_FILE_ARCHISURANCE);
+        DiagramModelProxy view = (DiagramModelProxy)modelProxy.find("view").first();
+        
+        File folder = Files.createTempDirectory("~cache").toFile();
+        
+        try {
+            Map<String, Object> options = new HashMap<>();
+            options.put("cache", folder.getPath());
+            
+            String image = model.renderViewAsBase64(view, "PNG", options);
+            assertEquals(1, folder.list().length);
+            
+            // Unchanged so the cached image is used
+            assertEquals(image, model.renderViewAsBase64(view, "PNG", options));
+            assertEquals(1, folder.list().length);
+            
+            // Changed so it is rendered and cached again
+            view.getEObject().getChildren().get(0).getBounds().setX(1000);
+            model.renderViewAsBase64(view, "PNG", options);
+            assertEquals(2, folder.list().length);
+            
+            // No room in the cache
+            options.put("cacheSize", 0);
+            model.renderViewAsBase64(view, "PNG", options);
+            assertEquals(0, folder.list().length);
+        }
+        finally {
+            FileUtils.deleteFolder(folder);
+        }
+    }
+    
+    @Test
+    public void renderViewAsBase64_CacheDependsOnPreferences() throws IOException {
+        ArchimateModelProxy modelProxy = TestsHelper.loadTestModel(TestsHelper.TEST_MODEL_FILE_ARCHISURANCE);
+        DiagramModelProxy view = (DiagramModelProxy)modelProxy.find("view").first();
+        
+        File folder = Files.createTempDirectory("~cache").toFile();
+        IPreferenceStore store = ArchiPlugin.INSTANCE.getPreferenceStore();
+        int width = store.getInt(IPreferenceConstants.DEFAULT_ARCHIMATE_FIGURE_WIDTH);
+        
+        try {
+            Map<String, Object> options = new HashMap<>();
+            options.put("cache", folder.getPath());
+            
+            model.renderViewAsBase64(view, "PNG", options);
+            assertEquals(1, folder.list().length);
+            
+            // A changed preference means the View is rendered and cached again
+            store.setValue(IPreferenceConstants.DEFAULT_ARCHIMATE_FIGURE_WIDTH, width + 1);
+            model.renderViewAsBase64(view, "PNG", options);
+            assertEquals(2, folder.list().length);
+        }
+        finally {
+            store.setValue(IPreferenceConstants.DEFAULT_ARCHIMATE_FIGURE_WIDTH, width);
+            FileUtils.deleteFolder(folder);
+        }
+    }
+    
+    @Test
+    public void renderViewAsSvg() throws IOException {
+        ArchimateModelProxy modelProxy = TestsHelper.loadTestModel(TestsHelper.TEST_MODEL_FILE_ARCHISURANCE);
+        DiagramModelProxy view = (DiagramModelProxy)modelProxy.find("view").first();
+        
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        model.renderViewAsSvg(view, out, null);
+        String svg = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        
+        assertTrue(svg.startsWith("<?xml"));
+        assertTrue(svg.trim().endsWith("</svg>"));
+        assertEquals(view.getObjects().size(), svg.split("<rect ", -1).length - 1);
+        assertEquals(view.getConnections().size(), svg.split("<polyline ", -1).length - 1);
+        
+        // Element names are shown when there is no label expression
+        int names = 0;
+        for(EObjectProxy object : view.getObjects()) {
+            if(object instanceof DiagramModelObjectProxy && ((DiagramModelObjectProxy)object).getConcept() != null) {
+                String name = ((DiagramModelObjectProxy)object).getConcept().getName();
+                if(name.matches("[\\w ]+")) {
+                    assertTrue(name, svg.contains(">" + name + "</tspan>"));
+                    names++;
+                }
+            }
+        }
+        assertTrue(names > 0);
+        
+        // Markers use the line colour, not SVG 2 values
+        assertFalse(svg.contains("context-stroke"));
+        assertFalse(svg.contains("auto-start-reverse"));
+        assertTrue(svg.contains("<marker "));
+    }
+    
+    @Test
+    public void renderViewAsSvg_File() throws IOException {
+        ArchimateModelProxy modelProxy = TestsHelper.loadTestModel(TestsHelper.TEST_MODEL_FILE_ARCHISURANCE);
+        DiagramModelProxy view = (DiagramModelProxy)modelProxy.find("view").first();
+        
+        File file = File.createTempFile("~temp", ".svg");
+        file.deleteOnExit();
+        
+        model.renderViewAsSvg(view, file.getPath());
+        assertTrue(file.length() > 0);
+    }
+    
+    @Test
+    public void renderViewAsSvg_NullViewKeepsFile() throws IOException {
+        File file = File.createTempFile("~temp", ".svg");
+        file.deleteOnExit();
+        Files.write(file.toPath(), "Existing".getBytes(StandardCharsets.UTF_8));
+        
+        try {
+            model.renderViewAsSvg(null, file.getPath());
+            fail("Should have thrown exception");
+        }
+        catch(ArchiScriptException ex) {
+            // Expected
+        }
+        
+        assertEquals("Existing", new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+    }
+    
+    @Test(expected = ArchiScriptException.class)
+    public void rollback_NoSavepoint() {
+        CommandHandler.init("Test");
+        
+        try {
+            model.rollback();
+        }
+        finally {
+            CommandHandler.finalise();
+        }
+    }
 }
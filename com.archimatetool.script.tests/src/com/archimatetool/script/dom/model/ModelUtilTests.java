@@ -7,6 +7,7 @@ package com.archimatetool.script.dom.model;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.util.HashMap;
@@ -135,6 +136,15 @@ public class ModelUtilTests {
         assertTrue(ModelUtil.isAllowedSetType(concept, "flow-relationship"));
     }
     
+    @Test
+    public void getEClass() {
+        assertEquals(IArchimatePackage.eINSTANCE.getBusinessActor(), ModelUtil.getEClass("business-actor"));
+        assertEquals(IArchimatePackage.eINSTANCE.getBusinessActor(), ModelUtil.getEClass("business-actor"));
+        assertEquals(IArchimatePackage.eINSTANCE.getAssignmentRelationship(), ModelUtil.getEClass("assignment-relationship"));
+        assertNull(ModelUtil.getEClass("bogus"));
+        assertNull(ModelUtil.getEClass(null));
+    }
+    
     @Test
     public void getKebabCase() {
         assertEquals("", ModelUtil.getKebabCase(""));
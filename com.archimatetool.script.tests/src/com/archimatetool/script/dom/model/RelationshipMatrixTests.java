@@ -0,0 +1,65 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.eclipse.emf.ecore.EClass;
+import org.junit.Test;
+
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.util.ArchimateModelUtils;
+
+import junit.framework.JUnit4TestAdapter;
+
+
+/**
+ * RelationshipMatrix Tests
+ */
+public class RelationshipMatrixTests {
+    
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(RelationshipMatrixTests.class);
+    }
+    
+    @Test
+    public void isValidRelationship_SameAsArchimateModelUtils() {
+        RelationshipMatrix matrix = RelationshipMatrix.getInstance();
+        
+        for(EClass source : ArchimateModelUtils.getAllArchimateClasses()) {
+            for(EClass target : ArchimateModelUtils.getAllArchimateClasses()) {
+                for(EClass relationship : ArchimateModelUtils.getRelationsClasses()) {
+                    assertEquals(ArchimateModelUtils.isValidRelationship(source, target, relationship),
+                            matrix.isValidRelationship(source, target, relationship));
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void isValidRelationship() {
+        RelationshipMatrix matrix = RelationshipMatrix.getInstance();
+        
+        assertTrue(matrix.isValidRelationship(IArchimatePackage.eINSTANCE.getBusinessActor(), IArchimatePackage.eINSTANCE.getBusinessRole(),
+                IArchimatePackage.eINSTANCE.getAssignmentRelationship()));
+        
+        assertFalse(matrix.isValidRelationship(IArchimatePackage.eINSTANCE.getBusinessActor(), IArchimatePackage.eINSTANCE.getBusinessRole(),
+                IArchimatePackage.eINSTANCE.getAccessRelationship()));
+        
+        // Not a relationship type
+        assertFalse(matrix.isValidRelationship(IArchimatePackage.eINSTANCE.getBusinessActor(), IArchimatePackage.eINSTANCE.getBusinessRole(),
+                IArchimatePackage.eINSTANCE.getBusinessActor()));
+        
+        // Not concepts
+        assertFalse(matrix.isValidRelationship(IArchimatePackage.eINSTANCE.getFolder(), IArchimatePackage.eINSTANCE.getBusinessRole(),
+                IArchimatePackage.eINSTANCE.getAssociationRelationship()));
+        
+        assertFalse(matrix.isValidRelationship(null, IArchimatePackage.eINSTANCE.getBusinessRole(),
+                IArchimatePackage.eINSTANCE.getAssociationRelationship()));
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.views.console;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.custom.StyleRange;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.widgets.Display;
+import org.junit.Test;
+
+import junit.framework.JUnit4TestAdapter;
+
+
+/**
+ * ConsoleBuffer Tests
+ */
+@SuppressWarnings("nls")
+public class ConsoleBufferTests {
+    
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(ConsoleBufferTests.class);
+    }
+    
+    private Color red = Display.getDefault().getSystemColor(SWT.COLOR_RED);
+    private Color blue = Display.getDefault().getSystemColor(SWT.COLOR_BLUE);
+    
+    @Test
+    public void drain_AppendsAllText() {
+        ConsoleBuffer buffer = new ConsoleBuffer();
+        buffer.add("One ", null);
+        buffer.add("Two", null);
+        buffer.add("", red);
+        buffer.add(null, red);
+        
+        StringBuilder sb = new StringBuilder();
+        List<StyleRange> ranges = buffer.drain(sb, 0);
+        
+        assertEquals("One Two", sb.toString());
+        assertTrue(ranges.isEmpty());
+        assertTrue(buffer.isEmpty());
+    }
+    
+    @Test
+    public void drain_MergesRunsOfSameColor() {
+        ConsoleBuffer buffer = new ConsoleBuffer();
+        buffer.add("ab", red);
+        buffer.add("cd", red);
+        buffer.add("ef", blue);
+        buffer.add("gh", null);
+        buffer.add("ij", blue);
+        
+        StringBuilder sb = new StringBuilder();
+        List<StyleRange> ranges = buffer.drain(sb, 100);
+        
+        assertEquals("abcdefghij", sb.toString());
+        assertEquals(3, ranges.size());
+        
+        assertEquals(100, ranges.get(0).start);
+        assertEquals(4, ranges.get(0).length);
+        assertEquals(red, ranges.get(0).foreground);
+        
+        assertEquals(104, ranges.get(1).start);
+        assertEquals(2, ranges.get(1).length);
+        assertEquals(blue, ranges.get(1).foreground);
+        
+        // Not merged with the previous blue range because of the uncolored text between them
+        assertEquals(108, ranges.get(2).start);
+        assertEquals(2, ranges.get(2).length);
+        assertEquals(blue, ranges.get(2).foreground);
+    }
+    
+    @Test
+    public void clear() {
+        ConsoleBuffer buffer = new ConsoleBuffer();
+        buffer.add("Text", red);
+        assertFalse(buffer.isEmpty());
+        
+        buffer.clear();
+        assertTrue(buffer.isEmpty());
+        
+        StringBuilder sb = new StringBuilder();
+        assertTrue(buffer.drain(sb, 0).isEmpty());
+        assertEquals(0, sb.length());
+    }
+}
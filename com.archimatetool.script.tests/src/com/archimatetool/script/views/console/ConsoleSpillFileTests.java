@@ -0,0 +1,78 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.views.console;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import junit.framework.JUnit4TestAdapter;
+
+
+/**
+ * ConsoleSpillFile Tests
+ */
+@SuppressWarnings("nls")
+public class ConsoleSpillFileTests {
+    
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(ConsoleSpillFileTests.class);
+    }
+    
+    private ConsoleSpillFile spillFile;
+    private File target;
+    
+    @Before
+    public void runBeforeEachTest() throws IOException {
+        spillFile = new ConsoleSpillFile();
+        target = File.createTempFile("~console", ".txt");
+    }
+    
+    @After
+    public void runAfterEachTest() {
+        spillFile.reset();
+        target.delete();
+    }
+    
+    @Test
+    public void saveTo() throws IOException {
+        spillFile.write("abc");
+        spillFile.write("de");
+        assertEquals(5, spillFile.getCharCount());
+        
+        spillFile.saveTo(target, "tail");
+        assertEquals("abcdetail", readTarget());
+    }
+    
+    @Test
+    public void saveTo_NothingSpilled() throws IOException {
+        Files.write(target.toPath(), "Existing".getBytes(StandardCharsets.UTF_8));
+        
+        spillFile.saveTo(target, "tail");
+        assertEquals("tail", readTarget());
+    }
+    
+    @Test
+    public void reset() throws IOException {
+        spillFile.write("abc");
+        spillFile.reset();
+        assertEquals(0, spillFile.getCharCount());
+        
+        spillFile.saveTo(target, "tail");
+        assertEquals("tail", readTarget());
+    }
+    
+    private String readTarget() throws IOException {
+        return new String(Files.readAllBytes(target.toPath()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.views.console;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.swt.custom.StyleRange;
+import org.junit.Test;
+
+import junit.framework.JUnit4TestAdapter;
+
+
+/**
+ * ConsoleView Tests
+ */
+@SuppressWarnings("nls")
+public class ConsoleViewTests {
+    
+    public static junit.framework.Test suite() {
+        return new JUnit4TestAdapter(ConsoleViewTests.class);
+    }
+    
+    @Test
+    public void getStartOfLastLines() {
+        assertEquals(2, ConsoleView.getStartOfLastLines("a\nb\nc", 2));
+        assertEquals(4, ConsoleView.getStartOfLastLines("a\nb\nc\n", 2));
+        assertEquals(6, ConsoleView.getStartOfLastLines("a\nb\nc\n", 1));
+    }
+    
+    @Test
+    public void getStartOfLastLines_NotOverLimit() {
+        assertEquals(0, ConsoleView.getStartOfLastLines("a\nb", 2));
+        assertEquals(0, ConsoleView.getStartOfLastLines("", 2));
+    }
+    
+    @Test
+    public void getStartOfLastLines_NoLimit() {
+        assertEquals(0, ConsoleView.getStartOfLastLines("a\nb\nc\n", 0));
+    }
+    
+    @Test
+    public void shiftRanges() {
+        List<StyleRange> ranges = new ArrayList<>();
+        ranges.add(new StyleRange(0, 3, null, null));
+        ranges.add(new StyleRange(3, 3, null, null));
+        ranges.add(new StyleRange(8, 2, null, null));
+        
+        List<StyleRange> result = ConsoleView.shiftRanges(ranges, 4);
+        
+        // The first range is removed, the second is cut and the third is moved back
+        assertEquals(2, result.size());
+        assertEquals(0, result.get(0).start);
+        assertEquals(2, result.get(0).length);
+        assertEquals(4, result.get(1).start);
+        assertEquals(2, result.get(1).length);
+    }
+    
+    @Test
+    public void shiftRanges_RangeEndingAtOffsetIsRemoved() {
+        List<StyleRange> ranges = new ArrayList<>();
+        ranges.add(new StyleRange(0, 4, null, null));
+        
+        assertEquals(0, ConsoleView.shiftRanges(ranges, 4).size());
+    }
+}
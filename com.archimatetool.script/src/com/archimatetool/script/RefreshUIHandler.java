@@ -4,6 +4,7 @@ import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
 import org.eclipse.ui.PlatformUI;
 
+import com.archimatetool.script.commands.CommandHandler;
 import com.archimatetool.script.preferences.IPreferenceConstants;
 
 /**
@@ -13,37 +14,69 @@ import com.archimatetool.script.preferences.IPreferenceConstants;
  */
 public class RefreshUIHandler {
     
-    // Refresh UI at set interval
-    private static final int refreshInterval = 100;
+    // Initial interval between refreshes
+    private static final long DEFAULT_INTERVAL = 100_000_000L; // 100 ms
+    
+    // Limits of the adaptive interval
+    private static final long MIN_INTERVAL = 50_000_000L; // 50 ms
+    private static final long MAX_INTERVAL = 1_000_000_000L; // 1 second
+    
+    // Maximum time spent dispatching UI events in one refresh
+    private static final long MAX_SLICE = 25_000_000L; // 25 ms
+    
+    // The interval is set so that no more than 1 / (INTERVAL_RATIO + 1) of the time is spent refreshing the UI
+    private static final int INTERVAL_RATIO = 9;
 
-    private static long time = 0L;
+    // Cached at init so that refresh() doesn't have to read the preference on every call
+    private static boolean enabled;
+    
+    // Time (System.nanoTime) of the next refresh
+    private static long nextRefreshTime;
+    
+    private static long refreshInterval = DEFAULT_INTERVAL;
+    
+    // Statistics
+    private static long startTime;
+    private static long endTime;
+    private static long refreshTime;
+    private static int refreshCount;
 
     public static void init() {
-        if(!shouldRun()) {
+        enabled = shouldRun();
+        
+        refreshInterval = DEFAULT_INTERVAL;
+        refreshTime = 0;
+        refreshCount = 0;
+        startTime = System.nanoTime();
+        endTime = 0;
+        nextRefreshTime = startTime + refreshInterval;
+        
+        if(!enabled) {
             return;
         }
         
         // Disable UI
         setShellEnabled(false);
-
-        // Current time
-        time = System.currentTimeMillis();
     }
     
     public static void refresh() {
-        if(!shouldRun()) {
+        // Not enabled or not enough refresh interval time has passed
+        if(!enabled || System.nanoTime() - nextRefreshTime < 0) {
             return;
         }
         
-        // Not enough refresh interval time has passed
-        if(System.currentTimeMillis() - time < refreshInterval) {
-            return;
-        }
+        long sliceStart = System.nanoTime();
         
         // Update UI thread
         try {
-            if(Display.getCurrent() != null) {
-                while(Display.getCurrent().readAndDispatch());
+            Display display = Display.getCurrent();
+            if(display != null) {
+                // End any batch of model notifications so that the UI catches up in one refresh
+                CommandHandler.flushNotifications();
+                
+                // Dispatch events until the queue is empty or the time slice is used up
+                long sliceEnd = sliceStart + MAX_SLICE;
+                while(display.readAndDispatch() && System.nanoTime() - sliceEnd < 0);
             }
         }
         catch(Exception ex) {
@@ -51,16 +84,64 @@ public class RefreshUIHandler {
             ex.printStackTrace();
         }
         finally {
-            time = System.currentTimeMillis();
+            long now = System.nanoTime();
+            long cost = now - sliceStart;
+            
+            refreshTime += cost;
+            refreshCount++;
+            
+            refreshInterval = getNextInterval(cost);
+            nextRefreshTime = now + refreshInterval;
         }
     }
     
+    /**
+     * Adapt the interval to the cost of the last refresh
+     * @param cost the time in nanoseconds that the last refresh took
+     * @return the time in nanoseconds to wait before the next refresh
+     */
+    static long getNextInterval(long cost) {
+        return Math.max(MIN_INTERVAL, Math.min(MAX_INTERVAL, cost * INTERVAL_RATIO));
+    }
+    
     public static void finalise() {
-        if(shouldRun()) {
+        endTime = System.nanoTime();
+        
+        if(enabled) {
+            enabled = false;
             setShellEnabled(true);
         }
     }
     
+    /**
+     * @return the number of times the UI was refreshed in the current or last script run
+     */
+    public static int getRefreshCount() {
+        return refreshCount;
+    }
+    
+    /**
+     * @return the time in milliseconds spent refreshing the UI in the current or last script run
+     */
+    public static long getRefreshTime() {
+        return refreshTime / 1_000_000L;
+    }
+    
+    /**
+     * @return the time in milliseconds spent running script code (not refreshing the UI) in the current or last script run
+     */
+    public static long getScriptTime() {
+        long end = endTime == 0 ? System.nanoTime() : endTime;
+        return Math.max(0, end - startTime - refreshTime) / 1_000_000L;
+    }
+    
+    /**
+     * @return the current interval in milliseconds between UI refreshes
+     */
+    public static long getRefreshInterval() {
+        return refreshInterval / 1_000_000L;
+    }
+    
     /**
      * Disable/Enable Application Shell and Menu Bar so user doesn't edit models
      */
@@ -6,6 +6,7 @@
 package com.archimatetool.script;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Map.Entry;
 
 import javax.script.ScriptContext;
@@ -16,9 +17,11 @@ import org.eclipse.osgi.util.NLS;
 import org.eclipse.ui.PlatformUI;
 
 import com.archimatetool.editor.utils.FileUtils;
+import com.archimatetool.script.commands.ChangeSummary;
 import com.archimatetool.script.commands.CommandHandler;
 import com.archimatetool.script.dom.DomExtensionFactory;
 import com.archimatetool.script.dom.IArchiScriptBinding;
+import com.archimatetool.script.preferences.IPreferenceConstants;
 import com.archimatetool.script.views.console.ConsoleOutput;
 
 
@@ -28,9 +31,54 @@ import com.archimatetool.script.views.console.ConsoleOutput;
 @SuppressWarnings("nls")
 public class RunArchiScript {
 	private File file;
+	private boolean undoEnabled = true;
+	private boolean rollbackOnError;
+	private int chunkSize, chunkMemory;
+	private boolean dryRun;
+	private File dryRunSummaryFile;
+	private File journalFile;
 
 	public RunArchiScript(File file) {
 		this.file = file;
+		rollbackOnError = ArchiScriptPlugin.INSTANCE.getPreferenceStore().getBoolean(IPreferenceConstants.PREFS_ROLLBACK_ON_ERROR);
+	}
+	
+	/**
+	 * If false the script's changes are not recorded for Undo/Redo
+	 */
+	public void setUndoEnabled(boolean undoEnabled) {
+	    this.undoEnabled = undoEnabled;
+	}
+	
+	/**
+	 * If true all of the script's changes are undone if the script fails
+	 */
+	public void setRollbackOnError(boolean rollbackOnError) {
+	    this.rollbackOnError = rollbackOnError;
+	}
+	
+	/**
+	 * Put the script's changes on the Undo stack in chunks of the given number of commands or growth in megabytes of memory
+	 */
+	public void setChunking(int chunkSize, int chunkMemory) {
+	    this.chunkSize = chunkSize;
+	    this.chunkMemory = chunkMemory;
+	}
+	
+	/**
+	 * If true the script's changes are summarised and then undone when the script ends
+	 * @param summaryFile if not null the summary is also written to this file as JSON
+	 */
+	public void setDryRun(boolean dryRun, File summaryFile) {
+	    this.dryRun = dryRun;
+	    dryRunSummaryFile = summaryFile;
+	}
+	
+	/**
+	 * If not null every change made by the script is appended to this file in NDJSON format
+	 */
+	public void setJournalFile(File journalFile) {
+	    this.journalFile = journalFile;
 	}
 	
 	public void run() {
@@ -58,6 +106,19 @@ public class RunArchiScript {
 
         // Initialise CommandHandler
         CommandHandler.init(FileUtils.getFileNameWithoutExtension(file));
+        CommandHandler.setUndoEnabled(undoEnabled);
+        CommandHandler.setRollbackOnError(rollbackOnError);
+        CommandHandler.setChunking(chunkSize, chunkMemory);
+        CommandHandler.setDryRun(dryRun);
+        
+        if(journalFile != null) {
+            try {
+                CommandHandler.setJournal(journalFile);
+            }
+            catch(IOException ex) {
+                System.err.println("Could not open change journal: " + ex.toString());
+            }
+        }
 
         // Initialise RefreshUIHandler
         RefreshUIHandler.init();
@@ -72,6 +133,11 @@ public class RunArchiScript {
             error(ex);
         }
         finally {
+            // Undo a dry run's changes and report them
+            if(dryRun) {
+                endDryRun();
+            }
+            
             // End writing to the Console
             ConsoleOutput.end();
             
@@ -114,6 +180,24 @@ public class RunArchiScript {
         }
     }
 
+	private void endDryRun() {
+	    ChangeSummary summary = CommandHandler.endDryRun();
+	    if(summary == null) {
+	        return;
+	    }
+	    
+	    System.out.println(summary);
+	    
+	    if(dryRunSummaryFile != null) {
+	        try {
+	            summary.writeJson(dryRunSummaryFile);
+	        }
+	        catch(IOException ex) {
+	            System.err.println("Could not write dry run summary: " + ex.toString());
+	        }
+	    }
+	}
+	
 	private void error(Throwable ex) {
 	    // The init.js function exit() works by throwing an exception with message "__EXIT__"
 	    if(ex instanceof ScriptException && ex.getMessage().contains("__EXIT__")) {
@@ -129,6 +213,11 @@ public class RunArchiScript {
 	        for(int i = 0; i < max && i < elements.length; i++) {
                 System.err.println("\tat " + elements[i]);
             }
+	        
+	        // Undo the script's changes
+	        if(CommandHandler.isRollbackOnError() && CommandHandler.rollbackAll()) {
+	            System.err.println("Changes made by the script have been rolled back");
+	        }
 	    }
 	}
 }
@@ -0,0 +1,77 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.commands;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimateRelationship;
+import com.archimatetool.model.IFolder;
+
+/**
+ * Adds many concepts to their folders in one command.
+ * Concepts are added to each folder with one addAll() so that each folder sends one notification.
+ * Relationships should have their source and target set but not be connected. They are connected when the command is performed.
+ */
+public class AddConceptsCommand extends ScriptCommand {
+
+    private Map<IFolder, List<IArchimateConcept>> folders = new LinkedHashMap<>();
+    private List<IArchimateRelationship> relationships = new ArrayList<>();
+
+    public AddConceptsCommand(IArchimateModel model) {
+        super("add", model); //$NON-NLS-1$
+    }
+
+    /**
+     * Add a concept to be added to parent folder
+     */
+    public void add(IFolder parent, IArchimateConcept concept) {
+        folders.computeIfAbsent(parent, f -> new ArrayList<>()).add(concept);
+
+        if(concept instanceof IArchimateRelationship) {
+            relationships.add((IArchimateRelationship)concept);
+        }
+    }
+
+    @Override
+    public boolean canExecute() {
+        return !folders.isEmpty();
+    }
+
+    @Override
+    public void perform() {
+        for(IArchimateRelationship relationship : relationships) {
+            relationship.reconnect();
+        }
+
+        for(Entry<IFolder, List<IArchimateConcept>> e : folders.entrySet()) {
+            e.getKey().getElements().addAll(e.getValue());
+        }
+    }
+
+    @Override
+    public void undo() {
+        for(Entry<IFolder, List<IArchimateConcept>> e : folders.entrySet()) {
+            e.getKey().getElements().removeAll(new HashSet<>(e.getValue()));
+        }
+
+        for(IArchimateRelationship relationship : relationships) {
+            relationship.disconnect();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        folders = null;
+        relationships = null;
+    }
+}
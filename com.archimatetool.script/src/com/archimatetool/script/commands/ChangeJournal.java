@@ -0,0 +1,204 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.commands;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EStructuralFeature;
+
+/**
+ * Journal of the changes made by a script, appended to a file in NDJSON format (one JSON object per line).
+ *
+ * Each line holds the time, the type of command, the event ("set", "add" or "remove"), the id of the changed object,
+ * the feature and the old and new values. Objects with an id are written as their id.
+ *
+ * Lines are buffered and written to the file at most once a second so that memory use stays constant.
+ */
+@SuppressWarnings("nls")
+public class ChangeJournal extends ModelChangeRecorder {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Flush the buffer to file at this interval
+    private static final long FLUSH_INTERVAL = 1_000_000_000L; // 1 second
+
+    private Writer writer;
+    private long lastFlushTime;
+
+    // The type of the command being performed, or null if changes are not being journalled
+    private String commandType;
+
+    public ChangeJournal(File file) throws IOException {
+        if(file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        writer = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8.newEncoder(), BUFFER_SIZE), BUFFER_SIZE);
+        lastFlushTime = System.nanoTime();
+    }
+
+    /**
+     * Changes from now on are made by cmd
+     */
+    void begin(ScriptCommand cmd) {
+        commandType = getCommandType(cmd);
+    }
+
+    /**
+     * Changes from now on are made by a rollback
+     */
+    void beginRollback() {
+        commandType = "rollback";
+    }
+
+    /**
+     * Stop journalling changes until the next call to begin()
+     */
+    void end() {
+        commandType = null;
+
+        // Flush if it's time
+        if(System.nanoTime() - lastFlushTime > FLUSH_INTERVAL) {
+            flush();
+        }
+    }
+
+    @Override
+    void modelChanged(Notification msg) {
+        if(commandType == null || writer == null) {
+            return;
+        }
+
+        switch(msg.getEventType()) {
+            case Notification.ADD:
+                writeValues("add", msg, Collections.singleton(msg.getNewValue()));
+                break;
+
+            case Notification.ADD_MANY:
+                writeValues("add", msg, (Collection<?>)msg.getNewValue());
+                break;
+
+            case Notification.REMOVE:
+                writeValues("remove", msg, Collections.singleton(msg.getOldValue()));
+                break;
+
+            case Notification.REMOVE_MANY:
+                writeValues("remove", msg, (Collection<?>)msg.getOldValue());
+                break;
+
+            default:
+                writeEntry("set", getNearestId(msg.getNotifier()), getFeatureName(msg), msg.getOldValue(), msg.getNewValue());
+                break;
+        }
+    }
+
+    /**
+     * An added or removed value is written as the new or old value of the feature of the object that it was added to or removed from
+     */
+    private void writeValues(String event, Notification msg, Collection<?> values) {
+        String id = getNearestId(msg.getNotifier());
+        String feature = getFeatureName(msg);
+
+        for(Object value : values) {
+            if("add".equals(event)) {
+                writeEntry(event, id, feature, null, value);
+            }
+            else {
+                writeEntry(event, id, feature, value, null);
+            }
+        }
+    }
+
+    private void writeEntry(String event, String id, String feature, Object oldValue, Object newValue) {
+        StringBuilder sb = new StringBuilder(128);
+
+        sb.append("{\"time\":").append(toJsonString(Instant.now().toString()));
+        sb.append(",\"command\":").append(toJsonString(commandType));
+        sb.append(",\"event\":").append(toJsonString(event));
+        sb.append(",\"id\":").append(toJsonString(id));
+        sb.append(",\"feature\":").append(toJsonString(feature));
+        sb.append(",\"old\":").append(toJsonValue(oldValue));
+        sb.append(",\"new\":").append(toJsonValue(newValue));
+        sb.append("}\n");
+
+        try {
+            writer.write(sb.toString());
+        }
+        catch(IOException ex) {
+            System.err.println("Could not write to change journal: " + ex.toString());
+            close();
+        }
+    }
+
+    private String getFeatureName(Notification msg) {
+        Object feature = msg.getFeature();
+        return feature instanceof EStructuralFeature ? ((EStructuralFeature)feature).getName() : null;
+    }
+
+    private String toJsonValue(Object value) {
+        if(value == null) {
+            return "null";
+        }
+
+        if(value instanceof Boolean || value instanceof Number) {
+            return value.toString();
+        }
+
+        String id = getId(value);
+        return toJsonString(id != null ? id : value.toString());
+    }
+
+    /**
+     * Write buffered entries to file
+     */
+    void flush() {
+        if(writer == null) {
+            return;
+        }
+
+        try {
+            writer.flush();
+        }
+        catch(IOException ex) {
+            System.err.println("Could not write to change journal: " + ex.toString());
+            close();
+        }
+
+        lastFlushTime = System.nanoTime();
+    }
+
+    /**
+     * Stop listening to changes and close the file
+     */
+    void close() {
+        dispose();
+
+        if(writer == null) {
+            return;
+        }
+
+        try {
+            writer.close();
+        }
+        catch(IOException ex) {
+            ex.printStackTrace();
+        }
+
+        writer = null;
+    }
+}
@@ -0,0 +1,168 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.commands;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.eclipse.emf.common.notify.Notification;
+
+/**
+ * Summary of the changes made by a script, used in dry-run mode.
+ *
+ * Counts the commands executed per type and collects the ids of the objects that were created, changed and deleted.
+ */
+@SuppressWarnings("nls")
+public class ChangeSummary extends ModelChangeRecorder {
+
+    private Map<String, Integer> commandCounts = new LinkedHashMap<>();
+
+    private Set<String> createdIds = new LinkedHashSet<>();
+    private Set<String> changedIds = new LinkedHashSet<>();
+    private Set<String> deletedIds = new LinkedHashSet<>();
+
+    /**
+     * Count a command
+     */
+    void commandExecuted(ScriptCommand cmd) {
+        commandCounts.merge(getCommandType(cmd), 1, Integer::sum);
+    }
+
+    @Override
+    void modelChanged(Notification msg) {
+        switch(msg.getEventType()) {
+            case Notification.ADD:
+                addIds(createdIds, Collections.singleton(msg.getNewValue()), msg);
+                break;
+
+            case Notification.ADD_MANY:
+                addIds(createdIds, (Collection<?>)msg.getNewValue(), msg);
+                break;
+
+            case Notification.REMOVE:
+                addIds(deletedIds, Collections.singleton(msg.getOldValue()), msg);
+                break;
+
+            case Notification.REMOVE_MANY:
+                addIds(deletedIds, (Collection<?>)msg.getOldValue(), msg);
+                break;
+
+            default:
+                addChangedId(msg.getNotifier());
+                break;
+        }
+    }
+
+    /**
+     * Add the ids of objects that were added or removed. If an object doesn't have an id (a property, bounds, bendpoint)
+     * then the object that it was added to or removed from has changed
+     */
+    private void addIds(Set<String> ids, Collection<?> values, Notification msg) {
+        for(Object value : values) {
+            String id = getId(value);
+            if(id != null) {
+                ids.add(id);
+            }
+            else {
+                addChangedId(msg.getNotifier());
+            }
+        }
+    }
+
+    private void addChangedId(Object notifier) {
+        String id = getNearestId(notifier);
+        if(id != null) {
+            changedIds.add(id);
+        }
+    }
+
+    /**
+     * @return the number of commands executed per type of command
+     */
+    public Map<String, Integer> getCommandCounts() {
+        return commandCounts;
+    }
+
+    public Set<String> getCreatedIds() {
+        return createdIds;
+    }
+
+    public Set<String> getChangedIds() {
+        return changedIds;
+    }
+
+    public Set<String> getDeletedIds() {
+        return deletedIds;
+    }
+
+    /**
+     * Write the summary to file as JSON
+     */
+    public void writeJson(File file) throws IOException {
+        if(file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+
+        try(Writer writer = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+            writer.write("{\n  \"commands\": {");
+
+            boolean first = true;
+            for(Entry<String, Integer> e : commandCounts.entrySet()) {
+                writer.write(first ? "\n    " : ",\n    ");
+                writer.write(toJsonString(e.getKey()) + ": " + e.getValue());
+                first = false;
+            }
+
+            writer.write("\n  },\n");
+            writeIds(writer, "created", createdIds);
+            writer.write(",\n");
+            writeIds(writer, "changed", changedIds);
+            writer.write(",\n");
+            writeIds(writer, "deleted", deletedIds);
+            writer.write("\n}\n");
+        }
+    }
+
+    private void writeIds(Writer writer, String name, Set<String> ids) throws IOException {
+        writer.write("  " + toJsonString(name) + ": [");
+
+        boolean first = true;
+        for(String id : ids) {
+            writer.write(first ? "" : ", ");
+            writer.write(toJsonString(id));
+            first = false;
+        }
+
+        writer.write("]");
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append("Dry run - no changes were kept\n");
+
+        for(Entry<String, Integer> e : commandCounts.entrySet()) {
+            sb.append("  ").append(e.getKey()).append(": ").append(e.getValue()).append('\n');
+        }
+
+        sb.append("Created: ").append(createdIds.size()).append('\n');
+        sb.append("Changed: ").append(changedIds.size()).append('\n');
+        sb.append("Deleted: ").append(deletedIds.size());
+
+        return sb.toString();
+    }
+}
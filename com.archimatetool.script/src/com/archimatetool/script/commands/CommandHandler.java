@@ -5,17 +5,31 @@
  */
 package com.archimatetool.script.commands;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
+import org.eclipse.gef.commands.Command;
 import org.eclipse.gef.commands.CommandStack;
 import org.eclipse.gef.commands.CompoundCommand;
 import org.eclipse.osgi.util.NLS;
+import org.eclipse.ui.PlatformUI;
 
+import com.archimatetool.editor.model.IEditorModelManager;
 import com.archimatetool.editor.model.commands.NonNotifyingCompoundCommand;
 import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.script.ArchiScriptException;
+import com.archimatetool.script.ArchiScriptPlugin;
 import com.archimatetool.script.RefreshUIHandler;
+import com.archimatetool.script.preferences.IPreferenceConstants;
 
 /**
  * CommandHandler
@@ -26,14 +40,385 @@ public class CommandHandler {
     
     private static Map<CommandStack, CompoundCommand> compoundcommands;
     
+    // CommandStacks of models that were changed while Undo was disabled
+    private static Set<CommandStack> nonUndoableStacks;
+    
+    // If false, commands are performed directly and are not recorded for Undo/Redo
+    private static boolean undoEnabled = true;
+    
+    // Models that have been sent an ECORE_EVENTS_START notification and are waiting for the ECORE_EVENTS_END notification
+    private static Set<IArchimateModel> batchedModels;
+    
+    // If true, listeners such as the Models Tree are told to ignore notifications until the batch is flushed
+    private static boolean batchNotifications;
+    
+    // Number of commands after which a batch of notifications is flushed. If 0 the batch is flushed when the UI is refreshed or the script ends
+    private static int notificationBatchSize;
+    
+    private static int notificationBatchCount;
+    
+    // Commands performed since the first active savepoint, in the order they were performed
+    private static List<ScriptCommand> history;
+    
+    // Active savepoint ids, oldest first, and the position in the history that each can be rolled back to
+    private static LinkedHashMap<Integer, Integer> savepoints;
+    
+    // Id of the next savepoint. Ids are not reused so an old id can't refer to a newer savepoint
+    private static int nextSavepointId;
+    
+    // If true, all commands are recorded in the history so that the whole script can be rolled back if it fails
+    private static boolean rollbackOnError;
+    
+    // If more than 0, the commands are put on the CommandStack in a new Undo step after this many commands
+    private static int chunkSize;
+    
+    // If more than 0, the commands are put on the CommandStack in a new Undo step after used heap memory has grown by about this many megabytes.
+    // This is approximate because used heap memory also depends on garbage collection and on objects that are not commands
+    private static int chunkMemory;
+    
+    private static int chunkCommandCount;
+    private static long chunkStartMemory;
+    private static int chunkNumber;
+    
+    // How often to check memory use, in commands, because it is relatively expensive
+    private static final int CHUNK_MEMORY_CHECK_INTERVAL = 256;
+    
+    // If not null the script is run as a dry run. All changes are undone when the script ends and this holds a summary of them
+    private static ChangeSummary dryRunSummary;
+    
+    // If not null every change made by the script is written to this journal
+    private static ChangeJournal journal;
+    
+    // The last recorded command that a following SetCommand can be coalesced into
+    private static SetCommand lastSetCommand;
+    
     // The name of the script to display in Undo/Redo command
     private static String name;
     
+    // Run when the script ends to dispose of resources kept for the script, such as indexes
+    private static List<Runnable> finaliseHandlers;
+    
     public static void init(String scriptName) {
+        // A previous script was not finalised
+        runFinaliseHandlers();
+        
         compoundcommands = new HashMap<CommandStack, CompoundCommand>();
+        nonUndoableStacks = new HashSet<CommandStack>();
+        undoEnabled = true;
         name = NLS.bind(Messages.CommandHandler_1, scriptName);
+        
+        batchedModels = new HashSet<IArchimateModel>();
+        batchNotifications = PlatformUI.isWorkbenchRunning() &&
+                ArchiScriptPlugin.INSTANCE.getPreferenceStore().getBoolean(IPreferenceConstants.PREFS_BATCH_NOTIFICATIONS_WHEN_RUNNING_SCRIPT);
+        notificationBatchSize = ArchiScriptPlugin.INSTANCE.getPreferenceStore().getInt(IPreferenceConstants.PREFS_NOTIFICATION_BATCH_SIZE);
+        notificationBatchCount = 0;
+        
+        history = new ArrayList<ScriptCommand>();
+        savepoints = new LinkedHashMap<Integer, Integer>();
+        nextSavepointId = 0;
+        rollbackOnError = false;
+        
+        chunkSize = 0;
+        chunkMemory = 0;
+        chunkCommandCount = 0;
+        chunkNumber = 1;
+        
+        lastSetCommand = null;
+        dryRunSummary = null;
+        journal = null;
+        
+        finaliseHandlers = new ArrayList<Runnable>();
+    }
+    
+    /**
+     * Run handler when the script ends
+     * @return false if no script is running, in which case handler is not added
+     */
+    public static boolean addFinaliseHandler(Runnable handler) {
+        if(finaliseHandlers == null) {
+            return false;
+        }
+        
+        finaliseHandlers.add(handler);
+        return true;
+    }
+    
+    private static void runFinaliseHandlers() {
+        if(finaliseHandlers != null) {
+            List<Runnable> handlers = finaliseHandlers;
+            finaliseHandlers = null;
+            for(Runnable handler : handlers) {
+                handler.run();
+            }
+        }
+    }
+    
+    /**
+     * Set whether commands are recorded so that they can be undone.
+     * If false, commands are performed directly and not kept in memory. Models changed in this way
+     * are marked as dirty once when the script ends and cannot be undone past that point.
+     */
+    public static void setUndoEnabled(boolean enabled) {
+        undoEnabled = enabled;
+        lastSetCommand = null; // Don't coalesce across a change of Undo mode
+    }
+    
+    public static boolean isUndoEnabled() {
+        return undoEnabled;
+    }
+    
+    /**
+     * Set whether model notifications are batched.
+     * If true, listeners that support it (such as the Models Tree) ignore individual notifications and refresh once when the batch is flushed.
+     * @param enabled
+     * @param batchSize the number of commands after which the batch is flushed, or 0 to flush only when the UI is refreshed or the script ends
+     */
+    public static void setNotificationBatching(boolean enabled, int batchSize) {
+        if(!enabled) {
+            flushNotifications();
+        }
+        batchNotifications = enabled;
+        notificationBatchSize = batchSize;
+    }
+    
+    /**
+     * Send the ECORE_EVENTS_END notification for each model in the current batch so that the UI catches up.
+     * The next command will start a new batch.
+     */
+    public static void flushNotifications() {
+        if(batchedModels == null || batchedModels.isEmpty()) {
+            return;
+        }
+        
+        for(IArchimateModel model : batchedModels) {
+            IEditorModelManager.INSTANCE.firePropertyChange(model, IEditorModelManager.PROPERTY_ECORE_EVENTS_END, false, true);
+        }
+        
+        batchedModels.clear();
+        notificationBatchCount = 0;
     }
 
+    /**
+     * Set whether all changes made by the script are undone if the script fails.
+     * If true, every command is kept in the history until the script ends.
+     */
+    public static void setRollbackOnError(boolean rollback) {
+        rollbackOnError = rollback;
+    }
+    
+    public static boolean isRollbackOnError() {
+        return rollbackOnError;
+    }
+    
+    /**
+     * Set whether the script is run as a dry run.
+     * If true, the script's changes are recorded and summarised and then all undone when the script ends.
+     */
+    public static void setDryRun(boolean dryRun) {
+        if(dryRun && dryRunSummary == null) {
+            dryRunSummary = new ChangeSummary();
+        }
+        else if(!dryRun && dryRunSummary != null) {
+            dryRunSummary.dispose();
+            dryRunSummary = null;
+        }
+    }
+    
+    public static boolean isDryRun() {
+        return dryRunSummary != null;
+    }
+    
+    /**
+     * End a dry run by undoing all of the script's changes.
+     * @return the summary of the changes, or null if this is not a dry run
+     */
+    public static ChangeSummary endDryRun() {
+        if(dryRunSummary == null) {
+            return null;
+        }
+        
+        ChangeSummary summary = dryRunSummary;
+        summary.dispose();
+        dryRunSummary = null;
+        
+        flushNotifications();
+        
+        if(history != null) {
+            undoHistory(0);
+            savepoints.clear();
+            nonUndoableStacks.clear();
+        }
+        
+        return summary;
+    }
+    
+    /**
+     * Write every change made by the script to a journal file in NDJSON format.
+     * The file is appended to if it already exists.
+     * @param file the journal file, or null to stop writing to a journal
+     */
+    public static void setJournal(File file) throws IOException {
+        if(journal != null) {
+            journal.close();
+            journal = null;
+        }
+        
+        if(file != null) {
+            journal = new ChangeJournal(file);
+        }
+    }
+    
+    /**
+     * Mark the current position so that any later changes can be rolled back
+     * @return the savepoint's id, to be passed to rollback(int) or release(int)
+     */
+    public static int savepoint() {
+        checkRunning();
+        int id = nextSavepointId++;
+        savepoints.put(id, history.size());
+        lastSetCommand = null; // Don't coalesce across the savepoint
+        return id;
+    }
+    
+    /**
+     * @return true if the savepoint with the given id has not been rolled back or released
+     */
+    public static boolean hasSavepoint(int id) {
+        return savepoints != null && savepoints.containsKey(id);
+    }
+    
+    /**
+     * Undo all changes made since the most recent savepoint and remove that savepoint
+     */
+    public static void rollback() {
+        checkRunning();
+        
+        if(savepoints.isEmpty()) {
+            throw new ArchiScriptException(Messages.CommandHandler_4);
+        }
+        
+        int id = -1;
+        for(int key : savepoints.keySet()) {
+            id = key;
+        }
+        
+        rollback(id);
+    }
+    
+    /**
+     * Undo all changes made since the given savepoint and remove it and any later savepoints
+     * @param id the savepoint's id as returned by savepoint()
+     */
+    public static void rollback(int id) {
+        checkSavepoint(id);
+        
+        undoHistory(savepoints.get(id));
+        release(id);
+    }
+    
+    /**
+     * Keep all changes made since the given savepoint and remove it and any later savepoints
+     * @param id the savepoint's id as returned by savepoint()
+     */
+    public static void release(int id) {
+        checkSavepoint(id);
+        
+        // Remove this savepoint and the ones after it
+        boolean found = false;
+        for(Iterator<Integer> iter = savepoints.keySet().iterator(); iter.hasNext();) {
+            found |= iter.next() == id;
+            if(found) {
+                iter.remove();
+            }
+        }
+        
+        // No longer need the history
+        if(savepoints.isEmpty() && !rollbackOnError && dryRunSummary == null) {
+            history.clear();
+        }
+    }
+    
+    /**
+     * Undo every change made by the script.
+     * This is only possible if rollbackOnError was set before the changes were made.
+     * @return true if changes were undone
+     */
+    public static boolean rollbackAll() {
+        if(history == null || history.isEmpty()) {
+            return false;
+        }
+        
+        flushNotifications();
+        
+        undoHistory(0);
+        savepoints.clear();
+        
+        // Nothing is left to mark as changed
+        nonUndoableStacks.clear();
+        
+        return true;
+    }
+    
+    /**
+     * Undo commands in the history in reverse order back to position and remove them from the Undo/Redo compound commands
+     */
+    private static void undoHistory(int position) {
+        lastSetCommand = null;
+        
+        if(journal != null) {
+            journal.beginRollback();
+        }
+        
+        for(int i = history.size() - 1; i >= position; i--) {
+            ScriptCommand cmd = history.remove(i);
+            cmd.undo();
+            
+            CommandStack stack = (CommandStack)cmd.getModel().getAdapter(CommandStack.class);
+            CompoundCommand compound = stack != null ? compoundcommands.get(stack) : null;
+            if(compound != null) {
+                compound.getCommands().remove(cmd);
+            }
+        }
+        
+        if(journal != null) {
+            journal.end();
+        }
+        
+        RefreshUIHandler.refresh();
+    }
+    
+    private static void checkRunning() {
+        if(history == null) {
+            throw new ArchiScriptException(Messages.CommandHandler_3);
+        }
+    }
+    
+    private static void checkSavepoint(int id) {
+        checkRunning();
+        
+        if(!savepoints.containsKey(id)) {
+            throw new ArchiScriptException(NLS.bind(Messages.CommandHandler_5, id));
+        }
+    }
+    
+    /**
+     * Set whether the script's commands are put on each model's CommandStack in chunks while the script runs
+     * rather than in one Undo step at the end. This bounds the memory used by long running scripts.
+     * Each chunk is a separate Undo step labelled with the script name and chunk number.
+     * Chunks are not committed while a savepoint is active or if rollbackOnError is set.
+     * @param commands commit a chunk after this many commands, or 0 for no limit
+     * @param megabytes commit a chunk after used heap memory has grown by this many megabytes, or 0 for no limit.
+     *        This is approximate as used heap memory goes down after garbage collection and goes up with garbage that is not command data,
+     *        so chunks are not committed after an exact number of commands. Use commands for a predictable chunk size
+     */
+    public static void setChunking(int commands, int megabytes) {
+        chunkSize = Math.max(0, commands);
+        chunkMemory = Math.max(0, megabytes);
+        chunkCommandCount = 0;
+        chunkStartMemory = getUsedMemory();
+        lastSetCommand = null; // Don't coalesce into a command of the previous chunk
+    }
+    
     public static void executeCommand(ScriptCommand cmd) {
         if(!cmd.canExecute()) {
             return;
@@ -42,10 +427,45 @@ public class CommandHandler {
         IArchimateModel model = cmd.getModel();
         CommandStack stack = (CommandStack)model.getAdapter(CommandStack.class);
         
-        if(stack != null) {
+        if(dryRunSummary != null) {
+            dryRunSummary.addModel(model);
+            dryRunSummary.commandExecuted(cmd);
+        }
+        
+        if(journal != null) {
+            journal.addModel(model);
+            journal.begin(cmd);
+        }
+        
+        // Start a batch of notifications for this model
+        if(batchNotifications && batchedModels.add(model)) {
+            IEditorModelManager.INSTANCE.firePropertyChange(model, IEditorModelManager.PROPERTY_ECORE_EVENTS_START, false, true);
+        }
+        
+        // Coalesce consecutive writes to the same feature of the same object into the last recorded command
+        if(lastSetCommand != null && lastSetCommand.canCoalesce(cmd)) {
+            cmd.perform();
+            lastSetCommand.coalesce((SetCommand)cmd);
+            
+            if(journal != null) {
+                journal.end();
+            }
+            
+            RefreshUIHandler.refresh();
+            return;
+        }
+        
+        // Undo is disabled so don't record the command
+        if(stack != null && !undoEnabled) {
+            if(nonUndoableStacks != null) {
+                nonUndoableStacks.add(stack);
+            }
+        }
+        else if(stack != null) {
             CompoundCommand compound = compoundcommands.get(stack);
             if(compound == null) {
-                compound = new NonNotifyingCompoundCommand(name) {
+                String label = isChunking() ? NLS.bind(Messages.CommandHandler_6, name, chunkNumber) : name;
+                compound = new NonNotifyingCompoundCommand(label) {
                     @Override
                     public boolean canExecute() {
                         return true; // Always return true so that all commands do their dummy execute() command
@@ -58,22 +478,121 @@ public class CommandHandler {
         
         cmd.perform();
         
+        if(journal != null) {
+            journal.end();
+        }
+        
+        boolean recorded = stack != null && undoEnabled;
+        
+        // Keep the command so that it can be rolled back
+        if(history != null && (rollbackOnError || dryRunSummary != null || !savepoints.isEmpty())) {
+            history.add(cmd);
+            recorded = true;
+        }
+        
+        // Only a recorded command can have later commands coalesced into it
+        lastSetCommand = recorded && cmd instanceof SetCommand ? (SetCommand)cmd : null;
+        
+        // Flush the batch of notifications if we have reached the batch size
+        if(batchNotifications && notificationBatchSize > 0 && ++notificationBatchCount >= notificationBatchSize) {
+            flushNotifications();
+        }
+        
+        // Commit a chunk if we have reached the limit
+        if(isChunking() && isChunkFull()) {
+            commitChunk();
+        }
+        
         // Take this opportunity to update the UI if set
         RefreshUIHandler.refresh();
     }
 
+    private static boolean isChunking() {
+        return (chunkSize > 0 || chunkMemory > 0) && compoundcommands != null && undoEnabled && !rollbackOnError && dryRunSummary == null && savepoints.isEmpty();
+    }
+    
+    private static boolean isChunkFull() {
+        chunkCommandCount++;
+        
+        if(chunkSize > 0 && chunkCommandCount >= chunkSize) {
+            return true;
+        }
+        
+        if(chunkMemory > 0 && chunkCommandCount % CHUNK_MEMORY_CHECK_INTERVAL == 0) {
+            return getUsedMemory() - chunkStartMemory >= chunkMemory * 1024L * 1024L;
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Put the commands so far on the CommandStacks as an Undo step and start a new chunk
+     */
+    private static void commitChunk() {
+        flushNotifications();
+        executeCompoundCommands();
+        compoundcommands.clear();
+        lastSetCommand = null;
+        
+        chunkNumber++;
+        chunkCommandCount = 0;
+        chunkStartMemory = getUsedMemory();
+    }
+    
+    private static long getUsedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+    
+    /**
+     * This simply calls empty execute() methods since perform() has already been called
+     * It puts the commmands on the CommandStack for each model so that Undo/Redo is enabled
+     */
+    private static void executeCompoundCommands() {
+        for(Entry<CommandStack, CompoundCommand> e : compoundcommands.entrySet()) {
+            // All of the commands may have been rolled back
+            if(!e.getValue().isEmpty()) {
+                e.getKey().execute(e.getValue());
+            }
+        }
+    }
+
     public static void finalise() {
         if(compoundcommands == null) {
             return;
         }
         
-        // This simply calls empty execute() methods since perform() has already been called
-        // It puts the commmands on the CommandStack for each model so that Undo/Redo is enabled
-        for(Entry<CommandStack, CompoundCommand> e : compoundcommands.entrySet()) {
-            e.getKey().execute(e.getValue());
+        // Undo a dry run's changes if that has not been done already
+        endDryRun();
+        
+        // End any batch of notifications first so that the UI is refreshed once
+        flushNotifications();
+        
+        executeCompoundCommands();
+        
+        // Models changed while Undo was disabled are marked as dirty with a command that can't be undone
+        for(CommandStack stack : nonUndoableStacks) {
+            stack.execute(new Command(NLS.bind(Messages.CommandHandler_2, name)) {
+                @Override
+                public boolean canUndo() {
+                    return false;
+                }
+            });
         }
         
-        // Set this to null so that it can be garbage collected, otherwise we will have a memory leak
+        if(journal != null) {
+            journal.close();
+        }
+        
+        runFinaliseHandlers();
+        
+        // Set these to null so that they can be garbage collected, otherwise we will have a memory leak
         compoundcommands = null;
+        nonUndoableStacks = null;
+        batchedModels = null;
+        history = null;
+        savepoints = null;
+        lastSetCommand = null;
+        journal = null;
     }
 }
@@ -0,0 +1,67 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.commands;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.archimatetool.model.IArchimateModel;
+
+/**
+ * Executes a list of ScriptCommands as one command.
+ * Commands are performed in the order they were added and undone in reverse order.
+ */
+public class CompoundScriptCommand extends ScriptCommand {
+
+    private List<ScriptCommand> commands = new ArrayList<>();
+
+    public CompoundScriptCommand(String name, IArchimateModel model) {
+        super(name, model);
+    }
+
+    /**
+     * Add a command. Commands that can't be executed are ignored
+     */
+    public void add(ScriptCommand cmd) {
+        if(cmd != null && cmd.canExecute()) {
+            commands.add(cmd);
+        }
+    }
+
+    public boolean isEmpty() {
+        return commands.isEmpty();
+    }
+
+    @Override
+    public boolean canExecute() {
+        return !commands.isEmpty();
+    }
+
+    @Override
+    public void perform() {
+        for(ScriptCommand cmd : commands) {
+            cmd.perform();
+        }
+    }
+
+    @Override
+    public void undo() {
+        for(int i = commands.size() - 1; i >= 0; i--) {
+            commands.get(i).undo();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        super.dispose();
+
+        for(ScriptCommand cmd : commands) {
+            cmd.dispose();
+        }
+
+        commands = null;
+    }
+}
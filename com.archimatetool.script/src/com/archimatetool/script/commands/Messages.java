@@ -9,6 +9,16 @@ public class Messages extends NLS {
     public static String CommandHandler_0;
 
     public static String CommandHandler_1;
+
+    public static String CommandHandler_2;
+
+    public static String CommandHandler_3;
+
+    public static String CommandHandler_4;
+
+    public static String CommandHandler_5;
+
+    public static String CommandHandler_6;
     static {
         // initialize resource bundle
         NLS.initializeMessages(BUNDLE_NAME, Messages.class);
@@ -0,0 +1,111 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.commands;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IIdentifier;
+
+/**
+ * Listens to the changes made to models by a script
+ */
+@SuppressWarnings("nls")
+abstract class ModelChangeRecorder {
+
+    private List<IArchimateModel> models = new ArrayList<>();
+
+    private EContentAdapter adapter = new EContentAdapter() {
+        @Override
+        public void notifyChanged(Notification msg) {
+            super.notifyChanged(msg);
+
+            if(!msg.isTouch()) {
+                modelChanged(msg);
+            }
+        }
+    };
+
+    /**
+     * Start listening to changes in model
+     */
+    void addModel(IArchimateModel model) {
+        if(!models.contains(model)) {
+            models.add(model);
+            model.eAdapters().add(adapter);
+        }
+    }
+
+    /**
+     * Stop listening to changes in all models
+     */
+    void dispose() {
+        for(IArchimateModel model : models) {
+            model.eAdapters().remove(adapter);
+        }
+        models.clear();
+    }
+
+    /**
+     * A model has changed
+     */
+    abstract void modelChanged(Notification msg);
+
+    /**
+     * @return the id of object, or null if it doesn't have one
+     */
+    static String getId(Object object) {
+        return object instanceof IIdentifier ? ((IIdentifier)object).getId() : null;
+    }
+
+    /**
+     * @return the id of the nearest object with an id that contains or is object, or null
+     */
+    static String getNearestId(Object object) {
+        while(object instanceof EObject && !(object instanceof IIdentifier)) {
+            object = ((EObject)object).eContainer();
+        }
+        return getId(object);
+    }
+
+    /**
+     * @return the type of command for reporting. SetCommand types include the name of the feature that is set
+     */
+    static String getCommandType(ScriptCommand cmd) {
+        return cmd instanceof SetCommand ? "set " + ((SetCommand)cmd).getFeatureName() : cmd.getLabel();
+    }
+
+    /**
+     * @return s as a quoted and escaped JSON string
+     */
+    static String toJsonString(String s) {
+        if(s == null) {
+            return "null";
+        }
+
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+
+        for(int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if(c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            }
+            else if(c < 0x20) {
+                sb.append(String.format("\\u%04x", (int)c));
+            }
+            else {
+                sb.append(c);
+            }
+        }
+
+        return sb.append('"').toString();
+    }
+}
@@ -21,6 +21,13 @@ public class ScriptCommandWrapper extends ScriptCommand {
         this.cmd = cmd;
     }
     
+    /**
+     * @return the wrapped Command
+     */
+    protected Command getCommand() {
+        return cmd;
+    }
+    
     @Override
     public void perform() {
         cmd.execute();
@@ -7,6 +7,7 @@ package com.archimatetool.script.commands;
 
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.EStructuralFeature;
+import org.eclipse.gef.commands.Command;
 
 import com.archimatetool.editor.model.commands.EObjectFeatureCommand;
 import com.archimatetool.editor.model.commands.FeatureCommand;
@@ -15,16 +16,80 @@ import com.archimatetool.model.IFeatures;
 /**
  * Set Command is a ScriptCommandWrapper wrapping two types of Command: EObjectFeatureCommand and FeatureCommand
  * 
+ * Consecutive Set Commands on the same object and feature can be coalesced into one command
+ * that undoes to the first old value and redoes to the last new value.
+ * 
  * @author Phillip Beauvoir
  */
 @SuppressWarnings("nls")
 public class SetCommand extends ScriptCommandWrapper {
+    
+    private EObject target;
+    
+    // The EStructuralFeature or the name of the IFeature
+    private Object feature;
+    
+    // The last command coalesced into this one
+    private Command lastCommand;
 
     public SetCommand(EObject eObject, EStructuralFeature feature, Object newValue) {
         super(new EObjectFeatureCommand("Script", eObject, feature, newValue), eObject);
+        target = eObject;
+        this.feature = feature;
     }
     
     public SetCommand(IFeatures featuresObject, String name, Object value, Object defaultValue) {
         super(new FeatureCommand("Script", featuresObject, name, value, defaultValue), featuresObject);
+        target = featuresObject;
+        feature = name;
+    }
+    
+    /**
+     * @return the name of the feature that is set
+     */
+    public String getFeatureName() {
+        return feature instanceof EStructuralFeature ? ((EStructuralFeature)feature).getName() : (String)feature;
+    }
+    
+    /**
+     * @return true if other sets the same feature on the same object as this command
+     */
+    public boolean canCoalesce(ScriptCommand other) {
+        return other instanceof SetCommand && other != this && target == ((SetCommand)other).target
+                && feature.equals(((SetCommand)other).feature);
+    }
+    
+    /**
+     * Coalesce other into this command. Other should have been performed already.
+     * Undo will restore this command's old value and redo will set other's new value.
+     */
+    public void coalesce(SetCommand other) {
+        if(lastCommand != null) {
+            lastCommand.dispose();
+        }
+        
+        lastCommand = other.getCommand();
+    }
+    
+    @Override
+    public void perform() {
+        if(lastCommand != null) {
+            lastCommand.execute();
+        }
+        else {
+            super.perform();
+        }
+    }
+    
+    @Override
+    public void dispose() {
+        super.dispose();
+        
+        if(lastCommand != null) {
+            lastCommand.dispose();
+            lastCommand = null;
+        }
+        
+        target = null;
     }
-}
\ No newline at end of file
+}
@@ -5,18 +5,36 @@
  */
 package com.archimatetool.script.dom.jarchi;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import com.archimatetool.script.dom.IArchiScriptBinding;
 
 /**
  * File services
  * 
  * @author jbsarrodie
  */
-public class FS {
+public class FS implements IArchiScriptBinding {
+    
+    private static final int BUFFER_SIZE = 64 * 1024;
+    
+    // Writers opened with open() and not yet closed
+    private Set<FSWriter> openWriters = new LinkedHashSet<>();
+    
     /**
      * Write text to file (using UTF-8)
      * @param path
@@ -65,6 +83,106 @@ public class FS {
         }
     }
     
+    /**
+     * Open a text file for writing (using UTF-8)
+     * @param path
+     * @return a writer with write(text) and close() methods
+     * @throws IOException
+     */
+    public FSWriter open(String path) throws IOException {
+        return open(path, null);
+    }
+    
+    /**
+     * Open a text file for writing. Text is buffered until the writer is closed or the buffer is full.
+     * Writers that are not closed are closed when the script ends.
+     * @param path
+     * @param options can be "append" (add to the end of the file, default false) and "encoding" (default UTF-8)
+     * @return a writer with write(text) and close() methods
+     * @throws IOException
+     */
+    public FSWriter open(String path, Map<?, ?> options) throws IOException {
+        boolean append = options != null && Boolean.TRUE.equals(options.get("append")); //$NON-NLS-1$
+        Charset charset = getCharset(options != null ? options.get("encoding") : null); //$NON-NLS-1$
+        
+        File file = new File(path);
+        createParentFolder(file);
+        
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, append), charset), BUFFER_SIZE);
+        
+        return new FSWriter(writer, openWriters);
+    }
+    
+    /**
+     * Read a text file (using UTF-8) one line at a time
+     * @param path
+     * @param callback called with each line
+     * @throws IOException
+     */
+    public void readLines(String path, Consumer<String> callback) throws IOException {
+        readLines(path, callback, "UTF-8"); //$NON-NLS-1$
+    }
+    
+    /**
+     * Read a text file one line at a time. Only the current line is held in memory so this can be used for large files.
+     * @param path
+     * @param callback called with each line
+     * @param encoding
+     * @throws IOException
+     */
+    public void readLines(String path, Consumer<String> callback, String encoding) throws IOException {
+        try(BufferedReader reader = new BufferedReader(new InputStreamReader(Files.newInputStream(new File(path).toPath()), getCharset(encoding)), BUFFER_SIZE)) {
+            String line;
+            while((line = reader.readLine()) != null) {
+                callback.accept(line);
+            }
+        }
+    }
+    
+    /**
+     * Read a text file (using UTF-8)
+     * @param path
+     * @return the text
+     * @throws IOException
+     */
+    public String readText(String path) throws IOException {
+        return readText(path, "UTF-8"); //$NON-NLS-1$
+    }
+    
+    /**
+     * Read a text file. The bytes are read in one go and decoded in one pass rather than copied through a stream buffer.
+     * @param path
+     * @param encoding
+     * @return the text
+     * @throws IOException
+     */
+    public String readText(String path, String encoding) throws IOException {
+        return new String(Files.readAllBytes(new File(path).toPath()), getCharset(encoding));
+    }
+    
+    /**
+     * @return the Charset for encoding, or UTF-8 if encoding is not set
+     */
+    private Charset getCharset(Object encoding) {
+        return encoding instanceof String ? Charset.forName((String)encoding) : Charset.forName("UTF-8"); //$NON-NLS-1$
+    }
+    
+    /**
+     * Close any writers that the script did not close
+     */
+    @Override
+    public void dispose() {
+        for(FSWriter writer : new ArrayList<>(openWriters)) {
+            try {
+                writer.close();
+            }
+            catch(IOException ex) {
+                ex.printStackTrace();
+            }
+        }
+        openWriters.clear();
+    }
+    
     /**
      * Ensure parent folder exists by creating it
      */
@@ -0,0 +1,59 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.jarchi;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+
+/**
+ * Buffered text file writer returned by FS.open()
+ */
+public class FSWriter implements Closeable {
+
+    private Writer writer;
+    private Set<FSWriter> openWriters;
+
+    /**
+     * @param writer the writer to write to
+     * @param openWriters this is added to the open writers until it is closed
+     */
+    FSWriter(Writer writer, Set<FSWriter> openWriters) {
+        this.writer = writer;
+        this.openWriters = openWriters;
+        openWriters.add(this);
+    }
+
+    /**
+     * Write text to the file
+     * @param text
+     * @throws IOException
+     */
+    public void write(String text) throws IOException {
+        if(writer == null) {
+            throw new IOException("File is closed"); //$NON-NLS-1$
+        }
+        writer.write(text);
+    }
+
+    /**
+     * Write any buffered text and close the file
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if(writer != null) {
+            try {
+                writer.close();
+            }
+            finally {
+                writer = null;
+                openWriters.remove(this);
+            }
+        }
+    }
+}
@@ -110,7 +110,9 @@ public class ArchimateElementProxy extends ArchimateConceptProxy {
     
     /**
      * Merge this and the other Archimate element into this one element.
-     * Diagram instances of the other Archimate element will be replaced with this element
+     * Diagram instances of the other Archimate element will be replaced with this element.
+     * The other element is left in the model. To merge many elements at once, and optionally delete them,
+     * use EObjectProxyCollection.mergeInto()
      * @param others
      * @return this
      */
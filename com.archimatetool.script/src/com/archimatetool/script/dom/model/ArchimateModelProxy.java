@@ -7,7 +7,13 @@ package com.archimatetool.script.dom.model;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.eclipse.emf.common.util.TreeIterator;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.ui.PlatformUI;
@@ -15,8 +21,13 @@ import org.eclipse.ui.PlatformUI;
 import com.archimatetool.editor.model.IArchiveManager;
 import com.archimatetool.editor.model.IEditorModelManager;
 import com.archimatetool.editor.model.ModelChecker;
+import com.archimatetool.model.FolderType;
+import com.archimatetool.model.IArchimateConcept;
 import com.archimatetool.model.IArchimateModel;
 import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.IArchimateRelationship;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IDiagramModelArchimateComponent;
 import com.archimatetool.model.IFolder;
 import com.archimatetool.model.ModelVersion;
 import com.archimatetool.script.ArchiScriptException;
@@ -70,6 +81,11 @@ public class ArchimateModelProxy extends EObjectProxy {
     }
     
     public ArchimateModelProxy save(String path) throws IOException {
+        // Don't change the model's file in a dry run
+        if(isDryRunSave()) {
+            return this;
+        }
+        
         if(getEObject() != null) {
             File file = new File(path);
             
@@ -87,6 +103,10 @@ public class ArchimateModelProxy extends EObjectProxy {
     }
     
     public ArchimateModelProxy save() throws IOException {
+        if(isDryRunSave()) {
+            return this;
+        }
+        
         if(getEObject() != null && getEObject().getFile() != null) {
             getEObject().setVersion(ModelVersion.VERSION);
             checkModel();
@@ -97,6 +117,19 @@ public class ArchimateModelProxy extends EObjectProxy {
         return this;
     }
     
+    /**
+     * A dry run's changes are undone when the script ends so they must not be saved
+     * @return true if this is a dry run, in which case the save is skipped
+     */
+    private boolean isDryRunSave() {
+        if(CommandHandler.isDryRun()) {
+            System.out.println(NLS.bind(Messages.ArchimateModelProxy_6, getName()));
+            return true;
+        }
+        
+        return false;
+    }
+    
     private void checkModel() throws IOException {
         // Model Checker
         ModelChecker checker = new ModelChecker(getEObject());
@@ -145,6 +178,136 @@ public class ArchimateModelProxy extends EObjectProxy {
         return ModelFactory.createRelationship(getEObject(), type, name, source.getEObject(), target.getEObject(), parentFolder.getEObject());
     }
     
+    /**
+     * Create and add many ArchiMate elements in one step
+     * @param specs a list of maps with "type" and optional "name", "documentation", "properties" and "folder"
+     * @return the new elements
+     */
+    public EObjectProxyCollection createElements(List<?> specs) {
+        return ModelFactory.createElements(getEObject(), specs);
+    }
+    
+    /**
+     * Create and add many ArchiMate relationships in one step
+     * @param specs a list of maps with "type", "source", "target" and optional "name", "documentation", "properties" and "folder"
+     * @return the new relationships
+     */
+    public EObjectProxyCollection createRelationships(List<?> specs) {
+        return ModelFactory.createRelationships(getEObject(), specs);
+    }
+    
+    /**
+     * Check all relationships in the model against the ArchiMate relationship rules
+     * @return the relationships that are not valid
+     */
+    public EObjectProxyCollection validateRelationships() {
+        EObjectProxyCollection invalid = new EObjectProxyCollection();
+        RelationshipMatrix matrix = RelationshipMatrix.getInstance();
+        
+        for(Iterator<EObject> iter = getEObject().getFolder(FolderType.RELATIONS).eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            if(eObject instanceof IArchimateRelationship) {
+                IArchimateRelationship relationship = (IArchimateRelationship)eObject;
+                if(!matrix.isValidRelationship(relationship.getSource(), relationship.getTarget(), relationship.eClass())) {
+                    invalid.add(new ArchimateRelationshipProxy(relationship));
+                }
+            }
+        }
+        
+        return invalid;
+    }
+    
+    /**
+     * @return the elements that are not shown in any view
+     */
+    public EObjectProxyCollection orphans() {
+        return getUnreferencedConcepts(false);
+    }
+    
+    /**
+     * @return the relationships that are not shown in any view
+     */
+    public EObjectProxyCollection unreferencedRelationships() {
+        return getUnreferencedConcepts(true);
+    }
+    
+    /**
+     * @return the user folders that contain no folders, concepts or views
+     */
+    public EObjectProxyCollection emptyFolders() {
+        EObjectProxyCollection list = new EObjectProxyCollection();
+        
+        for(TreeIterator<EObject> iter = getEObject().eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            if(eObject instanceof IFolder) {
+                IFolder folder = (IFolder)eObject;
+                if(folder.getType() == FolderType.USER && folder.getFolders().isEmpty() && folder.getElements().isEmpty()) {
+                    list.add(new FolderProxy(folder));
+                }
+            }
+            // Don't look inside concepts and views
+            else {
+                iter.prune();
+            }
+        }
+        
+        return list;
+    }
+    
+    /**
+     * @param relationships if true get relationships, else elements
+     * @return the concepts that are not referenced in any view, found with one pass of the views and one pass of the concepts
+     */
+    private EObjectProxyCollection getUnreferencedConcepts(boolean relationships) {
+        // All concepts referenced in views
+        Set<IArchimateConcept> referenced = new HashSet<>();
+        
+        for(IDiagramModel dm : getEObject().getDiagramModels()) {
+            for(Iterator<EObject> iter = dm.eAllContents(); iter.hasNext();) {
+                EObject eObject = iter.next();
+                if(eObject instanceof IDiagramModelArchimateComponent) {
+                    referenced.add(((IDiagramModelArchimateComponent)eObject).getArchimateConcept());
+                }
+            }
+        }
+        
+        EObjectProxyCollection list = new EObjectProxyCollection();
+        
+        for(IFolder folder : getEObject().getFolders()) {
+            if(folder.getType() == FolderType.DIAGRAMS) {
+                continue;
+            }
+            
+            for(Iterator<EObject> iter = folder.eAllContents(); iter.hasNext();) {
+                EObject eObject = iter.next();
+                if(eObject instanceof IArchimateConcept && (eObject instanceof IArchimateRelationship) == relationships
+                        && !referenced.contains(eObject)) {
+                    list.add(EObjectProxy.get(eObject));
+                }
+            }
+        }
+        
+        return list;
+    }
+    
+    /**
+     * Find groups of elements of the same type with the same name, ignoring case, punctuation and extra spaces
+     * @return groups of two or more candidate duplicates
+     */
+    public List<EObjectProxyCollection> findDuplicates() {
+        return findDuplicates(null);
+    }
+    
+    /**
+     * Find groups of concepts of the same type with the same or similar names
+     * @param options can be "selector" (the concepts to check, default "element"), "fuzzy" (true to match similar names, default false),
+     *        "threshold" (similarity of names from 0 to 1 when fuzzy, default 0.8) and "ngram" (length of the character n-grams compared when fuzzy, default 3)
+     * @return groups of two or more candidate duplicates
+     */
+    public List<EObjectProxyCollection> findDuplicates(Map<?, ?> options) {
+        return new DuplicateFinder(options).findDuplicates(getEObject());
+    }
+    
     /**
      * Create and add an ArchiMate View and put in default folder
      */
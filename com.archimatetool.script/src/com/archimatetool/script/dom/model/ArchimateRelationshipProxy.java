@@ -6,26 +6,22 @@
 package com.archimatetool.script.dom.model;
 
 import java.util.Collection;
-import java.util.List;
 
 import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.eclipse.osgi.util.NLS;
 
-import com.archimatetool.editor.model.DiagramModelUtils;
 import com.archimatetool.model.IAccessRelationship;
 import com.archimatetool.model.IArchimateConcept;
 import com.archimatetool.model.IArchimatePackage;
 import com.archimatetool.model.IArchimateRelationship;
 import com.archimatetool.model.IAssociationRelationship;
 import com.archimatetool.model.IConnectable;
-import com.archimatetool.model.IDiagramModel;
 import com.archimatetool.model.IDiagramModelArchimateComponent;
 import com.archimatetool.model.IDiagramModelArchimateConnection;
 import com.archimatetool.model.IFeature;
 import com.archimatetool.model.IFolder;
 import com.archimatetool.model.IInfluenceRelationship;
 import com.archimatetool.model.IProperty;
-import com.archimatetool.model.util.ArchimateModelUtils;
 import com.archimatetool.script.ArchiScriptException;
 import com.archimatetool.script.commands.CommandHandler;
 import com.archimatetool.script.commands.DisconnectRelationshipCommand;
@@ -67,7 +63,7 @@ public class ArchimateRelationshipProxy extends ArchimateConceptProxy implements
         // Ensure all components share the same model
         ModelUtil.checkComponentsInSameModel(getEObject(), source.getEObject());
         
-        if(!ArchimateModelUtils.isValidRelationship(source.getEObject(), getEObject().getTarget(), getEObject().eClass())) {
+        if(!RelationshipMatrix.getInstance().isValidRelationship(source.getEObject(), getEObject().getTarget(), getEObject().eClass())) {
             throw new ArchiScriptException(NLS.bind(Messages.ArchimateRelationshipProxy_0,
                     new Object[] { getEObject().eClass().getName(), source, getTarget() }));
         }
@@ -88,34 +84,7 @@ public class ArchimateRelationshipProxy extends ArchimateConceptProxy implements
         });
         
         if(updateViews) {
-            // Get each instance of the connection in a view
-            for(IDiagramModel diagramModel : getArchimateModel().getDiagramModels()) {
-                for(IDiagramModelArchimateConnection matchingConnection : DiagramModelUtils.findDiagramModelConnectionsForRelation(diagramModel, getEObject())) {
-                    
-                    // Get the first instance of the new source in this view and connect to that
-                    List<IDiagramModelArchimateComponent> list = DiagramModelUtils.findDiagramModelComponentsForArchimateConcept(diagramModel, source.getEObject());
-                    if(!list.isEmpty()) {
-                        IDiagramModelArchimateComponent matchingComponent = list.get(0);
-                        IConnectable oldSource = matchingConnection.getSource();
-                        
-                        CommandHandler.executeCommand(new ScriptCommand("source", getArchimateModel()) { //$NON-NLS-1$
-                            @Override
-                            public void perform() {
-                                matchingConnection.connect(matchingComponent, matchingConnection.getTarget());
-                            }
-                            
-                            @Override
-                            public void undo() {
-                                matchingConnection.connect(oldSource, matchingConnection.getTarget());
-                            }
-                        });
-                    }
-                    // Not found, so delete the matching connection
-                    else {
-                        new DiagramModelConnectionProxy(matchingConnection).delete();
-                    }
-                }
-            }
+            updateViews(source.getEObject(), true);
         }
         
         return this;
@@ -129,7 +98,7 @@ public class ArchimateRelationshipProxy extends ArchimateConceptProxy implements
         // Ensure all components share the same model
         ModelUtil.checkComponentsInSameModel(getEObject(), target.getEObject());
         
-        if(!ArchimateModelUtils.isValidRelationship(getEObject().getSource(), target.getEObject(), getEObject().eClass())) {
+        if(!RelationshipMatrix.getInstance().isValidRelationship(getEObject().getSource(), target.getEObject(), getEObject().eClass())) {
             throw new ArchiScriptException(NLS.bind(Messages.ArchimateRelationshipProxy_1,
                     new Object[] { getEObject().eClass().getName(), getSource(), target }));
         }
@@ -150,39 +119,128 @@ public class ArchimateRelationshipProxy extends ArchimateConceptProxy implements
         });
         
         if(updateViews) {
-            for(IDiagramModel diagramModel : getArchimateModel().getDiagramModels()) {
-                // Get each instance of the connection in a view
-                for(IDiagramModelArchimateConnection matchingConnection : DiagramModelUtils.findDiagramModelConnectionsForRelation(diagramModel, getEObject())) {
-                    
-                    // Get the first instance of the new target in this view and connect to that
-                    List<IDiagramModelArchimateComponent> list = DiagramModelUtils.findDiagramModelComponentsForArchimateConcept(diagramModel, target.getEObject());
-                    if(!list.isEmpty()) {
-                        IDiagramModelArchimateComponent matchingComponent = list.get(0);
-                        IConnectable oldTarget = matchingConnection.getTarget();
-                        
-                        CommandHandler.executeCommand(new ScriptCommand("target", getArchimateModel()) { //$NON-NLS-1$
-                            @Override
-                            public void perform() {
-                                matchingConnection.connect(matchingConnection.getSource(), matchingComponent);
-                            }
-                            
-                            @Override
-                            public void undo() {
-                                matchingConnection.connect(matchingConnection.getSource(), oldTarget);
-                            }
-                        });
-                    }
-                    // Not found, so delete the matching connection
-                    else {
-                        new DiagramModelConnectionProxy(matchingConnection).delete();
-                    }
-                }
+            updateViews(target.getEObject(), false);
+        }
+        
+        return this;
+    }
+    
+    /**
+     * Set the source and target of this relationship in one step and update the connections in all Views
+     * @param source the new source, or null to keep the source
+     * @param target the new target, or null to keep the target
+     * @return this
+     */
+    public ArchimateRelationshipProxy reconnect(ArchimateConceptProxy source, ArchimateConceptProxy target) {
+        checkReconnect(source, target);
+        
+        IArchimateConcept newSource = source != null ? source.getEObject() : getEObject().getSource();
+        IArchimateConcept newTarget = target != null ? target.getEObject() : getEObject().getTarget();
+        
+        if(newSource == getEObject().getSource() && newTarget == getEObject().getTarget()) {
+            return this;
+        }
+        
+        CommandHandler.executeCommand(new ScriptCommand("reconnect", getArchimateModel()) { //$NON-NLS-1$
+            IArchimateConcept oldSource = getEObject().getSource();
+            IArchimateConcept oldTarget = getEObject().getTarget();
+            
+            @Override
+            public void perform() {
+                getEObject().connect(newSource, newTarget);
+            }
+            
+            @Override
+            public void undo() {
+                getEObject().connect(oldSource, oldTarget);
             }
+        });
+        
+        if(source != null) {
+            updateViews(newSource, true);
+        }
+        
+        if(target != null) {
+            updateViews(newTarget, false);
         }
         
         return this;
     }
     
+    /**
+     * Check that the relationship will be valid if it is reconnected to source and target
+     * @param source the new source, or null to keep the source
+     * @param target the new target, or null to keep the target
+     */
+    void checkReconnect(ArchimateConceptProxy source, ArchimateConceptProxy target) {
+        if(source != null) {
+            ModelUtil.checkComponentsInSameModel(getEObject(), source.getEObject());
+        }
+        
+        if(target != null) {
+            ModelUtil.checkComponentsInSameModel(getEObject(), target.getEObject());
+        }
+        
+        IArchimateConcept newSource = source != null ? source.getEObject() : getEObject().getSource();
+        IArchimateConcept newTarget = target != null ? target.getEObject() : getEObject().getTarget();
+        
+        if(!RelationshipMatrix.getInstance().isValidRelationship(newSource, newTarget, getEObject().eClass())) {
+            if(source != null) {
+                throw new ArchiScriptException(NLS.bind(Messages.ArchimateRelationshipProxy_0,
+                        new Object[] { getEObject().eClass().getName(), source, EObjectProxy.get(newTarget) }));
+            }
+            throw new ArchiScriptException(NLS.bind(Messages.ArchimateRelationshipProxy_1,
+                    new Object[] { getEObject().eClass().getName(), getSource(), target }));
+        }
+    }
+    
+    /**
+     * Connect each instance of this relationship in the Views to the first instance of concept in the same View,
+     * or delete the instance if concept is not in the View.
+     * The instances are found with the model's DiagramComponentIndex so only the Views that show this relationship are visited.
+     * @param concept the new source or target
+     * @param isSource true if concept is the new source
+     */
+    private void updateViews(IArchimateConcept concept, boolean isSource) {
+        if(getArchimateModel() == null) {
+            return;
+        }
+        
+        DiagramComponentIndex index = DiagramComponentIndex.get(getArchimateModel());
+        
+        // Get each instance of the connection in a view
+        for(IDiagramModelArchimateConnection matchingConnection : index.getConnections(getEObject())) {
+            // Get the first instance of the new source or target in this view and connect to that
+            IDiagramModelArchimateComponent matchingComponent = index.getFirstComponent(matchingConnection.getDiagramModel(), concept);
+            
+            if(matchingComponent != null) {
+                IConnectable oldSource = matchingConnection.getSource();
+                IConnectable oldTarget = matchingConnection.getTarget();
+                
+                CommandHandler.executeCommand(new ScriptCommand(isSource ? "source" : "target", getArchimateModel()) { //$NON-NLS-1$ //$NON-NLS-2$
+                    @Override
+                    public void perform() {
+                        if(isSource) {
+                            matchingConnection.connect(matchingComponent, matchingConnection.getTarget());
+                        }
+                        else {
+                            matchingConnection.connect(matchingConnection.getSource(), matchingComponent);
+                        }
+                    }
+                    
+                    @Override
+                    public void undo() {
+                        matchingConnection.connect(oldSource, oldTarget);
+                    }
+                });
+            }
+            // Not found, so delete the matching connection
+            else {
+                new DiagramModelConnectionProxy(matchingConnection).delete();
+            }
+        }
+    }
+    
     /**
      * Set the type of this relationship with a new relationship of class type, preserving all connecting relationships and diagram components
      * @param type the Archimate type to replace with
@@ -0,0 +1,242 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Streams a collection of objects to a CSV or JSON file one row at a time.
+ *
+ * Only one row is ever held in memory so that very large collections can be exported.
+ *
+ * A column can be:
+ *
+ * an attribute name such as "id", "name", "type" or "documentation"
+ * a property with "prop:" prefix such as "prop:Owner"
+ * a relationship end with "source." or "target." prefix such as "source.name" or "target.prop:Owner"
+ */
+@SuppressWarnings("nls")
+class CollectionExporter implements IModelConstants {
+
+    static final List<String> DEFAULT_COLUMNS = Arrays.asList(ID, TYPE, NAME);
+
+    private static final String PROPERTY_PREFIX = "prop:";
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private List<EObjectProxy> objects;
+    private List<String> columns;
+
+    CollectionExporter(List<EObjectProxy> objects, List<?> columns) {
+        this.objects = objects;
+
+        if(columns == null || columns.isEmpty()) {
+            this.columns = DEFAULT_COLUMNS;
+        }
+        else {
+            this.columns = new ArrayList<>();
+            for(Object column : columns) {
+                this.columns.add(String.valueOf(column));
+            }
+        }
+    }
+
+    /**
+     * Write the objects as CSV with a header row of column names
+     */
+    void exportCsv(String path) throws IOException {
+        try(Writer writer = createWriter(path)) {
+            writeCsvRow(writer, columns);
+
+            List<String> row = new ArrayList<>(columns.size());
+
+            for(EObjectProxy object : objects) {
+                row.clear();
+                for(String column : columns) {
+                    row.add(toText(getValue(object, column)));
+                }
+                writeCsvRow(writer, row);
+            }
+        }
+    }
+
+    /**
+     * Write the objects as a JSON array of objects keyed by column name
+     */
+    void exportJson(String path) throws IOException {
+        try(Writer writer = createWriter(path)) {
+            writer.write("[");
+
+            boolean firstRow = true;
+
+            for(EObjectProxy object : objects) {
+                writer.write(firstRow ? "\n{" : ",\n{");
+                firstRow = false;
+
+                boolean firstColumn = true;
+                for(String column : columns) {
+                    if(!firstColumn) {
+                        writer.write(',');
+                    }
+                    firstColumn = false;
+
+                    writeJsonString(writer, column);
+                    writer.write(':');
+                    writeJsonValue(writer, getValue(object, column));
+                }
+
+                writer.write('}');
+            }
+
+            writer.write("\n]\n");
+        }
+    }
+
+    /**
+     * @return the value of column for object, or null
+     */
+    static Object getValue(EObjectProxy object, String column) {
+        if(object == null || column == null) {
+            return null;
+        }
+
+        // Property
+        if(column.startsWith(PROPERTY_PREFIX)) {
+            return object.prop(column.substring(PROPERTY_PREFIX.length()));
+        }
+
+        // Relationship end
+        int index = column.indexOf('.');
+        if(index != -1) {
+            String end = column.substring(0, index);
+            if(SOURCE.equals(end) || TARGET.equals(end)) {
+                Object endObject = object.attr(end);
+                return endObject instanceof EObjectProxy ? getValue((EObjectProxy)endObject, column.substring(index + 1)) : null;
+            }
+        }
+
+        // Attribute
+        return object.attr(column);
+    }
+
+    private Writer createWriter(String path) throws IOException {
+        File file = new File(path);
+
+        // Ensure parent folder exists
+        File parent = file.getParentFile();
+        if(parent != null) {
+            parent.mkdirs();
+        }
+
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    private String toText(Object value) {
+        if(value == null) {
+            return "";
+        }
+
+        // A referenced object is written as its id
+        if(value instanceof EObjectProxy) {
+            return ((EObjectProxy)value).getId();
+        }
+
+        return value.toString();
+    }
+
+    private void writeCsvRow(Writer writer, List<String> values) throws IOException {
+        for(int i = 0; i < values.size(); i++) {
+            if(i > 0) {
+                writer.write(',');
+            }
+            writeCsvValue(writer, values.get(i));
+        }
+        writer.write("\r\n");
+    }
+
+    private void writeCsvValue(Writer writer, String value) throws IOException {
+        if(value == null) {
+            return;
+        }
+
+        boolean needsQuotes = value.indexOf(',') != -1 || value.indexOf('"') != -1 || value.indexOf('\n') != -1 || value.indexOf('\r') != -1;
+
+        if(!needsQuotes) {
+            writer.write(value);
+            return;
+        }
+
+        writer.write('"');
+        for(int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if(c == '"') {
+                writer.write('"');
+            }
+            writer.write(c);
+        }
+        writer.write('"');
+    }
+
+    private void writeJsonValue(Writer writer, Object value) throws IOException {
+        if(value == null) {
+            writer.write("null");
+        }
+        else if(value instanceof Boolean || value instanceof Number) {
+            writer.write(value.toString());
+        }
+        else {
+            writeJsonString(writer, toText(value));
+        }
+    }
+
+    private void writeJsonString(Writer writer, String value) throws IOException {
+        if(value == null) {
+            writer.write("null");
+            return;
+        }
+
+        writer.write('"');
+
+        for(int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch(c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if(c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int)c));
+                    }
+                    else {
+                        writer.write(c);
+                    }
+            }
+        }
+
+        writer.write('"');
+    }
+}
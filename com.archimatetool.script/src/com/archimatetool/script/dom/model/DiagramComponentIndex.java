@@ -0,0 +1,248 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+
+import com.archimatetool.editor.model.DiagramModelUtils;
+import com.archimatetool.model.FolderType;
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.IArchimateRelationship;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IDiagramModelArchimateComponent;
+import com.archimatetool.model.IDiagramModelArchimateConnection;
+import com.archimatetool.model.IFolder;
+import com.archimatetool.script.commands.CommandHandler;
+
+/**
+ * Index of the diagram components that reference each concept in a model, used to find the instances of
+ * a concept or relationship in the Views without walking every View.
+ *
+ * The index is built in one pass of the Views when first used. It listens to the Views folder and is updated
+ * when diagram components are added, deleted or set to another concept.
+ * While a script is running indexes are kept from when they are first used until the script ends.
+ * If no script is running a new index that does not listen to the model is created for each use.
+ */
+public class DiagramComponentIndex {
+
+    private static Map<IArchimateModel, DiagramComponentIndex> indexes = new HashMap<>();
+
+    private IFolder diagramsFolder;
+
+    // Concept -> diagram components that reference it
+    private Map<IArchimateConcept, Set<IDiagramModelArchimateComponent>> components = new HashMap<>();
+
+    private EContentAdapter adapter = new EContentAdapter() {
+        @Override
+        public void notifyChanged(Notification msg) {
+            super.notifyChanged(msg);
+
+            if(!msg.isTouch()) {
+                diagramsChanged(msg);
+            }
+        }
+    };
+
+    /**
+     * @return the index for model, creating it if needed
+     */
+    static DiagramComponentIndex get(IArchimateModel model) {
+        DiagramComponentIndex index = indexes.get(model);
+
+        if(index == null) {
+            // No script is running so don't keep the index
+            if(indexes.isEmpty() && !CommandHandler.addFinaliseHandler(DiagramComponentIndex::disposeAll)) {
+                return new DiagramComponentIndex(model, false);
+            }
+
+            index = new DiagramComponentIndex(model, true);
+            indexes.put(model, index);
+        }
+
+        return index;
+    }
+
+    /**
+     * Dispose of all indexes when the script ends
+     */
+    private static void disposeAll() {
+        for(DiagramComponentIndex index : indexes.values()) {
+            index.dispose();
+        }
+        indexes.clear();
+    }
+
+    /**
+     * @param listen if true the index listens to the Views folder and is updated when it changes
+     */
+    private DiagramComponentIndex(IArchimateModel model, boolean listen) {
+        IFolder folder = model.getFolder(FolderType.DIAGRAMS);
+
+        if(folder != null) {
+            add(folder);
+            if(listen) {
+                diagramsFolder = folder;
+                diagramsFolder.eAdapters().add(adapter);
+            }
+        }
+    }
+
+    /**
+     * @return the diagram connections that reference relationship in all Views
+     */
+    List<IDiagramModelArchimateConnection> getConnections(IArchimateRelationship relationship) {
+        List<IDiagramModelArchimateConnection> list = new ArrayList<>();
+
+        Set<IDiagramModelArchimateComponent> set = components.get(relationship);
+        if(set != null) {
+            for(IDiagramModelArchimateComponent dmc : set) {
+                list.add((IDiagramModelArchimateConnection)dmc);
+            }
+        }
+
+        return list;
+    }
+
+    /**
+     * @return the first diagram component in diagramModel that references concept, or null if there is none
+     */
+    IDiagramModelArchimateComponent getFirstComponent(IDiagramModel diagramModel, IArchimateConcept concept) {
+        Set<IDiagramModelArchimateComponent> set = components.get(concept);
+
+        if(set == null) {
+            return null;
+        }
+
+        IDiagramModelArchimateComponent result = null;
+
+        for(IDiagramModelArchimateComponent dmc : set) {
+            if(dmc.getDiagramModel() == diagramModel) {
+                // More than one in this View so walk the View to get the first one in View order
+                if(result != null) {
+                    return DiagramModelUtils.findDiagramModelComponentsForArchimateConcept(diagramModel, concept).get(0);
+                }
+                result = dmc;
+            }
+        }
+
+        return result;
+    }
+
+    private void diagramsChanged(Notification msg) {
+        Object feature = msg.getFeature();
+
+        // Concept set on a diagram component
+        if(feature == IArchimatePackage.Literals.DIAGRAM_MODEL_ARCHIMATE_OBJECT__ARCHIMATE_ELEMENT
+                || feature == IArchimatePackage.Literals.DIAGRAM_MODEL_ARCHIMATE_CONNECTION__ARCHIMATE_RELATIONSHIP) {
+            IDiagramModelArchimateComponent dmc = (IDiagramModelArchimateComponent)msg.getNotifier();
+            remove(dmc, msg.getOldValue());
+            add(dmc, msg.getNewValue());
+        }
+        // Diagram components, Views or folders added or removed
+        else if(feature instanceof EReference && ((EReference)feature).isContainment()) {
+            switch(msg.getEventType()) {
+                case Notification.ADD:
+                case Notification.SET:
+                    remove(msg.getOldValue());
+                    add(msg.getNewValue());
+                    break;
+
+                case Notification.ADD_MANY:
+                    for(Object o : (Collection<?>)msg.getNewValue()) {
+                        add(o);
+                    }
+                    break;
+
+                case Notification.REMOVE:
+                    remove(msg.getOldValue());
+                    break;
+
+                case Notification.REMOVE_MANY:
+                    for(Object o : (Collection<?>)msg.getOldValue()) {
+                        remove(o);
+                    }
+                    break;
+
+                default:
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Add the diagram components in object and its contents
+     */
+    private void add(Object object) {
+        if(object instanceof EObject) {
+            addComponent((EObject)object);
+            for(Iterator<EObject> iter = ((EObject)object).eAllContents(); iter.hasNext();) {
+                addComponent(iter.next());
+            }
+        }
+    }
+
+    private void addComponent(EObject eObject) {
+        if(eObject instanceof IDiagramModelArchimateComponent) {
+            add((IDiagramModelArchimateComponent)eObject, ((IDiagramModelArchimateComponent)eObject).getArchimateConcept());
+        }
+    }
+
+    private void add(IDiagramModelArchimateComponent dmc, Object concept) {
+        if(concept instanceof IArchimateConcept) {
+            components.computeIfAbsent((IArchimateConcept)concept, c -> new LinkedHashSet<>()).add(dmc);
+        }
+    }
+
+    /**
+     * Remove the diagram components in object and its contents
+     */
+    private void remove(Object object) {
+        if(object instanceof EObject) {
+            removeComponent((EObject)object);
+            for(Iterator<EObject> iter = ((EObject)object).eAllContents(); iter.hasNext();) {
+                removeComponent(iter.next());
+            }
+        }
+    }
+
+    private void removeComponent(EObject eObject) {
+        if(eObject instanceof IDiagramModelArchimateComponent) {
+            remove((IDiagramModelArchimateComponent)eObject, ((IDiagramModelArchimateComponent)eObject).getArchimateConcept());
+        }
+    }
+
+    private void remove(IDiagramModelArchimateComponent dmc, Object concept) {
+        Set<IDiagramModelArchimateComponent> set = components.get(concept);
+        if(set != null) {
+            set.remove(dmc);
+            if(set.isEmpty()) {
+                components.remove(concept);
+            }
+        }
+    }
+
+    private void dispose() {
+        if(diagramsFolder != null) {
+            diagramsFolder.eAdapters().remove(adapter);
+        }
+        components = null;
+        diagramsFolder = null;
+    }
+}
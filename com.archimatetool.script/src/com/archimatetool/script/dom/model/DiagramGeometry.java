@@ -0,0 +1,198 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.osgi.util.NLS;
+
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.IBounds;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IDiagramModelBendpoint;
+import com.archimatetool.model.IDiagramModelConnection;
+import com.archimatetool.model.IDiagramModelObject;
+import com.archimatetool.script.ArchiScriptException;
+import com.archimatetool.script.commands.CommandHandler;
+import com.archimatetool.script.commands.CompoundScriptCommand;
+import com.archimatetool.script.commands.ScriptCommand;
+import com.archimatetool.script.commands.SetCommand;
+
+/**
+ * Reads and writes the bounds and bendpoints of all objects and connections in a View as flat int arrays.
+ *
+ * Bounds are 4 ints per object (x, y, width, height relative to its parent) for the objects in a depth first walk of the View.
+ * Bendpoints are, for each connection in a depth first walk of the View, the number of bendpoints followed by
+ * 4 ints per bendpoint (startX, startY, endX, endY).
+ *
+ * Changes are set in one command.
+ */
+class DiagramGeometry {
+
+    private IDiagramModel dm;
+
+    DiagramGeometry(IDiagramModel dm) {
+        this.dm = dm;
+    }
+
+    /**
+     * @return all diagram objects in the View in a depth first order
+     */
+    List<IDiagramModelObject> getObjects() {
+        List<IDiagramModelObject> list = new ArrayList<>();
+
+        for(Iterator<EObject> iter = dm.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            if(eObject instanceof IDiagramModelObject) {
+                list.add((IDiagramModelObject)eObject);
+            }
+        }
+
+        return list;
+    }
+
+    /**
+     * @return all connections in the View in a depth first order
+     */
+    List<IDiagramModelConnection> getConnections() {
+        List<IDiagramModelConnection> list = new ArrayList<>();
+
+        for(Iterator<EObject> iter = dm.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            if(eObject instanceof IDiagramModelConnection) {
+                list.add((IDiagramModelConnection)eObject);
+            }
+        }
+
+        return list;
+    }
+
+    int[] getBounds() {
+        List<IDiagramModelObject> objects = getObjects();
+        int[] values = new int[objects.size() * 4];
+
+        int i = 0;
+        for(IDiagramModelObject dmo : objects) {
+            IBounds bounds = dmo.getBounds();
+            values[i++] = bounds.getX();
+            values[i++] = bounds.getY();
+            values[i++] = bounds.getWidth();
+            values[i++] = bounds.getHeight();
+        }
+
+        return values;
+    }
+
+    void setBounds(int[] values) {
+        List<IDiagramModelObject> objects = getObjects();
+
+        if(values.length != objects.size() * 4) {
+            throw new ArchiScriptException(NLS.bind(Messages.DiagramGeometry_0, values.length, objects.size() * 4));
+        }
+
+        CompoundScriptCommand cmd = new CompoundScriptCommand("bounds", dm.getArchimateModel()); //$NON-NLS-1$
+
+        int i = 0;
+        for(IDiagramModelObject dmo : objects) {
+            IBounds bounds = dmo.getBounds();
+            int x = values[i++], y = values[i++], width = values[i++], height = values[i++];
+
+            if(bounds.getX() != x || bounds.getY() != y || bounds.getWidth() != width || bounds.getHeight() != height) {
+                cmd.add(new SetCommand(dmo, IArchimatePackage.Literals.DIAGRAM_MODEL_OBJECT__BOUNDS,
+                        IArchimateFactory.eINSTANCE.createBounds(x, y, width, height)));
+            }
+        }
+
+        CommandHandler.executeCommand(cmd);
+    }
+
+    int[] getBendpoints() {
+        List<IDiagramModelConnection> connections = getConnections();
+
+        int size = connections.size();
+        for(IDiagramModelConnection connection : connections) {
+            size += connection.getBendpoints().size() * 4;
+        }
+
+        int[] values = new int[size];
+
+        int i = 0;
+        for(IDiagramModelConnection connection : connections) {
+            values[i++] = connection.getBendpoints().size();
+            for(IDiagramModelBendpoint bp : connection.getBendpoints()) {
+                values[i++] = bp.getStartX();
+                values[i++] = bp.getStartY();
+                values[i++] = bp.getEndX();
+                values[i++] = bp.getEndY();
+            }
+        }
+
+        return values;
+    }
+
+    void setBendpoints(int[] values) {
+        List<IDiagramModelConnection> connections = getConnections();
+        CompoundScriptCommand cmd = new CompoundScriptCommand("bendpoints", dm.getArchimateModel()); //$NON-NLS-1$
+
+        int i = 0;
+        for(IDiagramModelConnection connection : connections) {
+            if(i >= values.length || values[i] < 0 || i + 1 + values[i] * 4 > values.length) {
+                throw new ArchiScriptException(NLS.bind(Messages.DiagramGeometry_1, i));
+            }
+
+            int count = values[i++];
+            List<IDiagramModelBendpoint> bendpoints = new ArrayList<>(count);
+            boolean changed = count != connection.getBendpoints().size();
+
+            for(int j = 0; j < count; j++) {
+                IDiagramModelBendpoint bp = IArchimateFactory.eINSTANCE.createDiagramModelBendpoint();
+                bp.setStartX(values[i++]);
+                bp.setStartY(values[i++]);
+                bp.setEndX(values[i++]);
+                bp.setEndY(values[i++]);
+                bendpoints.add(bp);
+
+                if(!changed) {
+                    IDiagramModelBendpoint old = connection.getBendpoints().get(j);
+                    changed = old.getStartX() != bp.getStartX() || old.getStartY() != bp.getStartY()
+                            || old.getEndX() != bp.getEndX() || old.getEndY() != bp.getEndY();
+                }
+            }
+
+            if(changed) {
+                cmd.add(createSetBendpointsCommand(connection, bendpoints));
+            }
+        }
+
+        if(i != values.length) {
+            throw new ArchiScriptException(NLS.bind(Messages.DiagramGeometry_1, i));
+        }
+
+        CommandHandler.executeCommand(cmd);
+    }
+
+    private ScriptCommand createSetBendpointsCommand(IDiagramModelConnection connection, List<IDiagramModelBendpoint> bendpoints) {
+        return new ScriptCommand("bendpoints", dm.getArchimateModel()) { //$NON-NLS-1$
+            List<IDiagramModelBendpoint> oldBendpoints = new ArrayList<>(connection.getBendpoints());
+
+            @Override
+            public void perform() {
+                connection.getBendpoints().clear();
+                connection.getBendpoints().addAll(bendpoints);
+            }
+
+            @Override
+            public void undo() {
+                connection.getBendpoints().clear();
+                connection.getBendpoints().addAll(oldBendpoints);
+            }
+        };
+    }
+}
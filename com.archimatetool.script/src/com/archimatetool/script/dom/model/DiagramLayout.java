@@ -0,0 +1,520 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.osgi.util.NLS;
+
+import com.archimatetool.editor.ArchiPlugin;
+import com.archimatetool.editor.preferences.IPreferenceConstants;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.IBounds;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IDiagramModelConnection;
+import com.archimatetool.model.IDiagramModelObject;
+import com.archimatetool.script.ArchiScriptException;
+import com.archimatetool.script.commands.CommandHandler;
+import com.archimatetool.script.commands.CompoundScriptCommand;
+import com.archimatetool.script.commands.SetCommand;
+
+/**
+ * Automatic layout of the top level objects in a View.
+ *
+ * "grid" puts the objects in rows in their current order.
+ * "layered" puts the objects in layers so that connections go in one direction, ordering each layer to reduce crossings.
+ * "tree" puts the objects in a tree with each object centred over the objects it connects to.
+ *
+ * Connections to nested objects count as connections to their top level parent. All new bounds are set in one command.
+ */
+@SuppressWarnings("nls")
+class DiagramLayout {
+
+    static final String GRID = "grid";
+    static final String LAYERED = "layered";
+    static final String TREE = "tree";
+
+    // Number of sweeps to order the layers
+    private static final int ORDERING_SWEEPS = 4;
+
+    private IDiagramModel dm;
+
+    // Top level objects and their sizes
+    private List<IDiagramModelObject> nodes;
+    private int[] widths;
+    private int[] heights;
+
+    // Connections between top level objects without cycles
+    private List<List<Integer>> successors;
+    private List<List<Integer>> predecessors;
+
+    // New positions
+    private int[] xs;
+    private int[] ys;
+
+    private int hgap;
+    private int vgap;
+    private int margin;
+    private int columns;
+    private boolean horizontal;
+
+    /**
+     * @param options can be "hgap" and "vgap" (space between objects, default 40), "margin" (default 20),
+     *        "columns" (number of columns for "grid", default square) and "direction" ("down" (default) or "right" for "layered" and "tree")
+     */
+    DiagramLayout(IDiagramModel dm, Map<?, ?> options) {
+        this.dm = dm;
+
+        hgap = ModelUtil.getIntValueFromMap(options, "hgap", 40);
+        vgap = ModelUtil.getIntValueFromMap(options, "vgap", 40);
+        margin = ModelUtil.getIntValueFromMap(options, "margin", 20);
+        columns = ModelUtil.getIntValueFromMap(options, "columns", 0);
+        horizontal = "right".equals(ModelUtil.getStringValueFromMap(options, "direction", "down"));
+
+        nodes = new ArrayList<>(dm.getChildren());
+        int count = nodes.size();
+
+        widths = new int[count];
+        heights = new int[count];
+        xs = new int[count];
+        ys = new int[count];
+
+        int defaultWidth = ArchiPlugin.INSTANCE.getPreferenceStore().getInt(IPreferenceConstants.DEFAULT_ARCHIMATE_FIGURE_WIDTH);
+        int defaultHeight = ArchiPlugin.INSTANCE.getPreferenceStore().getInt(IPreferenceConstants.DEFAULT_ARCHIMATE_FIGURE_HEIGHT);
+
+        for(int i = 0; i < count; i++) {
+            IBounds bounds = nodes.get(i).getBounds();
+            widths[i] = bounds.getWidth() > 0 ? bounds.getWidth() : defaultWidth;
+            heights[i] = bounds.getHeight() > 0 ? bounds.getHeight() : defaultHeight;
+        }
+    }
+
+    /**
+     * Lay out the objects and set their bounds
+     * @param type one of "grid", "layered" or "tree"
+     */
+    void layout(String type) {
+        if(type == null) {
+            type = LAYERED;
+        }
+
+        switch(type) {
+            case GRID:
+                layoutGrid();
+                break;
+
+            case LAYERED:
+                createGraph();
+                layoutLayered();
+                break;
+
+            case TREE:
+                createGraph();
+                layoutTree();
+                break;
+
+            default:
+                throw new ArchiScriptException(NLS.bind(Messages.DiagramModelProxy_3, type));
+        }
+
+        applyBounds();
+    }
+
+    private void layoutGrid() {
+        int count = nodes.size();
+        int cols = columns > 0 ? columns : (int)Math.ceil(Math.sqrt(count));
+
+        int cellWidth = Arrays.stream(widths).max().orElse(0);
+        int cellHeight = Arrays.stream(heights).max().orElse(0);
+
+        for(int i = 0; i < count; i++) {
+            xs[i] = margin + (i % cols) * (cellWidth + hgap);
+            ys[i] = margin + (i / cols) * (cellHeight + vgap);
+        }
+    }
+
+    private void layoutLayered() {
+        int count = nodes.size();
+
+        // Assign each object to the layer after the longest path to it
+        int[] layerOf = new int[count];
+        int layerCount = 0;
+
+        for(int node : getTopologicalOrder()) {
+            for(int pred : predecessors.get(node)) {
+                layerOf[node] = Math.max(layerOf[node], layerOf[pred] + 1);
+            }
+            layerCount = Math.max(layerCount, layerOf[node] + 1);
+        }
+
+        List<List<Integer>> layers = new ArrayList<>();
+        for(int i = 0; i < layerCount; i++) {
+            layers.add(new ArrayList<>());
+        }
+        for(int node = 0; node < count; node++) {
+            layers.get(layerOf[node]).add(node);
+        }
+
+        orderLayers(layers);
+
+        // Position each layer across the layout and each object along its layer, centred on the longest layer
+        int[] layerLengths = new int[layerCount];
+        int maxLength = 0;
+
+        for(int l = 0; l < layerCount; l++) {
+            for(int node : layers.get(l)) {
+                layerLengths[l] += getAlongSize(node) + getAlongGap();
+            }
+            layerLengths[l] -= getAlongGap();
+            maxLength = Math.max(maxLength, layerLengths[l]);
+        }
+
+        int across = margin;
+
+        for(int l = 0; l < layerCount; l++) {
+            int along = margin + (maxLength - layerLengths[l]) / 2;
+            int layerSize = 0;
+
+            for(int node : layers.get(l)) {
+                setPosition(node, along, across);
+                along += getAlongSize(node) + getAlongGap();
+                layerSize = Math.max(layerSize, getAcrossSize(node));
+            }
+
+            across += layerSize + getAcrossGap();
+        }
+    }
+
+    /**
+     * Order the objects in each layer by the average position of the objects they connect to in the layer before, then after
+     */
+    private void orderLayers(List<List<Integer>> layers) {
+        double[] positions = new double[nodes.size()];
+
+        for(List<Integer> layer : layers) {
+            for(int i = 0; i < layer.size(); i++) {
+                positions[layer.get(i)] = i;
+            }
+        }
+
+        for(int sweep = 0; sweep < ORDERING_SWEEPS; sweep++) {
+            boolean down = sweep % 2 == 0;
+
+            for(int l = 0; l < layers.size(); l++) {
+                List<Integer> layer = layers.get(down ? l : layers.size() - 1 - l);
+                double[] keys = new double[nodes.size()];
+
+                for(int node : layer) {
+                    List<Integer> neighbours = down ? predecessors.get(node) : successors.get(node);
+                    if(neighbours.isEmpty()) {
+                        keys[node] = positions[node];
+                    }
+                    else {
+                        double sum = 0;
+                        for(int neighbour : neighbours) {
+                            sum += positions[neighbour];
+                        }
+                        keys[node] = sum / neighbours.size();
+                    }
+                }
+
+                layer.sort((a, b) -> Double.compare(keys[a], keys[b]));
+
+                for(int i = 0; i < layer.size(); i++) {
+                    positions[layer.get(i)] = i;
+                }
+            }
+        }
+    }
+
+    private void layoutTree() {
+        int count = nodes.size();
+
+        // Spanning forest with each object under the first object that reaches it
+        List<List<Integer>> children = new ArrayList<>();
+        for(int i = 0; i < count; i++) {
+            children.add(new ArrayList<>());
+        }
+
+        int[] depths = new int[count];
+        boolean[] visited = new boolean[count];
+        List<Integer> roots = new ArrayList<>();
+        Deque<Integer> queue = new ArrayDeque<>();
+
+        for(int root = 0; root < count; root++) {
+            if(predecessors.get(root).isEmpty() && !visited[root]) {
+                roots.add(root);
+                visited[root] = true;
+                queue.add(root);
+
+                while(!queue.isEmpty()) {
+                    int node = queue.poll();
+                    for(int succ : successors.get(node)) {
+                        if(!visited[succ]) {
+                            visited[succ] = true;
+                            depths[succ] = depths[node] + 1;
+                            children.get(node).add(succ);
+                            queue.add(succ);
+                        }
+                    }
+                }
+            }
+        }
+
+        // The size of each depth level across the layout
+        int maxDepth = Arrays.stream(depths).max().orElse(0);
+        int[] levelOffsets = new int[maxDepth + 2];
+        int[] levelSizes = new int[maxDepth + 1];
+
+        for(int node = 0; node < count; node++) {
+            levelSizes[depths[node]] = Math.max(levelSizes[depths[node]], getAcrossSize(node));
+        }
+
+        levelOffsets[0] = margin;
+        for(int d = 0; d <= maxDepth; d++) {
+            levelOffsets[d + 1] = levelOffsets[d] + levelSizes[d] + getAcrossGap();
+        }
+
+        // Size of each subtree along the layout
+        int[] extents = new int[count];
+        for(int root : roots) {
+            computeExtent(root, children, extents);
+        }
+
+        int along = margin;
+        for(int root : roots) {
+            placeSubtree(root, along, children, extents, depths, levelOffsets);
+            along += extents[root] + getAlongGap();
+        }
+    }
+
+    /**
+     * Compute the size of the subtrees along the layout, children first
+     */
+    private void computeExtent(int root, List<List<Integer>> children, int[] extents) {
+        for(int node : getPostOrder(root, children)) {
+            int total = 0;
+            for(int child : children.get(node)) {
+                total += extents[child] + getAlongGap();
+            }
+            if(total > 0) {
+                total -= getAlongGap();
+            }
+            extents[node] = Math.max(getAlongSize(node), total);
+        }
+    }
+
+    /**
+     * Place each object centred over its children
+     */
+    private void placeSubtree(int root, int start, List<List<Integer>> children, int[] extents, int[] depths, int[] levelOffsets) {
+        int[] starts = new int[nodes.size()];
+        starts[root] = start;
+
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(root);
+
+        while(!stack.isEmpty()) {
+            int node = stack.pop();
+            setPosition(node, starts[node] + (extents[node] - getAlongSize(node)) / 2, levelOffsets[depths[node]]);
+
+            int total = 0;
+            for(int child : children.get(node)) {
+                total += extents[child] + getAlongGap();
+            }
+            if(total > 0) {
+                total -= getAlongGap();
+            }
+
+            int childStart = starts[node] + (extents[node] - total) / 2;
+            for(int child : children.get(node)) {
+                starts[child] = childStart;
+                childStart += extents[child] + getAlongGap();
+                stack.push(child);
+            }
+        }
+    }
+
+    private List<Integer> getPostOrder(int root, List<List<Integer>> children) {
+        List<Integer> order = new ArrayList<>();
+        Deque<Integer> stack = new ArrayDeque<>();
+        stack.push(root);
+
+        while(!stack.isEmpty()) {
+            int node = stack.pop();
+            order.add(node);
+            for(int child : children.get(node)) {
+                stack.push(child);
+            }
+        }
+
+        // Reversed pre-order with children pushed in order visits each child before its parent
+        List<Integer> postOrder = new ArrayList<>(order.size());
+        for(int i = order.size() - 1; i >= 0; i--) {
+            postOrder.add(order.get(i));
+        }
+
+        return postOrder;
+    }
+
+    /**
+     * Create the graph of connections between top level objects, leaving out connections that would make a cycle
+     */
+    private void createGraph() {
+        int count = nodes.size();
+
+        Map<IDiagramModelObject, Integer> indexes = new IdentityHashMap<>();
+        for(int i = 0; i < count; i++) {
+            indexes.put(nodes.get(i), i);
+        }
+
+        List<List<Integer>> edges = new ArrayList<>();
+        for(int i = 0; i < count; i++) {
+            edges.add(new ArrayList<>());
+        }
+
+        for(Iterator<EObject> iter = dm.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            if(eObject instanceof IDiagramModelConnection) {
+                Integer source = indexes.get(getTopLevelObject(((IDiagramModelConnection)eObject).getSource()));
+                Integer target = indexes.get(getTopLevelObject(((IDiagramModelConnection)eObject).getTarget()));
+                if(source != null && target != null && source.intValue() != target.intValue() && !edges.get(source).contains(target)) {
+                    edges.get(source).add(target);
+                }
+            }
+        }
+
+        successors = new ArrayList<>();
+        predecessors = new ArrayList<>();
+        for(int i = 0; i < count; i++) {
+            successors.add(new ArrayList<>());
+            predecessors.add(new ArrayList<>());
+        }
+
+        // Depth first search leaving out edges back to an object on the current path
+        int[] state = new int[count]; // 0 = not visited, 1 = on path, 2 = done
+        int[] edgeIndexes = new int[count];
+        Deque<Integer> stack = new ArrayDeque<>();
+
+        for(int start = 0; start < count; start++) {
+            if(state[start] != 0) {
+                continue;
+            }
+
+            state[start] = 1;
+            stack.push(start);
+
+            while(!stack.isEmpty()) {
+                int node = stack.peek();
+
+                if(edgeIndexes[node] < edges.get(node).size()) {
+                    int next = edges.get(node).get(edgeIndexes[node]++);
+                    if(state[next] != 1) {
+                        successors.get(node).add(next);
+                        predecessors.get(next).add(node);
+                    }
+                    if(state[next] == 0) {
+                        state[next] = 1;
+                        stack.push(next);
+                    }
+                }
+                else {
+                    state[node] = 2;
+                    stack.pop();
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the objects in an order where each object comes after its predecessors
+     */
+    private List<Integer> getTopologicalOrder() {
+        int count = nodes.size();
+        int[] inDegrees = new int[count];
+        Deque<Integer> queue = new ArrayDeque<>();
+
+        for(int node = 0; node < count; node++) {
+            inDegrees[node] = predecessors.get(node).size();
+            if(inDegrees[node] == 0) {
+                queue.add(node);
+            }
+        }
+
+        List<Integer> order = new ArrayList<>(count);
+        while(!queue.isEmpty()) {
+            int node = queue.poll();
+            order.add(node);
+            for(int succ : successors.get(node)) {
+                if(--inDegrees[succ] == 0) {
+                    queue.add(succ);
+                }
+            }
+        }
+
+        return order;
+    }
+
+    private IDiagramModelObject getTopLevelObject(Object object) {
+        EObject eObject = object instanceof EObject ? (EObject)object : null;
+
+        while(eObject != null && eObject.eContainer() != dm) {
+            eObject = eObject.eContainer();
+        }
+
+        return eObject instanceof IDiagramModelObject ? (IDiagramModelObject)eObject : null;
+    }
+
+    // Sizes and gaps along a layer and across layers depend on the direction
+
+    private int getAlongSize(int node) {
+        return horizontal ? heights[node] : widths[node];
+    }
+
+    private int getAcrossSize(int node) {
+        return horizontal ? widths[node] : heights[node];
+    }
+
+    private int getAlongGap() {
+        return horizontal ? vgap : hgap;
+    }
+
+    private int getAcrossGap() {
+        return horizontal ? hgap : vgap;
+    }
+
+    private void setPosition(int node, int along, int across) {
+        xs[node] = horizontal ? across : along;
+        ys[node] = horizontal ? along : across;
+    }
+
+    /**
+     * Set the new bounds of all objects that have moved in one command
+     */
+    private void applyBounds() {
+        CompoundScriptCommand cmd = new CompoundScriptCommand("layout", dm.getArchimateModel()); //$NON-NLS-1$
+
+        for(int i = 0; i < nodes.size(); i++) {
+            IDiagramModelObject dmo = nodes.get(i);
+            IBounds bounds = dmo.getBounds();
+            if(bounds.getX() != xs[i] || bounds.getY() != ys[i]) {
+                cmd.add(new SetCommand(dmo, IArchimatePackage.Literals.DIAGRAM_MODEL_OBJECT__BOUNDS,
+                        IArchimateFactory.eINSTANCE.createBounds(xs[i], ys[i], bounds.getWidth(), bounds.getHeight())));
+            }
+        }
+
+        CommandHandler.executeCommand(cmd);
+    }
+}
@@ -0,0 +1,322 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.common.notify.Notification;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.util.EContentAdapter;
+
+import com.archimatetool.editor.model.DiagramModelUtils;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.IBounds;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IDiagramModelContainer;
+import com.archimatetool.model.IDiagramModelObject;
+import com.archimatetool.script.commands.CommandHandler;
+
+/**
+ * Spatial index of the containers in a View, used to find the container that encloses some bounds.
+ *
+ * The absolute bounds of each container are kept in a uniform grid of cells so that only the containers
+ * in one cell are tested. The index listens to the View and is updated when objects are added, moved, resized or deleted.
+ * While a script is running indexes are kept from when they are first used until the script ends.
+ * If no script is running a new index that does not listen to the View is created for each use.
+ */
+public class DiagramModelIndex {
+
+    private static final int CELL_SIZE = 256;
+
+    private static Map<IDiagramModel, DiagramModelIndex> indexes = new HashMap<>();
+
+    private IDiagramModel diagramModel;
+
+    // Absolute bounds of each container
+    private Map<IDiagramModelContainer, IBounds> boundsMap = new HashMap<>();
+
+    // Grid cell -> containers that overlap the cell
+    private Map<Long, List<IDiagramModelContainer>> cells = new HashMap<>();
+
+    private EContentAdapter adapter = new EContentAdapter() {
+        @Override
+        public void notifyChanged(Notification msg) {
+            super.notifyChanged(msg);
+
+            if(!msg.isTouch()) {
+                diagramModelChanged(msg);
+            }
+        }
+    };
+
+    /**
+     * @return the index for diagramModel, creating it if needed
+     */
+    static DiagramModelIndex get(IDiagramModel diagramModel) {
+        DiagramModelIndex index = indexes.get(diagramModel);
+
+        if(index == null) {
+            // No script is running so don't keep the index
+            if(indexes.isEmpty() && !CommandHandler.addFinaliseHandler(DiagramModelIndex::disposeAll)) {
+                return new DiagramModelIndex(diagramModel, false);
+            }
+
+            index = new DiagramModelIndex(diagramModel, true);
+            indexes.put(diagramModel, index);
+        }
+
+        return index;
+    }
+
+    /**
+     * Dispose of all indexes when the script ends
+     */
+    private static void disposeAll() {
+        for(DiagramModelIndex index : indexes.values()) {
+            index.dispose();
+        }
+        indexes.clear();
+    }
+
+    /**
+     * @param listen if true the index listens to the View and is updated when it changes
+     */
+    private DiagramModelIndex(IDiagramModel diagramModel, boolean listen) {
+        this.diagramModel = diagramModel;
+
+        for(IDiagramModelObject child : diagramModel.getChildren()) {
+            add(child, 0, 0);
+        }
+
+        if(listen) {
+            diagramModel.eAdapters().add(adapter);
+        }
+    }
+
+    /**
+     * Find the foremost container inside parent that encloses bounds. This is the last one in the order of parent.eAllContents().
+     * @param parent the container to look in
+     * @param bounds absolute bounds
+     * @return the container, or parent if there is none
+     */
+    IDiagramModelContainer getNestedParent(IDiagramModelContainer parent, IBounds bounds) {
+        List<IDiagramModelContainer> candidates = cells.get(getCellKey(Math.floorDiv(bounds.getX(), CELL_SIZE), Math.floorDiv(bounds.getY(), CELL_SIZE)));
+
+        if(candidates == null) {
+            return parent;
+        }
+
+        IDiagramModelContainer result = parent;
+
+        for(IDiagramModelContainer container : candidates) {
+            if(container != parent && DiagramModelUtils.outerBoundsContainsInnerBounds(boundsMap.get(container), bounds)
+                    && (parent == diagramModel || isAncestor(parent, container))
+                    && (result == parent || isAfter(container, result))) {
+                result = container;
+            }
+        }
+
+        return result;
+    }
+
+    private void diagramModelChanged(Notification msg) {
+        Object notifier = msg.getNotifier();
+        Object feature = msg.getFeature();
+
+        if(feature == IArchimatePackage.Literals.DIAGRAM_MODEL_CONTAINER__CHILDREN) {
+            switch(msg.getEventType()) {
+                case Notification.ADD:
+                    add(msg.getNewValue());
+                    break;
+
+                case Notification.ADD_MANY:
+                    for(Object o : (Collection<?>)msg.getNewValue()) {
+                        add(o);
+                    }
+                    break;
+
+                case Notification.REMOVE:
+                    remove(msg.getOldValue());
+                    break;
+
+                case Notification.REMOVE_MANY:
+                    for(Object o : (Collection<?>)msg.getOldValue()) {
+                        remove(o);
+                    }
+                    break;
+
+                default:
+                    break;
+            }
+        }
+        // Bounds set or changed so re-index the object and its children
+        else if(feature == IArchimatePackage.Literals.DIAGRAM_MODEL_OBJECT__BOUNDS && notifier instanceof IDiagramModelObject) {
+            remove(notifier);
+            add(notifier);
+        }
+        else if(notifier instanceof IBounds && ((IBounds)notifier).eContainer() instanceof IDiagramModelObject) {
+            EObject dmo = ((IBounds)notifier).eContainer();
+            remove(dmo);
+            add(dmo);
+        }
+    }
+
+    /**
+     * Add an object that is in the View and its children
+     */
+    private void add(Object object) {
+        if(object instanceof IDiagramModelObject && ((IDiagramModelObject)object).getDiagramModel() == diagramModel) {
+            IDiagramModelObject dmo = (IDiagramModelObject)object;
+            int parentX = 0, parentY = 0;
+
+            if(dmo.eContainer() instanceof IDiagramModelObject) {
+                IBounds parentBounds = DiagramModelUtils.getAbsoluteBounds((IDiagramModelObject)dmo.eContainer());
+                parentX = parentBounds.getX();
+                parentY = parentBounds.getY();
+            }
+
+            add(dmo, parentX, parentY);
+        }
+    }
+
+    private void add(IDiagramModelObject dmo, int parentX, int parentY) {
+        if(!(dmo instanceof IDiagramModelContainer) || dmo.getBounds() == null) {
+            return;
+        }
+
+        IDiagramModelContainer container = (IDiagramModelContainer)dmo;
+        IBounds bounds = dmo.getBounds();
+        IBounds absoluteBounds = IArchimateFactory.eINSTANCE.createBounds(parentX + bounds.getX(), parentY + bounds.getY(),
+                bounds.getWidth(), bounds.getHeight());
+
+        boundsMap.put(container, absoluteBounds);
+
+        for(long key : getCellKeys(absoluteBounds)) {
+            cells.computeIfAbsent(key, k -> new ArrayList<>()).add(container);
+        }
+
+        for(IDiagramModelObject child : container.getChildren()) {
+            add(child, absoluteBounds.getX(), absoluteBounds.getY());
+        }
+    }
+
+    /**
+     * Remove an object and its children
+     */
+    private void remove(Object object) {
+        if(!(object instanceof IDiagramModelContainer)) {
+            return;
+        }
+
+        IDiagramModelContainer container = (IDiagramModelContainer)object;
+        IBounds absoluteBounds = boundsMap.remove(container);
+
+        if(absoluteBounds != null) {
+            for(long key : getCellKeys(absoluteBounds)) {
+                List<IDiagramModelContainer> list = cells.get(key);
+                if(list != null) {
+                    list.remove(container);
+                    if(list.isEmpty()) {
+                        cells.remove(key);
+                    }
+                }
+            }
+        }
+
+        for(IDiagramModelObject child : container.getChildren()) {
+            remove(child);
+        }
+    }
+
+    private List<Long> getCellKeys(IBounds bounds) {
+        int x1 = Math.floorDiv(bounds.getX(), CELL_SIZE);
+        int y1 = Math.floorDiv(bounds.getY(), CELL_SIZE);
+        int x2 = Math.floorDiv(bounds.getX() + Math.max(bounds.getWidth(), 0), CELL_SIZE);
+        int y2 = Math.floorDiv(bounds.getY() + Math.max(bounds.getHeight(), 0), CELL_SIZE);
+
+        if(x1 == x2 && y1 == y2) {
+            return Collections.singletonList(getCellKey(x1, y1));
+        }
+
+        List<Long> keys = new ArrayList<>();
+        for(int x = x1; x <= x2; x++) {
+            for(int y = y1; y <= y2; y++) {
+                keys.add(getCellKey(x, y));
+            }
+        }
+
+        return keys;
+    }
+
+    private long getCellKey(int x, int y) {
+        return ((long)x << 32) | (y & 0xffffffffL);
+    }
+
+    /**
+     * @return true if ancestor contains object at any depth
+     */
+    private boolean isAncestor(EObject ancestor, EObject object) {
+        for(EObject o = object.eContainer(); o != null; o = o.eContainer()) {
+            if(o == ancestor) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if a comes after b in a depth first walk of the View
+     */
+    private boolean isAfter(EObject a, EObject b) {
+        List<EObject> pathA = getPath(a);
+        List<EObject> pathB = getPath(b);
+
+        int i = 0;
+        while(i < pathA.size() && i < pathB.size() && pathA.get(i) == pathB.get(i)) {
+            i++;
+        }
+
+        // a contains b
+        if(i == pathA.size()) {
+            return false;
+        }
+
+        // b contains a
+        if(i == pathB.size()) {
+            return true;
+        }
+
+        // Compare the positions of the children of the common parent
+        List<IDiagramModelObject> children = ((IDiagramModelContainer)pathA.get(i - 1)).getChildren();
+        return children.indexOf(pathA.get(i)) > children.indexOf(pathB.get(i));
+    }
+
+    /**
+     * @return the objects from the View down to object
+     */
+    private List<EObject> getPath(EObject object) {
+        List<EObject> path = new ArrayList<>();
+
+        for(EObject o = object; o != null && o != diagramModel.eContainer(); o = o.eContainer()) {
+            path.add(0, o);
+        }
+
+        return path;
+    }
+
+    private void dispose() {
+        diagramModel.eAdapters().remove(adapter);
+        boundsMap = null;
+        cells = null;
+        diagramModel = null;
+    }
+}
@@ -6,6 +6,7 @@
 package com.archimatetool.script.dom.model;
 
 import java.util.Iterator;
+import java.util.Map;
 
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.ui.PlatformUI;
@@ -80,6 +81,84 @@ public abstract class DiagramModelProxy extends EObjectProxy {
         return (IDiagramModel)super.getEObject();
     }
     
+    /**
+     * @return all diagram objects in this View at any depth, in the order used by getBoundsArray()
+     */
+    public EObjectProxyCollection getObjects() {
+        EObjectProxyCollection list = new EObjectProxyCollection();
+        for(IDiagramModelObject dmo : new DiagramGeometry(getEObject()).getObjects()) {
+            list.add(EObjectProxy.get(dmo));
+        }
+        return list;
+    }
+    
+    /**
+     * @return all connections in this View, in the order used by getBendpointsArray()
+     */
+    public EObjectProxyCollection getConnections() {
+        EObjectProxyCollection list = new EObjectProxyCollection();
+        for(IDiagramModelConnection connection : new DiagramGeometry(getEObject()).getConnections()) {
+            list.add(new DiagramModelConnectionProxy(connection));
+        }
+        return list;
+    }
+    
+    /**
+     * @return the bounds of all diagram objects in this View as x, y, width, height for each object in the order of getObjects()
+     */
+    public int[] getBoundsArray() {
+        return new DiagramGeometry(getEObject()).getBounds();
+    }
+    
+    /**
+     * Set the bounds of all diagram objects in this View in one command
+     * @param bounds x, y, width, height for each object in the order of getObjects(), as returned by getBoundsArray()
+     * @return this
+     */
+    public DiagramModelProxy setBoundsArray(Object bounds) {
+        new DiagramGeometry(getEObject()).setBounds(ModelUtil.toIntArray(bounds));
+        return this;
+    }
+    
+    /**
+     * @return the relative bendpoints of all connections in this View in the order of getConnections().
+     *         For each connection the number of bendpoints followed by startX, startY, endX, endY for each bendpoint
+     */
+    public int[] getBendpointsArray() {
+        return new DiagramGeometry(getEObject()).getBendpoints();
+    }
+    
+    /**
+     * Set the relative bendpoints of all connections in this View in one command
+     * @param bendpoints the bendpoints in the format returned by getBendpointsArray()
+     * @return this
+     */
+    public DiagramModelProxy setBendpointsArray(Object bendpoints) {
+        new DiagramGeometry(getEObject()).setBendpoints(ModelUtil.toIntArray(bendpoints));
+        return this;
+    }
+    
+    /**
+     * Lay out the top level objects in this View
+     * @param type one of "layered", "grid" or "tree"
+     * @return this
+     */
+    public DiagramModelProxy layout(String type) {
+        return layout(type, null);
+    }
+    
+    /**
+     * Lay out the top level objects in this View. All objects are moved in one command.
+     * @param type one of "layered", "grid" or "tree"
+     * @param options can be "hgap" and "vgap" (space between objects, default 40), "margin" (default 20),
+     *        "columns" (for "grid", default square) and "direction" ("down" or "right" for "layered" and "tree", default "down")
+     * @return this
+     */
+    public DiagramModelProxy layout(String type, Map<?, ?> options) {
+        new DiagramLayout(getEObject(), options).layout(type);
+        return this;
+    }
+    
     /**
      * @return child node diagram objects of this diagram model
      */
@@ -0,0 +1,270 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
+
+import com.archimatetool.model.FolderType;
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IFolder;
+import com.archimatetool.script.dom.model.SelectorFilterFactory.ISelectorFilter;
+
+/**
+ * Finds groups of concepts that are probably duplicates.
+ *
+ * Concepts are put in buckets by type and normalised name (lower case, punctuation and extra spaces removed).
+ * If fuzzy matching is on, the names of each type are also compared by the Jaccard similarity of their sets of character n-grams.
+ * Only names that share one of their rarest n-grams are compared, which is enough to find all pairs over the threshold.
+ */
+class DuplicateFinder {
+
+    static final String DEFAULT_SELECTOR = "element"; //$NON-NLS-1$
+    static final double DEFAULT_THRESHOLD = 0.8;
+    static final int DEFAULT_NGRAM_SIZE = 3;
+
+    private static final Pattern NON_WORD = Pattern.compile("[^\\p{L}\\p{N}]+"); //$NON-NLS-1$
+
+    private ISelectorFilter filter;
+    private boolean fuzzy;
+    private double threshold;
+    private int ngramSize;
+
+    /**
+     * @param options can be "selector" (default "element"), "fuzzy" (default false),
+     *        "threshold" (similarity from 0 to 1 for fuzzy matching, default 0.8) and "ngram" (n-gram size for fuzzy matching, default 3)
+     */
+    DuplicateFinder(Map<?, ?> options) {
+        filter = SelectorFilterFactory.INSTANCE.getFilter(ModelUtil.getStringValueFromMap(options, "selector", DEFAULT_SELECTOR)); //$NON-NLS-1$
+        fuzzy = ModelUtil.getBooleanValueFromMap(options, "fuzzy", false); //$NON-NLS-1$
+        threshold = Math.min(1, Math.max(0.01, ModelUtil.getDoubleValueFromMap(options, "threshold", DEFAULT_THRESHOLD))); //$NON-NLS-1$
+        ngramSize = Math.max(1, ModelUtil.getIntValueFromMap(options, "ngram", DEFAULT_NGRAM_SIZE)); //$NON-NLS-1$
+    }
+
+    /**
+     * @return groups of two or more concepts of the same type with the same or similar names
+     */
+    List<EObjectProxyCollection> findDuplicates(IArchimateModel model) {
+        List<EObjectProxyCollection> groups = new ArrayList<>();
+
+        if(filter == null) {
+            return groups;
+        }
+
+        // Type -> normalised name -> concepts
+        Map<EClass, Map<String, List<IArchimateConcept>>> buckets = new LinkedHashMap<>();
+
+        for(IFolder folder : model.getFolders()) {
+            if(folder.getType() == FolderType.DIAGRAMS) {
+                continue;
+            }
+
+            for(Iterator<EObject> iter = folder.eAllContents(); iter.hasNext();) {
+                EObject eObject = iter.next();
+                if(eObject instanceof IArchimateConcept && filter.accept(eObject)) {
+                    String name = normalise(((IArchimateConcept)eObject).getName());
+                    if(!name.isEmpty()) {
+                        buckets.computeIfAbsent(eObject.eClass(), eClass -> new LinkedHashMap<>())
+                               .computeIfAbsent(name, n -> new ArrayList<>())
+                               .add((IArchimateConcept)eObject);
+                    }
+                }
+            }
+        }
+
+        for(Map<String, List<IArchimateConcept>> names : buckets.values()) {
+            if(fuzzy) {
+                addSimilarNames(names, groups);
+            }
+            else {
+                for(List<IArchimateConcept> concepts : names.values()) {
+                    if(concepts.size() > 1) {
+                        groups.add(createCollection(concepts));
+                    }
+                }
+            }
+        }
+
+        return groups;
+    }
+
+    /**
+     * Add groups of concepts with similar names
+     * @param names the concepts of one type by normalised name
+     */
+    private void addSimilarNames(Map<String, List<IArchimateConcept>> names, List<EObjectProxyCollection> groups) {
+        List<List<IArchimateConcept>> concepts = new ArrayList<>(names.values());
+        int[][] ngrams = getRankedNgrams(names.keySet());
+        int count = ngrams.length;
+
+        // Union-find of similar names
+        int[] parents = new int[count];
+        for(int i = 0; i < count; i++) {
+            parents[i] = i;
+        }
+
+        // N-gram rank -> names that have it in their prefix
+        Map<Integer, List<Integer>> index = new HashMap<>();
+
+        // The last name that each name was compared with
+        int[] compared = new int[count];
+        Arrays.fill(compared, -1);
+
+        for(int i = 0; i < count; i++) {
+            int[] grams = ngrams[i];
+            int prefix = Math.min(grams.length, grams.length - (int)Math.ceil(threshold * grams.length) + 1);
+
+            for(int p = 0; p < prefix; p++) {
+                List<Integer> candidates = index.get(grams[p]);
+                if(candidates != null) {
+                    for(int j : candidates) {
+                        if(compared[j] != i) {
+                            compared[j] = i;
+                            if(isSimilar(grams, ngrams[j])) {
+                                parents[find(parents, i)] = find(parents, j);
+                            }
+                        }
+                    }
+                }
+            }
+
+            for(int p = 0; p < prefix; p++) {
+                index.computeIfAbsent(grams[p], k -> new ArrayList<>()).add(i);
+            }
+        }
+
+        // Collect the groups in order of their first name
+        Map<Integer, List<IArchimateConcept>> roots = new LinkedHashMap<>();
+        for(int i = 0; i < count; i++) {
+            roots.computeIfAbsent(find(parents, i), k -> new ArrayList<>()).addAll(concepts.get(i));
+        }
+
+        for(List<IArchimateConcept> group : roots.values()) {
+            if(group.size() > 1) {
+                groups.add(createCollection(group));
+            }
+        }
+    }
+
+    /**
+     * @return the distinct n-grams of each name as ranks sorted with the rarest n-gram first
+     */
+    private int[][] getRankedNgrams(Set<String> names) {
+        int[][] ngrams = new int[names.size()][];
+        Map<Integer, Integer> frequencies = new HashMap<>();
+
+        int i = 0;
+        for(String name : names) {
+            ngrams[i] = getNgrams(name);
+            for(int gram : ngrams[i]) {
+                frequencies.merge(gram, 1, Integer::sum);
+            }
+            i++;
+        }
+
+        // Rank n-grams by frequency, then by hash
+        Integer[] sorted = frequencies.keySet().toArray(new Integer[frequencies.size()]);
+        Arrays.sort(sorted, (a, b) -> {
+            int result = Integer.compare(frequencies.get(a), frequencies.get(b));
+            return result != 0 ? result : Integer.compare(a, b);
+        });
+
+        Map<Integer, Integer> ranks = new HashMap<>();
+        for(int rank = 0; rank < sorted.length; rank++) {
+            ranks.put(sorted[rank], rank);
+        }
+
+        for(int[] grams : ngrams) {
+            for(int j = 0; j < grams.length; j++) {
+                grams[j] = ranks.get(grams[j]);
+            }
+            Arrays.sort(grams);
+        }
+
+        return ngrams;
+    }
+
+    /**
+     * @return the hashes of the distinct n-grams in name padded with a space at each end
+     */
+    private int[] getNgrams(String name) {
+        String padded = " " + name + " "; //$NON-NLS-1$ //$NON-NLS-2$
+
+        if(padded.length() <= ngramSize) {
+            return new int[] { padded.hashCode() };
+        }
+
+        Set<Integer> grams = new LinkedHashSet<>();
+        for(int i = 0; i <= padded.length() - ngramSize; i++) {
+            grams.add(padded.substring(i, i + ngramSize).hashCode());
+        }
+
+        return grams.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * @return true if the Jaccard similarity of the sorted sets a and b is at least the threshold
+     */
+    private boolean isSimilar(int[] a, int[] b) {
+        int shared = 0;
+
+        for(int i = 0, j = 0; i < a.length && j < b.length;) {
+            if(a[i] == b[j]) {
+                shared++;
+                i++;
+                j++;
+            }
+            else if(a[i] < b[j]) {
+                i++;
+            }
+            else {
+                j++;
+            }
+        }
+
+        return shared >= threshold * (a.length + b.length - shared);
+    }
+
+    private int find(int[] parents, int i) {
+        while(parents[i] != i) {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    /**
+     * @return the name in lower case with runs of punctuation and white space replaced by one space
+     */
+    static String normalise(String name) {
+        if(name == null) {
+            return ""; //$NON-NLS-1$
+        }
+
+        return NON_WORD.matcher(name.toLowerCase(Locale.ROOT)).replaceAll(" ").trim(); //$NON-NLS-1$
+    }
+
+    private EObjectProxyCollection createCollection(List<IArchimateConcept> concepts) {
+        EObjectProxyCollection collection = new EObjectProxyCollection();
+        for(IArchimateConcept concept : concepts) {
+            collection.add(EObjectProxy.get(concept));
+        }
+        return collection;
+    }
+}
@@ -5,13 +5,34 @@
  */
 package com.archimatetool.script.dom.model;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.osgi.util.NLS;
+
+import com.archimatetool.editor.utils.StringUtils;
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateFactory;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.IArchimateRelationship;
+import com.archimatetool.model.IProperty;
+import com.archimatetool.script.ArchiScriptException;
+import com.archimatetool.script.commands.AddPropertyCommand;
+import com.archimatetool.script.commands.CommandHandler;
+import com.archimatetool.script.commands.CompoundScriptCommand;
+import com.archimatetool.script.commands.ScriptCommand;
+import com.archimatetool.script.commands.SetCommand;
 import com.archimatetool.script.dom.model.SelectorFilterFactory.ISelectorFilter;
 
 
@@ -349,6 +370,54 @@ public class EObjectProxyCollection extends ArrayList<EObjectProxy> implements I
         return this;
     }
 
+    /**
+     * Export the collection to a CSV file, one row per object, streamed directly to disk.
+     * Default columns are "id", "type" and "name"
+     * @param path
+     * @return
+     * @throws IOException
+     */
+    public EObjectProxyCollection exportCsv(String path) throws IOException {
+        return exportCsv(path, null);
+    }
+
+    /**
+     * Export the collection to a CSV file, one row per object, streamed directly to disk.
+     * A column can be an attribute name ("name"), a property ("prop:key") or a relationship end ("source.name", "target.prop:key")
+     * @param path
+     * @param columns
+     * @return
+     * @throws IOException
+     */
+    public EObjectProxyCollection exportCsv(String path, List<?> columns) throws IOException {
+        new CollectionExporter(this, columns).exportCsv(path);
+        return this;
+    }
+
+    /**
+     * Export the collection to a JSON file as an array of objects, streamed directly to disk.
+     * Default columns are "id", "type" and "name"
+     * @param path
+     * @return
+     * @throws IOException
+     */
+    public EObjectProxyCollection exportJson(String path) throws IOException {
+        return exportJson(path, null);
+    }
+
+    /**
+     * Export the collection to a JSON file as an array of objects, streamed directly to disk.
+     * A column can be an attribute name ("name"), a property ("prop:key") or a relationship end ("source.name", "target.prop:key")
+     * @param path
+     * @param columns
+     * @return
+     * @throws IOException
+     */
+    public EObjectProxyCollection exportJson(String path, List<?> columns) throws IOException {
+        new CollectionExporter(this, columns).exportJson(path);
+        return this;
+    }
+
     /**
      * Iterate over a collection, executing a function for each object.
      * The function to execute will receive the current object as first argument.
@@ -359,7 +428,194 @@ public class EObjectProxyCollection extends ArrayList<EObjectProxy> implements I
     	forEach(action);
     	return this;
     }
-    
+
+    /**
+     * Set the type of all elements in the collection with new elements of class type, preserving all connecting relationships and diagram components.
+     * The relationships and diagram components of all elements are found in one pass of each model and are changed in one command.
+     * Relationships in the collection are set one at a time.
+     * All members are checked before anything is changed.
+     * @param type the Archimate type to replace with
+     * @return this
+     */
+    public EObjectProxyCollection setType(String type) {
+        if(!StringUtils.isSet(type)) {
+            return this;
+        }
+
+        EClass eClass = ModelUtil.getEClass(type);
+        Map<IArchimateModel, ElementReplacer> replacers = new LinkedHashMap<>();
+        List<ArchimateRelationshipProxy> relationships = new ArrayList<>();
+
+        for(EObjectProxy object : this) {
+            if(object instanceof ArchimateElementProxy) {
+                IArchimateElement element = ((ArchimateElementProxy)object).getEObject();
+                IArchimateModel model = element.getArchimateModel();
+
+                if(model == null || element.eClass() == eClass) {
+                    continue;
+                }
+
+                if(eClass == null || !IArchimatePackage.eINSTANCE.getArchimateElement().isSuperTypeOf(eClass)) {
+                    throw new ArchiScriptException(NLS.bind(Messages.ArchimateModelProxy_0, type));
+                }
+
+                ElementReplacer replacer = replacers.computeIfAbsent(model, ElementReplacer::new);
+
+                if(!replacer.contains(element)) {
+                    IArchimateElement newElement = (IArchimateElement)IArchimateFactory.eINSTANCE.create(eClass);
+                    newElement.setName(StringUtils.safeString(element.getName()));
+                    newElement.getProperties().addAll(EcoreUtil.copyAll(element.getProperties()));
+                    newElement.getFeatures().addAll(EcoreUtil.copyAll(element.getFeatures()));
+                    newElement.setDocumentation(element.getDocumentation());
+                    replacer.replaceWithNew(element, newElement);
+                }
+
+                replacer.addProxy(object);
+            }
+            else if(object instanceof ArchimateRelationshipProxy) {
+                IArchimateRelationship relationship = ((ArchimateRelationshipProxy)object).getEObject();
+
+                if(relationship.eClass() == eClass) {
+                    continue;
+                }
+
+                if(eClass == null || !IArchimatePackage.eINSTANCE.getArchimateRelationship().isSuperTypeOf(eClass)) {
+                    throw new ArchiScriptException(NLS.bind(Messages.ArchimateModelProxy_1, type));
+                }
+
+                if(!ModelUtil.isAllowedSetType(relationship, type)) {
+                    throw new ArchiScriptException(NLS.bind(Messages.ArchimateConceptProxy_1, type));
+                }
+
+                relationships.add((ArchimateRelationshipProxy)object);
+            }
+        }
+
+        // Check all relationships will be valid before changing anything
+        for(ElementReplacer replacer : replacers.values()) {
+            if(replacer.getInvalidRelationship() != null) {
+                throw new ArchiScriptException(NLS.bind(Messages.ArchimateConceptProxy_1, type));
+            }
+        }
+
+        for(Entry<IArchimateModel, ElementReplacer> entry : replacers.entrySet()) {
+            CompoundScriptCommand cmd = new CompoundScriptCommand("setType", entry.getKey()); //$NON-NLS-1$
+            entry.getValue().addCommands(cmd, true, true);
+            CommandHandler.executeCommand(cmd);
+        }
+
+        for(ArchimateRelationshipProxy relationship : relationships) {
+            relationship.setType(type);
+        }
+
+        return this;
+    }
+
+    /**
+     * Merge all elements in the collection into the target element in the same way as ArchimateElementProxy.merge().
+     * Documentation and properties are appended to the target and all relationships and diagram components are set to the target.
+     * The relationships and diagram components of all elements are found in one pass of the model and are changed in one command.
+     * The merged elements are left in the model, as merge() does.
+     * Objects in the collection that are not elements are ignored.
+     * @param target the element to merge into. This must be the same type as the elements in the collection
+     * @return the target
+     */
+    public ArchimateElementProxy mergeInto(ArchimateElementProxy target) {
+        return mergeInto(target, null);
+    }
+
+    /**
+     * Merge all elements in the collection into the target element
+     * @param target the element to merge into. This must be the same type as the elements in the collection
+     * @param options can be "delete" (if true the merged elements are deleted from the model in the same command, default false)
+     * @return the target
+     * @see #mergeInto(ArchimateElementProxy)
+     */
+    public ArchimateElementProxy mergeInto(ArchimateElementProxy target, Map<?, ?> options) {
+        boolean delete = options != null && Boolean.TRUE.equals(options.get("delete")); //$NON-NLS-1$
+
+        if(target == null) {
+            throw new ArchiScriptException(Messages.EObjectProxyCollection_0);
+        }
+
+        IArchimateElement targetElement = target.getEObject();
+        ElementReplacer replacer = new ElementReplacer(target.getArchimateModel());
+
+        StringBuilder documentation = new StringBuilder(targetElement.getDocumentation());
+        List<ScriptCommand> propertyCommands = new ArrayList<>();
+
+        for(EObjectProxy object : this) {
+            if(!(object instanceof ArchimateElementProxy)) {
+                continue;
+            }
+
+            IArchimateElement element = ((ArchimateElementProxy)object).getEObject();
+            if(element == targetElement || replacer.contains(element)) {
+                continue;
+            }
+
+            // Check this and the target are in the same model
+            ModelUtil.checkComponentsInSameModel(targetElement, element);
+
+            // Check this is the same type as the target
+            if(element.eClass() != targetElement.eClass()) {
+                throw new ArchiScriptException(NLS.bind(Messages.ArchimateElementProxy_0, object));
+            }
+
+            documentation.append('\n').append(element.getDocumentation());
+
+            for(IProperty p : element.getProperties()) {
+                propertyCommands.add(new AddPropertyCommand(targetElement, p.getKey(), p.getValue()));
+            }
+
+            replacer.replace(element, targetElement);
+        }
+
+        if(replacer.isEmpty()) {
+            return target;
+        }
+
+        IArchimateRelationship invalid = replacer.getInvalidRelationship();
+        if(invalid != null) {
+            throw new ArchiScriptException(NLS.bind(Messages.ArchimateRelationshipProxy_0,
+                    new Object[] { invalid.eClass().getName(), invalid.getSource().getName(), invalid.getTarget().getName() }));
+        }
+
+        CompoundScriptCommand cmd = new CompoundScriptCommand("merge", target.getArchimateModel()); //$NON-NLS-1$
+        cmd.add(new SetCommand(targetElement, IArchimatePackage.Literals.DOCUMENTABLE__DOCUMENTATION, documentation.toString()));
+        propertyCommands.forEach(cmd::add);
+        replacer.addCommands(cmd, false, delete);
+        CommandHandler.executeCommand(cmd);
+
+        return target;
+    }
+
+    /**
+     * Set the source and target of all relationships in the collection and update their connections in the Views.
+     * All relationships are checked first so that nothing is changed if one of them would be invalid.
+     * Objects in the collection that are not relationships are ignored.
+     * @param source the new source, or null to keep the source of each relationship
+     * @param target the new target, or null to keep the target of each relationship
+     * @return this
+     */
+    public EObjectProxyCollection reconnect(ArchimateConceptProxy source, ArchimateConceptProxy target) {
+        List<ArchimateRelationshipProxy> relationships = new ArrayList<>();
+
+        for(EObjectProxy object : this) {
+            if(object instanceof ArchimateRelationshipProxy) {
+                ArchimateRelationshipProxy relationship = (ArchimateRelationshipProxy)object;
+                relationship.checkReconnect(source, target);
+                relationships.add(relationship);
+            }
+        }
+
+        for(ArchimateRelationshipProxy relationship : relationships) {
+            relationship.reconnect(source, target);
+        }
+
+        return this;
+    }
+
     /**
      * Create a new jArchi Collection with objects added to the set of matched objects.
      * @param selector
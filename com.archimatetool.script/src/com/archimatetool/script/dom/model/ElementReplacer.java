@@ -0,0 +1,220 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EObject;
+
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IArchimateElement;
+import com.archimatetool.model.IArchimateModel;
+import com.archimatetool.model.IArchimateRelationship;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IDiagramModelArchimateObject;
+import com.archimatetool.model.IFolder;
+import com.archimatetool.script.commands.AddConceptsCommand;
+import com.archimatetool.script.commands.CompoundScriptCommand;
+import com.archimatetool.script.commands.DeleteFolderObjectCommand;
+import com.archimatetool.script.commands.ScriptCommand;
+import com.archimatetool.script.commands.SetElementOnDiagramModelObjectCommand;
+
+/**
+ * Replaces many elements with other elements at once.
+ *
+ * The relationships and diagram objects that reference the replaced elements are found in one pass of the model
+ * and the new elements are added, the references re-pointed and optionally the replaced elements deleted in one compound command.
+ */
+class ElementReplacer {
+
+    private IArchimateModel model;
+
+    // Replaced element -> replacement element
+    private Map<IArchimateElement, IArchimateElement> replacements = new LinkedHashMap<>();
+
+    // New replacement elements that are added to the model
+    private AddConceptsCommand addCommand;
+
+    // Proxies that are set to the replacement element
+    private List<EObjectProxy> proxies = new ArrayList<>();
+
+    // Relationships connected to replaced elements
+    private Set<IArchimateRelationship> relationships = new LinkedHashSet<>();
+
+    ElementReplacer(IArchimateModel model) {
+        this.model = model;
+        addCommand = new AddConceptsCommand(model);
+    }
+
+    /**
+     * Replace element with an existing element in the model
+     */
+    void replace(IArchimateElement element, IArchimateElement replacement) {
+        replacements.put(element, replacement);
+        relationships.addAll(element.getSourceRelationships());
+        relationships.addAll(element.getTargetRelationships());
+    }
+
+    /**
+     * Replace element with a new element that is added to the model
+     */
+    void replaceWithNew(IArchimateElement element, IArchimateElement newElement) {
+        replace(element, newElement);
+
+        // Use the same folder if it's correct for the new type, else the default folder
+        IFolder parent = (IFolder)element.eContainer();
+        if(!ModelUtil.isCorrectFolderForObject(parent, newElement)) {
+            parent = model.getDefaultFolderForObject(newElement);
+        }
+
+        addCommand.add(parent, newElement);
+    }
+
+    /**
+     * Set proxy to the replacement of its element
+     */
+    void addProxy(EObjectProxy proxy) {
+        proxies.add(proxy);
+    }
+
+    boolean contains(IArchimateElement element) {
+        return replacements.containsKey(element);
+    }
+
+    boolean isEmpty() {
+        return replacements.isEmpty();
+    }
+
+    /**
+     * @return the first relationship that will be invalid when its ends are replaced, or null if all are valid
+     */
+    IArchimateRelationship getInvalidRelationship() {
+        RelationshipMatrix matrix = RelationshipMatrix.getInstance();
+
+        for(IArchimateRelationship relationship : relationships) {
+            if(!matrix.isValidRelationship(getReplacement(relationship.getSource()), getReplacement(relationship.getTarget()), relationship.eClass())) {
+                return relationship;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Add the commands to add new elements, re-point relationships, diagram objects and proxies and delete the replaced elements
+     * @param compoundCommand the command to add to
+     * @param setDefaultFigureType if true diagram objects are set to the default figure type of the replacement element
+     * @param deleteReplaced if true the replaced elements are deleted, else they are left in the model
+     */
+    void addCommands(CompoundScriptCommand compoundCommand, boolean setDefaultFigureType, boolean deleteReplaced) {
+        compoundCommand.add(addCommand);
+        compoundCommand.add(createReconnectCommand());
+
+        // One pass of the diagrams
+        for(IDiagramModel dm : model.getDiagramModels()) {
+            for(Iterator<EObject> iter = dm.eAllContents(); iter.hasNext();) {
+                EObject eObject = iter.next();
+                if(eObject instanceof IDiagramModelArchimateObject) {
+                    IDiagramModelArchimateObject dmo = (IDiagramModelArchimateObject)eObject;
+                    IArchimateElement replacement = replacements.get(dmo.getArchimateElement());
+                    if(replacement != null) {
+                        compoundCommand.add(new SetElementOnDiagramModelObjectCommand(replacement, dmo, setDefaultFigureType));
+                    }
+                }
+            }
+        }
+
+        if(!proxies.isEmpty()) {
+            compoundCommand.add(createProxiesCommand());
+        }
+
+        if(deleteReplaced) {
+            for(IArchimateElement element : replacements.keySet()) {
+                compoundCommand.add(new DeleteFolderObjectCommand(element));
+            }
+        }
+    }
+
+    private IArchimateConcept getReplacement(IArchimateConcept concept) {
+        IArchimateElement replacement = replacements.get(concept);
+        return replacement != null ? replacement : concept;
+    }
+
+    /**
+     * Set the source and target of all relationships connected to replaced elements
+     */
+    private ScriptCommand createReconnectCommand() {
+        IArchimateRelationship[] rels = relationships.toArray(new IArchimateRelationship[relationships.size()]);
+        IArchimateConcept[] oldSources = new IArchimateConcept[rels.length];
+        IArchimateConcept[] oldTargets = new IArchimateConcept[rels.length];
+        IArchimateConcept[] newSources = new IArchimateConcept[rels.length];
+        IArchimateConcept[] newTargets = new IArchimateConcept[rels.length];
+
+        for(int i = 0; i < rels.length; i++) {
+            oldSources[i] = rels[i].getSource();
+            oldTargets[i] = rels[i].getTarget();
+            newSources[i] = getReplacement(oldSources[i]);
+            newTargets[i] = getReplacement(oldTargets[i]);
+        }
+
+        return new ScriptCommand("reconnect", model) { //$NON-NLS-1$
+            @Override
+            public boolean canExecute() {
+                return rels.length > 0;
+            }
+
+            @Override
+            public void perform() {
+                for(int i = 0; i < rels.length; i++) {
+                    rels[i].setSource(newSources[i]);
+                    rels[i].setTarget(newTargets[i]);
+                }
+            }
+
+            @Override
+            public void undo() {
+                for(int i = rels.length - 1; i >= 0; i--) {
+                    rels[i].setSource(oldSources[i]);
+                    rels[i].setTarget(oldTargets[i]);
+                }
+            }
+        };
+    }
+
+    /**
+     * Set proxies to the replacement elements so that the script's references to them stay valid
+     */
+    private ScriptCommand createProxiesCommand() {
+        List<EObjectProxy> list = new ArrayList<>(proxies);
+
+        return new ScriptCommand("set", model) { //$NON-NLS-1$
+            List<EObject> oldObjects = new ArrayList<>();
+
+            @Override
+            public void perform() {
+                oldObjects.clear();
+
+                for(EObjectProxy proxy : list) {
+                    oldObjects.add(proxy.getEObject());
+                    proxy.setEObject(getReplacement((IArchimateConcept)proxy.getEObject()));
+                }
+            }
+
+            @Override
+            public void undo() {
+                for(int i = 0; i < list.size(); i++) {
+                    list.get(i).setEObject(oldObjects.get(i));
+                }
+            }
+        };
+    }
+}
@@ -28,6 +28,8 @@ public class Messages extends NLS {
 
     public static String ArchimateModelProxy_5;
 
+    public static String ArchimateModelProxy_6;
+
     public static String ArchimateRelationshipProxy_0;
 
     public static String ArchimateRelationshipProxy_1;
@@ -38,6 +40,10 @@ public class Messages extends NLS {
 
     public static String CurrentModel_0;
 
+    public static String DiagramGeometry_0;
+
+    public static String DiagramGeometry_1;
+
     public static String DiagramModelComponentProxy_0;
 
     public static String DiagramModelConnectionProxy_0;
@@ -66,6 +72,8 @@ public class Messages extends NLS {
 
     public static String DiagramModelProxy_2;
 
+    public static String DiagramModelProxy_3;
+
     public static String EObjectProxy_0;
 
     public static String EObjectProxy_1;
@@ -90,6 +98,16 @@ public class Messages extends NLS {
 
     public static String ModelFactory_9;
 
+    public static String ModelFactory_10;
+
+    public static String ModelFactory_11;
+
+    public static String EObjectProxyCollection_0;
+
+    public static String ModelUtil_0;
+
+    public static String ModelUtil_1;
+
     static {
         // initialize resource bundle
         NLS.initializeMessages(BUNDLE_NAME, Messages.class);
@@ -5,32 +5,30 @@
  */
 package com.archimatetool.script.dom.model;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Base64;
 import java.util.Base64.Encoder;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.eclipse.emf.ecore.EClass;
 import org.eclipse.osgi.util.NLS;
-import org.eclipse.swt.SWT;
-import org.eclipse.swt.graphics.Image;
-import org.eclipse.swt.graphics.ImageData;
-import org.eclipse.swt.graphics.ImageLoader;
 import org.eclipse.ui.PlatformUI;
 
-import com.archimatetool.editor.diagram.util.DiagramUtils;
 import com.archimatetool.editor.model.IArchiveManager;
 import com.archimatetool.editor.model.IEditorModelManager;
-import com.archimatetool.editor.ui.ImageFactory;
 import com.archimatetool.model.IArchimateFactory;
 import com.archimatetool.model.IArchimateModel;
-import com.archimatetool.model.IArchimatePackage;
-import com.archimatetool.model.util.ArchimateModelUtils;
+import com.archimatetool.model.IDiagramModel;
 import com.archimatetool.script.ArchiScriptException;
+import com.archimatetool.script.RefreshUIHandler;
+import com.archimatetool.script.commands.CommandHandler;
 
 /**
  * Model utility functions
@@ -133,7 +131,8 @@ public class Model {
      * Render a View as a String of BASE64 bytes
      * @param dmProxy The DiagramModelProxy
      * @param format One of "PNG", "BMP", "JPG", "JPEG",
-     * @param options can be scale and margin insets
+     * @param options can be scale and margin insets, cache (a folder to cache rendered images in so that unchanged Views are not rendered again)
+     *        and cacheSize (the maximum size of the cache in megabytes)
      * @return a string encoded in BASE64
      * @throws IOException
      */
@@ -146,53 +145,251 @@ public class Model {
             throw new ArchiScriptException("renderViewAsBase64 - Format is null"); //$NON-NLS-1$
         }
         
-        // Default options
-        int scale = ModelUtil.getIntValueFromMap(options, "scale", 1); //$NON-NLS-1$
-        int margin = ModelUtil.getIntValueFromMap(options, "margin", 10); //$NON-NLS-1$
+        byte[] bytes = new ViewRenderer(options).renderImageBytes(dmProxy.getEObject(), ViewRenderer.getImageFormat(format));
         
-        // Format
-        int imgFormat = SWT.IMAGE_PNG;
+        Encoder encoder = Base64.getEncoder();
+        return encoder.encodeToString(bytes);
+    }
+    
+    /**
+     * Render Views as images and write them to files in a folder.
+     * Each View is drawn in turn and its image is encoded and written straight to its file by a pool of worker threads.
+     * Files are named after the Views and have the extension of the format.
+     * @param views A collection of Views. Other objects in the collection are ignored
+     * @param folder The folder to write the files to. This is created if it does not exist
+     * @param format One of "PNG", "BMP", "GIF", "JPG", "JPEG"
+     * @param options can be scale, margin, threads (the number of encoding threads), fileName ("name" or "id"),
+     *        cache (a folder to cache rendered images in so that unchanged Views are not rendered again) and cacheSize (the maximum size of the cache in megabytes)
+     * @return the paths of the files written in the order of the Views
+     * @throws IOException
+     */
+    public List<String> renderViews(EObjectProxyCollection views, String folder, String format, Map<?, ?> options) throws IOException {
+        if(views == null) {
+            throw new ArchiScriptException("renderViews - Views are null"); //$NON-NLS-1$
+        }
         
-        switch(format.toUpperCase()) {
-            case "PNG": //$NON-NLS-1$
-                imgFormat = SWT.IMAGE_PNG;
-                break;
-
-            case "BMP": //$NON-NLS-1$
-                imgFormat = SWT.IMAGE_BMP;
-                break;
-
-            case "GIF": //$NON-NLS-1$
-                imgFormat = SWT.IMAGE_GIF;
-                break;
-
-            case "JPG": //$NON-NLS-1$
-            case "JPEG": //$NON-NLS-1$
-                imgFormat = SWT.IMAGE_JPEG;
-                break;
+        if(folder == null) {
+            throw new ArchiScriptException("renderViews - Folder is null"); //$NON-NLS-1$
+        }
+        
+        if(format == null) {
+            throw new ArchiScriptException("renderViews - Format is null"); //$NON-NLS-1$
+        }
+        
+        List<IDiagramModel> diagramModels = new ArrayList<>();
+        for(EObjectProxy proxy : views) {
+            if(proxy instanceof DiagramModelProxy) {
+                diagramModels.add(((DiagramModelProxy)proxy).getEObject());
+            }
+        }
+        
+        List<String> paths = new ArrayList<>();
+        for(File file : new ViewRenderer(options).renderViews(diagramModels, new File(folder), format)) {
+            paths.add(file.getPath());
+        }
+        
+        return paths;
+    }
+    
+    /**
+     * Render Views as images and write them to files in a folder
+     * @param views A collection of Views. Other objects in the collection are ignored
+     * @param folder The folder to write the files to. This is created if it does not exist
+     * @param format One of "PNG", "BMP", "GIF", "JPG", "JPEG"
+     * @return the paths of the files written in the order of the Views
+     * @throws IOException
+     */
+    public List<String> renderViews(EObjectProxyCollection views, String folder, String format) throws IOException {
+        return renderViews(views, folder, format, null);
+    }
 
-            default:
-                break;
+    /**
+     * Write a View as SVG to a file.
+     * The SVG is written straight from the View's objects and connections so no image of the View is needed in memory.
+     * @param dmProxy The DiagramModelProxy
+     * @param path The file to write to
+     * @param options can be scale and margin
+     * @throws IOException
+     */
+    public void renderViewAsSvg(DiagramModelProxy dmProxy, String path, Map<?, ?> options) throws IOException {
+        // Check this before the file is opened so that an existing file is not emptied
+        if(dmProxy == null) {
+            throw new ArchiScriptException("renderViewAsSvg - View is null"); //$NON-NLS-1$
         }
         
-        Image image = DiagramUtils.createImage(dmProxy.getEObject(), scale, margin);
+        if(path == null) {
+            throw new ArchiScriptException("renderViewAsSvg - Path is null"); //$NON-NLS-1$
+        }
         
+        try(OutputStream out = Files.newOutputStream(Paths.get(path))) {
+            renderViewAsSvg(dmProxy, out, options);
+        }
+    }
+    
+    /**
+     * Write a View as SVG to a file
+     * @param dmProxy The DiagramModelProxy
+     * @param path The file to write to
+     * @throws IOException
+     */
+    public void renderViewAsSvg(DiagramModelProxy dmProxy, String path) throws IOException {
+        renderViewAsSvg(dmProxy, path, null);
+    }
+    
+    /**
+     * Write a View as SVG to a stream. The stream is not closed.
+     * @param dmProxy The DiagramModelProxy
+     * @param out The stream to write to
+     * @param options can be scale and margin
+     * @throws IOException
+     */
+    public void renderViewAsSvg(DiagramModelProxy dmProxy, OutputStream out, Map<?, ?> options) throws IOException {
+        if(dmProxy == null) {
+            throw new ArchiScriptException("renderViewAsSvg - View is null"); //$NON-NLS-1$
+        }
+        
+        if(out == null) {
+            throw new ArchiScriptException("renderViewAsSvg - Stream is null"); //$NON-NLS-1$
+        }
+        
+        new ViewSvgWriter(dmProxy.getEObject(), options).write(out);
+    }
+
+    /**
+     * Set whether changes made by the script can be undone.
+     * If false, changes are made directly without being recorded which uses far less memory for large imports.
+     * Changed models are marked as dirty when the script ends and can't be undone past that point.
+     * @param enabled
+     */
+    public void setUndoEnabled(boolean enabled) {
+        CommandHandler.setUndoEnabled(enabled);
+    }
+    
+    /**
+     * @return true if changes made by the script can be undone
+     */
+    public boolean isUndoEnabled() {
+        return CommandHandler.isUndoEnabled();
+    }
+
+    /**
+     * Set whether model change notifications are batched so that the Models Tree and other listeners refresh once per batch
+     * rather than once per change. This overrides the preferences for the rest of the script.
+     * @param enabled
+     * @param batchSize the number of changes in each batch, or 0 to end the batch only when the UI is refreshed or the script ends
+     */
+    public void setNotificationBatching(boolean enabled, int batchSize) {
+        CommandHandler.setNotificationBatching(enabled, Math.max(0, batchSize));
+    }
+
+    /**
+     * Put the script's changes on the Undo stack in chunks while the script runs instead of in one step at the end.
+     * This limits the memory used by long running scripts. Each chunk can be undone separately.
+     * @param commands the number of changes in each chunk, or 0 for no limit
+     * @param megabytes the approximate growth in used memory after which a chunk is committed, or 0 for no limit.
+     *        Memory use depends on garbage collection so use commands for chunks of a predictable size
+     */
+    public void setChunkedCommit(int commands, int megabytes) {
+        CommandHandler.setChunking(commands, megabytes);
+    }
+
+    /**
+     * Append every change that the script makes from now on to a journal file, one JSON object per line
+     * @param path the journal file, or null to stop writing to the journal
+     * @throws IOException
+     */
+    public void setJournal(String path) throws IOException {
+        CommandHandler.setJournal(path != null ? new File(path) : null);
+    }
+
+    /**
+     * Run a function as a transaction.
+     * If the function throws an exception all changes it made are rolled back and the exception is thrown again.
+     * If the function calls exit() its changes are kept.
+     * The function can also call rollback() or release() to end the transaction itself.
+     * @param function the function to run
+     */
+    public void transaction(Runnable function) {
+        int savepoint = CommandHandler.savepoint();
+
         try {
-            ImageLoader loader = new ImageLoader();
-            loader.data = new ImageData[] { image.getImageData(ImageFactory.getImageDeviceZoom()) };
-            
-            try(ByteArrayOutputStream stream = new ByteArrayOutputStream(1024)) {
-                loader.save(stream, imgFormat);
-                
-                Encoder encoder = Base64.getEncoder();
-                return encoder.encodeToString(stream.toByteArray());
+            function.run();
+        }
+        catch(RuntimeException | Error ex) {
+            // The function may have already rolled back or released the savepoint
+            if(CommandHandler.hasSavepoint(savepoint)) {
+                if(isExit(ex)) {
+                    CommandHandler.release(savepoint);
+                }
+                else {
+                    CommandHandler.rollback(savepoint);
+                }
             }
+            throw ex;
         }
-        finally {
-            image.dispose();
+
+        if(CommandHandler.hasSavepoint(savepoint)) {
+            CommandHandler.release(savepoint);
         }
     }
 
+    /**
+     * @return true if ex was thrown by the init.js function exit(), which throws an exception with message "__EXIT__"
+     */
+    private boolean isExit(Throwable ex) {
+        for(Throwable t = ex; t != null; t = t.getCause()) {
+            if(t.getMessage() != null && t.getMessage().contains("__EXIT__")) { //$NON-NLS-1$
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Mark the current state of all models so that later changes can be rolled back
+     * @return the savepoint's id
+     */
+    public int savepoint() {
+        return CommandHandler.savepoint();
+    }
+
+    /**
+     * Undo all changes made since the most recent savepoint
+     */
+    public void rollback() {
+        CommandHandler.rollback();
+    }
+
+    /**
+     * Undo all changes made since the given savepoint
+     * @param savepoint the savepoint's id as returned by savepoint()
+     */
+    public void rollback(int savepoint) {
+        CommandHandler.rollback(savepoint);
+    }
+
+    /**
+     * Keep all changes made since the given savepoint and forget it
+     * @param savepoint the savepoint's id as returned by savepoint()
+     */
+    public void release(int savepoint) {
+        CommandHandler.release(savepoint);
+    }
+
+    /**
+     * @return statistics for the running script with the keys refreshCount (the number of UI refreshes),
+     *         refreshTime (milliseconds spent refreshing the UI), scriptTime (milliseconds spent running script code)
+     *         and refreshInterval (the current interval between UI refreshes in milliseconds)
+     */
+    public Map<String, Object> getRunStatistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("refreshCount", RefreshUIHandler.getRefreshCount()); //$NON-NLS-1$
+        statistics.put("refreshTime", RefreshUIHandler.getRefreshTime()); //$NON-NLS-1$
+        statistics.put("scriptTime", RefreshUIHandler.getScriptTime()); //$NON-NLS-1$
+        statistics.put("refreshInterval", RefreshUIHandler.getRefreshInterval()); //$NON-NLS-1$
+        return statistics;
+    }
+
     /**
      * @param relationshipType
      * @param sourceType
@@ -200,14 +397,14 @@ public class Model {
      * @return True if relationship type is allowed between source and target
      */
     public boolean isAllowedRelationship(String relationshipType, String sourceType, String targetType) {
-        EClass relClass = (EClass)IArchimatePackage.eINSTANCE.getEClassifier(ModelUtil.getCamelCase(relationshipType));
-        EClass sourceClass = (EClass)IArchimatePackage.eINSTANCE.getEClassifier(ModelUtil.getCamelCase(sourceType));
-        EClass targetClass = (EClass)IArchimatePackage.eINSTANCE.getEClassifier(ModelUtil.getCamelCase(targetType));
+        EClass relClass = ModelUtil.getEClass(relationshipType);
+        EClass sourceClass = ModelUtil.getEClass(sourceType);
+        EClass targetClass = ModelUtil.getEClass(targetType);
         
         if(relClass == null || sourceClass == null || targetClass == null) {
             throw new ArchiScriptException("Invalid type name."); //$NON-NLS-1$
         }
         
-        return ArchimateModelUtils.isValidRelationship(sourceClass, targetClass, relClass);
+        return RelationshipMatrix.getInstance().isValidRelationship(sourceClass, targetClass, relClass);
     }
 }
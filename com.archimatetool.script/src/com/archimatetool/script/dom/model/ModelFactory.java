@@ -5,7 +5,14 @@
  */
 package com.archimatetool.script.dom.model;
 
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
 import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EObject;
 import org.eclipse.osgi.util.NLS;
 import org.eclipse.ui.PlatformUI;
 
@@ -36,8 +43,9 @@ import com.archimatetool.model.IDiagramModelContainer;
 import com.archimatetool.model.IDiagramModelObject;
 import com.archimatetool.model.IDiagramModelReference;
 import com.archimatetool.model.IFolder;
-import com.archimatetool.model.util.ArchimateModelUtils;
+import com.archimatetool.model.IProperty;
 import com.archimatetool.script.ArchiScriptException;
+import com.archimatetool.script.commands.AddConceptsCommand;
 import com.archimatetool.script.commands.AddElementCommand;
 import com.archimatetool.script.commands.AddRelationshipCommand;
 import com.archimatetool.script.commands.CommandHandler;
@@ -61,7 +69,7 @@ class ModelFactory implements IModelConstants {
         // Ensure all components share the same model
         ModelUtil.checkComponentsInSameModel(model, parentFolder);
         
-        EClass eClass = (EClass)IArchimatePackage.eINSTANCE.getEClassifier(ModelUtil.getCamelCase(type));
+        EClass eClass = ModelUtil.getEClass(type);
         if(eClass != null && IArchimatePackage.eINSTANCE.getArchimateElement().isSuperTypeOf(eClass)) { // Check this is the correct type
             IArchimateElement element = (IArchimateElement)IArchimateFactory.eINSTANCE.create(eClass);
             element.setName(StringUtils.safeString(name));
@@ -89,9 +97,9 @@ class ModelFactory implements IModelConstants {
         // Ensure all components share the same model
         ModelUtil.checkComponentsInSameModel(model, parentFolder, source, target);
         
-        EClass eClass = (EClass)IArchimatePackage.eINSTANCE.getEClassifier(ModelUtil.getCamelCase(type));
+        EClass eClass = ModelUtil.getEClass(type);
         if(eClass != null && IArchimatePackage.eINSTANCE.getArchimateRelationship().isSuperTypeOf(eClass)) { // Check this is the correct type
-            if(!ArchimateModelUtils.isValidRelationship(source, target, eClass)) {
+            if(!RelationshipMatrix.getInstance().isValidRelationship(source, target, eClass)) {
                 throw new ArchiScriptException(NLS.bind(Messages.ArchimateModelProxy_3, type));
             }
 
@@ -111,6 +119,186 @@ class ModelFactory implements IModelConstants {
         throw new ArchiScriptException(NLS.bind(Messages.ArchimateModelProxy_1, type));
     }
 
+    /**
+     * Create many new elements in one command.
+     * Each spec is a map with "type" and optional "name", "documentation", "properties" (a map of key/values) and "folder" (a FolderProxy).
+     * All specs are checked before any elements are created.
+     * @return the new elements in the same order as the specs
+     */
+    static EObjectProxyCollection createElements(IArchimateModel model, List<?> specs) {
+        AddConceptsCommand cmd = new AddConceptsCommand(model);
+        EObjectProxyCollection result = new EObjectProxyCollection();
+        
+        for(int i = 0; i < specs.size(); i++) {
+            Map<?, ?> spec = getSpec(specs, i);
+            
+            String type = ModelUtil.getStringValueFromMap(spec, TYPE, null);
+            EClass eClass = getEClass(type, IArchimatePackage.eINSTANCE.getArchimateElement());
+            if(eClass == null) {
+                throw new ArchiScriptException(NLS.bind(Messages.ArchimateModelProxy_0, type));
+            }
+            
+            IArchimateElement element = (IArchimateElement)IArchimateFactory.eINSTANCE.create(eClass);
+            setSpecValues(element, spec);
+            
+            cmd.add(getSpecFolder(model, spec, element), element);
+            result.add(new ArchimateElementProxy(element));
+        }
+        
+        CommandHandler.executeCommand(cmd);
+        
+        return result;
+    }
+    
+    /**
+     * Create many new relationships in one command.
+     * Each spec is a map with "type", "source" and "target" and optional "name", "documentation", "properties" (a map of key/values) and "folder" (a FolderProxy).
+     * Source and target can be concept proxies or concept ids.
+     * All specs are checked before any relationships are created.
+     * @return the new relationships in the same order as the specs
+     */
+    static EObjectProxyCollection createRelationships(IArchimateModel model, List<?> specs) {
+        AddConceptsCommand cmd = new AddConceptsCommand(model);
+        EObjectProxyCollection result = new EObjectProxyCollection();
+        
+        RelationshipMatrix matrix = RelationshipMatrix.getInstance();
+        ConceptLookup concepts = new ConceptLookup(model);
+        
+        for(int i = 0; i < specs.size(); i++) {
+            Map<?, ?> spec = getSpec(specs, i);
+            
+            String type = ModelUtil.getStringValueFromMap(spec, TYPE, null);
+            EClass eClass = getEClass(type, IArchimatePackage.eINSTANCE.getArchimateRelationship());
+            if(eClass == null) {
+                throw new ArchiScriptException(NLS.bind(Messages.ArchimateModelProxy_1, type));
+            }
+            
+            IArchimateConcept source = concepts.get(spec.get(SOURCE));
+            IArchimateConcept target = concepts.get(spec.get(TARGET));
+            if(source == null || target == null) {
+                throw new ArchiScriptException(NLS.bind(Messages.ModelFactory_10, i));
+            }
+            
+            ModelUtil.checkComponentsInSameModel(model, source, target);
+            
+            if(!matrix.isValidRelationship(source, target, eClass)) {
+                throw new ArchiScriptException(NLS.bind(Messages.ArchimateModelProxy_3, type));
+            }
+            
+            IArchimateRelationship relationship = (IArchimateRelationship)IArchimateFactory.eINSTANCE.create(eClass);
+            setSpecValues(relationship, spec);
+            
+            // Set but don't connect yet, the command does that
+            relationship.setSource(source);
+            relationship.setTarget(target);
+            
+            // This relationship can be the source or target of a later one
+            concepts.addNewConcept(relationship);
+            
+            cmd.add(getSpecFolder(model, spec, relationship), relationship);
+            result.add(new ArchimateRelationshipProxy(relationship));
+        }
+        
+        CommandHandler.executeCommand(cmd);
+        
+        return result;
+    }
+    
+    private static Map<?, ?> getSpec(List<?> specs, int index) {
+        Object spec = specs.get(index);
+        if(!(spec instanceof Map)) {
+            throw new ArchiScriptException(NLS.bind(Messages.ModelFactory_11, index));
+        }
+        return (Map<?, ?>)spec;
+    }
+    
+    /**
+     * @return the EClass for type if it is a sub-type of superType, or null
+     */
+    private static EClass getEClass(String type, EClass superType) {
+        EClass eClass = ModelUtil.getEClass(type);
+        return eClass != null && superType.isSuperTypeOf(eClass) ? eClass : null;
+    }
+    
+    private static void setSpecValues(IArchimateConcept concept, Map<?, ?> spec) {
+        concept.setName(StringUtils.safeString(ModelUtil.getStringValueFromMap(spec, NAME, "")));
+        concept.setDocumentation(StringUtils.safeString(ModelUtil.getStringValueFromMap(spec, DOCUMENTATION, "")));
+        
+        if(spec.get(PROPERTIES) instanceof Map) {
+            for(Entry<?, ?> e : ((Map<?, ?>)spec.get(PROPERTIES)).entrySet()) {
+                IProperty property = IArchimateFactory.eINSTANCE.createProperty();
+                property.setKey(String.valueOf(e.getKey()));
+                property.setValue(e.getValue() == null ? "" : String.valueOf(e.getValue()));
+                concept.getProperties().add(property);
+            }
+        }
+    }
+    
+    /**
+     * @return the spec's folder if it is correct for concept, else the default folder
+     */
+    private static IFolder getSpecFolder(IArchimateModel model, Map<?, ?> spec, IArchimateConcept concept) {
+        if(spec.get(FOLDER) instanceof FolderProxy) {
+            IFolder folder = ((FolderProxy)spec.get(FOLDER)).getEObject();
+            ModelUtil.checkComponentsInSameModel(model, folder);
+            if(ModelUtil.isCorrectFolderForObject(folder, concept)) {
+                return folder;
+            }
+        }
+        
+        return model.getDefaultFolderForObject(concept);
+    }
+    
+    /**
+     * Finds the concepts given as the source or target of a spec
+     */
+    private static class ConceptLookup {
+        private IArchimateModel model;
+        
+        // The model's concepts by id, indexed the first time an id is used
+        private Map<String, IArchimateConcept> modelConcepts;
+        
+        // Concepts created by earlier specs by id
+        private Map<String, IArchimateConcept> newConcepts = new HashMap<>();
+        
+        ConceptLookup(IArchimateModel model) {
+            this.model = model;
+        }
+        
+        void addNewConcept(IArchimateConcept concept) {
+            newConcepts.put(concept.getId(), concept);
+        }
+        
+        /**
+         * @return the concept for a concept proxy or concept id, or null
+         */
+        IArchimateConcept get(Object value) {
+            if(value instanceof ArchimateConceptProxy) {
+                return ((ArchimateConceptProxy)value).getEObject();
+            }
+            
+            if(value instanceof String) {
+                IArchimateConcept concept = newConcepts.get(value);
+                return concept != null ? concept : getModelConcepts().get(value);
+            }
+            
+            return null;
+        }
+        
+        private Map<String, IArchimateConcept> getModelConcepts() {
+            if(modelConcepts == null) {
+                modelConcepts = new HashMap<>();
+                for(Iterator<EObject> iter = model.eAllContents(); iter.hasNext();) {
+                    EObject eObject = iter.next();
+                    if(eObject instanceof IArchimateConcept) {
+                        modelConcepts.put(((IArchimateConcept)eObject).getId(), (IArchimateConcept)eObject);
+                    }
+                }
+            }
+            return modelConcepts;
+        }
+    }
+    
     /**
      * Create a new FolderProxy
      */
@@ -5,13 +5,18 @@
  */
 package com.archimatetool.script.dom.model;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
 import org.eclipse.emf.ecore.EObject;
+import org.eclipse.osgi.util.NLS;
 import org.eclipse.ui.PlatformUI;
 
 import com.archimatetool.editor.model.DiagramModelUtils;
@@ -28,7 +33,6 @@ import com.archimatetool.model.IBounds;
 import com.archimatetool.model.IDiagramModelContainer;
 import com.archimatetool.model.IDiagramModelObject;
 import com.archimatetool.model.IFolder;
-import com.archimatetool.model.util.ArchimateModelUtils;
 import com.archimatetool.script.ArchiScriptException;
 
 /**
@@ -38,6 +42,9 @@ import com.archimatetool.script.ArchiScriptException;
  */
 class ModelUtil {
     
+    // Cache of type names to EClasses
+    private static final Map<String, EClass> eClassCache = new ConcurrentHashMap<>();
+    
     private ModelUtil() {
     }
     
@@ -49,15 +56,20 @@ class ModelUtil {
      * @return the parent container, which might be the View itself, bounds x,y will be set to the relative co-ords of the parent
      */
     static IDiagramModelContainer getNestedParentAndBounds(IDiagramModelContainer parent, IBounds bounds) {
-        // Get the actual parent if there is one that occupies that space
-        for(Iterator<EObject> iter = parent.eAllContents(); iter.hasNext();) {
-            EObject eObject = iter.next();
-            
-            if(eObject instanceof IDiagramModelContainer) {
-                IDiagramModelObject dmo = (IDiagramModelObject)eObject;
-                IBounds dmoBounds = DiagramModelUtils.getAbsoluteBounds(dmo);
-                if(DiagramModelUtils.outerBoundsContainsInnerBounds(dmoBounds, bounds)) {
-                    parent = (IDiagramModelContainer)eObject;
+        // Get the actual parent if there is one that occupies that space, using the View's spatial index
+        if(parent.getDiagramModel() != null) {
+            parent = DiagramModelIndex.get(parent.getDiagramModel()).getNestedParent(parent, bounds);
+        }
+        else {
+            for(Iterator<EObject> iter = parent.eAllContents(); iter.hasNext();) {
+                EObject eObject = iter.next();
+                
+                if(eObject instanceof IDiagramModelContainer) {
+                    IDiagramModelObject dmo = (IDiagramModelObject)eObject;
+                    IBounds dmoBounds = DiagramModelUtils.getAbsoluteBounds(dmo);
+                    if(DiagramModelUtils.outerBoundsContainsInnerBounds(dmoBounds, bounds)) {
+                        parent = (IDiagramModelContainer)eObject;
+                    }
                 }
             }
         }
@@ -136,25 +148,26 @@ class ModelUtil {
      * @return false if trying to set an invalid type
      */
     static boolean isAllowedSetType(IArchimateConcept concept, String type) {
-        EClass eClass = (EClass)IArchimatePackage.eINSTANCE.getEClassifier(getCamelCase(type));
+        EClass eClass = getEClass(type);
+        RelationshipMatrix matrix = RelationshipMatrix.getInstance();
         
         // Check source relationships
         for(IArchimateRelationship rel : concept.getSourceRelationships()) {
-            if(!ArchimateModelUtils.isValidRelationship(eClass, rel.getTarget().eClass(), rel.eClass())) {
+            if(!matrix.isValidRelationship(eClass, rel.getTarget().eClass(), rel.eClass())) {
                 return false;
             }
         }
         
         // Check target relationships
         for(IArchimateRelationship rel : concept.getTargetRelationships()) {
-            if(!ArchimateModelUtils.isValidRelationship(rel.getSource().eClass(), eClass, rel.eClass())) {
+            if(!matrix.isValidRelationship(rel.getSource().eClass(), eClass, rel.eClass())) {
                 return false;
             }
         }
         
         // If a relationship, check ends
         if(concept instanceof IArchimateRelationship) {
-            if(!ArchimateModelUtils.isValidRelationship(((IArchimateRelationship)concept).getSource(),
+            if(!matrix.isValidRelationship(((IArchimateRelationship)concept).getSource(),
                     ((IArchimateRelationship)concept).getTarget(), eClass)) {
                 return false;
             }
@@ -185,6 +198,27 @@ class ModelUtil {
         }
     }
     
+    /**
+     * @return the EClass in the ArchiMate package for a type name such as "business-actor", or null.
+     * Results are cached so that the name is only converted once.
+     */
+    static EClass getEClass(String type) {
+        if(type == null) {
+            return null;
+        }
+        
+        EClass eClass = eClassCache.get(type);
+        if(eClass == null) {
+            EClassifier eClassifier = IArchimatePackage.eINSTANCE.getEClassifier(getCamelCase(type));
+            if(eClassifier instanceof EClass) {
+                eClass = (EClass)eClassifier;
+                eClassCache.put(type, eClass);
+            }
+        }
+        
+        return eClass;
+    }
+    
     static String getKebabCase(String string) {
         return string.replaceAll("([a-z])([A-Z]+)", "$1-$2").toLowerCase(); //$NON-NLS-1$ //$NON-NLS-2$
     }
@@ -221,6 +255,73 @@ class ModelUtil {
     static String getStringValueFromMap(Map<?, ?> map, String key, String defaultValue) {
         return (map != null && map.get(key) instanceof String) ? (String)map.get(key) : defaultValue;
     }
+
+    /**
+     * Get a double value from a property map.
+     * @param map
+     * @param key
+     * @param defaultValue
+     * @return
+     */
+    static double getDoubleValueFromMap(Map<?, ?> map, String key, double defaultValue) {
+        return (map != null && map.get(key) instanceof Number) ? ((Number)map.get(key)).doubleValue() : defaultValue;
+    }
+
+    /**
+     * Get a boolean value from a property map.
+     * @param map
+     * @param key
+     * @param defaultValue
+     * @return
+     */
+    static boolean getBooleanValueFromMap(Map<?, ?> map, String key, boolean defaultValue) {
+        return (map != null && map.get(key) instanceof Boolean) ? (Boolean)map.get(key) : defaultValue;
+    }
+    
+    /**
+     * Convert an int array, an array or list of numbers, or a JavaScript array of numbers to an int array
+     * @param value
+     * @return the int array
+     * @throws ArchiScriptException if value is not an array or list of numbers
+     */
+    static int[] toIntArray(Object value) {
+        if(value instanceof int[]) {
+            return (int[])value;
+        }
+        
+        List<?> list = null;
+        
+        if(value instanceof List<?>) {
+            list = (List<?>)value;
+        }
+        else if(value instanceof Object[]) {
+            list = Arrays.asList((Object[])value);
+        }
+        // A JavaScript array in Nashorn is a Map with a length and a value for each index
+        else if(value instanceof Map<?, ?> && ((Map<?, ?>)value).get("length") instanceof Number) { //$NON-NLS-1$
+            Map<?, ?> map = (Map<?, ?>)value;
+            int length = ((Number)map.get("length")).intValue(); //$NON-NLS-1$
+            List<Object> values = new ArrayList<>(length);
+            for(int i = 0; i < length; i++) {
+                values.add(map.get(String.valueOf(i)));
+            }
+            list = values;
+        }
+        
+        if(list == null) {
+            throw new ArchiScriptException(Messages.ModelUtil_0);
+        }
+        
+        int[] array = new int[list.size()];
+        for(int i = 0; i < array.length; i++) {
+            if(!(list.get(i) instanceof Number)) {
+                throw new ArchiScriptException(NLS.bind(Messages.ModelUtil_1, i));
+            }
+            array[i] = ((Number)list.get(i)).intValue();
+        }
+        
+        return array;
+    }
     
     /**
      * Check all components belong to the same model
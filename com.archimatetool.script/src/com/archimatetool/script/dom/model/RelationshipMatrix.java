@@ -0,0 +1,119 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.EClassifier;
+
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IArchimatePackage;
+import com.archimatetool.model.util.ArchimateModelUtils;
+
+/**
+ * Table of valid relationships between all ArchiMate concept types, built once from ArchimateModelUtils.
+ *
+ * For each pair of (source, target) concept types it holds a bit set of the allowed relationship types
+ * so that a check is two array lookups and a bit test.
+ */
+class RelationshipMatrix {
+
+    private static RelationshipMatrix instance;
+
+    // Index into the table for each concept type by classifier id, or -1 if not a concept type
+    private int[] conceptIndexes;
+
+    // Bit for each relationship type by classifier id, or 0 if not a relationship type
+    private long[] relationshipBits;
+
+    // Allowed relationship bits for source index * number of concepts + target index
+    private long[] table;
+
+    private int conceptCount;
+
+    static synchronized RelationshipMatrix getInstance() {
+        if(instance == null) {
+            instance = new RelationshipMatrix();
+        }
+        return instance;
+    }
+
+    private RelationshipMatrix() {
+        List<EClass> concepts = new ArrayList<>();
+        List<EClass> relationships = new ArrayList<>();
+
+        int maxId = 0;
+
+        for(EClassifier eClassifier : IArchimatePackage.eINSTANCE.getEClassifiers()) {
+            if(eClassifier instanceof EClass && !((EClass)eClassifier).isAbstract()
+                    && IArchimatePackage.eINSTANCE.getArchimateConcept().isSuperTypeOf((EClass)eClassifier)) {
+                concepts.add((EClass)eClassifier);
+
+                if(IArchimatePackage.eINSTANCE.getArchimateRelationship().isSuperTypeOf((EClass)eClassifier)) {
+                    relationships.add((EClass)eClassifier);
+                }
+            }
+            maxId = Math.max(maxId, eClassifier.getClassifierID());
+        }
+
+        conceptCount = concepts.size();
+
+        conceptIndexes = new int[maxId + 1];
+        Arrays.fill(conceptIndexes, -1);
+        for(int i = 0; i < conceptCount; i++) {
+            conceptIndexes[concepts.get(i).getClassifierID()] = i;
+        }
+
+        relationshipBits = new long[maxId + 1];
+        for(int i = 0; i < relationships.size(); i++) {
+            relationshipBits[relationships.get(i).getClassifierID()] = 1L << i;
+        }
+
+        table = new long[conceptCount * conceptCount];
+        for(int s = 0; s < conceptCount; s++) {
+            for(int t = 0; t < conceptCount; t++) {
+                long bits = 0;
+                for(EClass relationship : relationships) {
+                    if(ArchimateModelUtils.isValidRelationship(concepts.get(s), concepts.get(t), relationship)) {
+                        bits |= relationshipBits[relationship.getClassifierID()];
+                    }
+                }
+                table[s * conceptCount + t] = bits;
+            }
+        }
+    }
+
+    /**
+     * @return true if a relationship of type relationshipType is allowed between concepts of type sourceType and targetType
+     */
+    boolean isValidRelationship(EClass sourceType, EClass targetType, EClass relationshipType) {
+        if(sourceType == null || targetType == null || relationshipType == null
+                || sourceType.getEPackage() != IArchimatePackage.eINSTANCE
+                || targetType.getEPackage() != IArchimatePackage.eINSTANCE
+                || relationshipType.getEPackage() != IArchimatePackage.eINSTANCE) {
+            return false;
+        }
+
+        int s = conceptIndexes[sourceType.getClassifierID()];
+        int t = conceptIndexes[targetType.getClassifierID()];
+
+        if(s == -1 || t == -1) {
+            return false;
+        }
+
+        return (table[s * conceptCount + t] & relationshipBits[relationshipType.getClassifierID()]) != 0;
+    }
+
+    /**
+     * @return true if a relationship of type relationshipType is allowed between source and target
+     */
+    boolean isValidRelationship(IArchimateConcept source, IArchimateConcept target, EClass relationshipType) {
+        return source != null && target != null && isValidRelationship(source.eClass(), target.eClass(), relationshipType);
+    }
+}
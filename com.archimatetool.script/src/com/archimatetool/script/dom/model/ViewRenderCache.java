@@ -0,0 +1,305 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+
+import com.archimatetool.editor.ui.textrender.TextRenderer;
+import com.archimatetool.editor.utils.StringUtils;
+import com.archimatetool.model.IArchimateConcept;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IFeature;
+import com.archimatetool.model.IIdentifier;
+import com.archimatetool.model.INameable;
+
+/**
+ * On disk cache of rendered View images keyed by a fingerprint of the View's content.
+ *
+ * The fingerprint is a digest of the attributes of every object in the View (bounds, styles, features, text and so on),
+ * the attributes and properties of the concepts they reference and the render options.
+ * Views with label expressions that refer to objects outside the diagram object itself can't be fingerprinted and are not cached.
+ *
+ * Each cached image is a file named by its fingerprint. When the files take more than the maximum size
+ * the least recently used ones are deleted.
+ */
+class ViewRenderCache {
+
+    static final int DEFAULT_SIZE_MB = 256;
+
+    private static final String HEX = "0123456789abcdef"; //$NON-NLS-1$
+
+    // A label expression with a prefix such as $model{name} or $source{name}
+    private static final Pattern OTHER_OBJECT_EXPRESSION = Pattern.compile("\\$[a-zA-Z]+\\{"); //$NON-NLS-1$
+
+    // Guarded by the class
+    private static Map<File, ViewRenderCache> caches = new HashMap<>();
+
+    // The rest of the state is guarded by the cache instance
+    private File folder;
+    private long maxSize;
+    private long size;
+
+    // File name -> file size in least recently used order
+    private LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * @param options if this has a "cache" folder then the cache for that folder is returned. The "cacheSize" option is the maximum size in megabytes
+     * @return the cache or null if there is no "cache" option
+     */
+    static synchronized ViewRenderCache get(Map<?, ?> options) throws IOException {
+        String path = ModelUtil.getStringValueFromMap(options, "cache", null); //$NON-NLS-1$
+        if(path == null) {
+            return null;
+        }
+
+        File folder = new File(path).getCanonicalFile();
+        long maxSize = Math.max(0, ModelUtil.getIntValueFromMap(options, "cacheSize", DEFAULT_SIZE_MB)) * 1024L * 1024L; //$NON-NLS-1$
+
+        ViewRenderCache cache = caches.get(folder);
+        if(cache == null) {
+            cache = new ViewRenderCache(folder);
+            caches.put(folder, cache);
+        }
+
+        cache.setMaxSize(maxSize);
+
+        return cache;
+    }
+
+    private ViewRenderCache(File folder) throws IOException {
+        this.folder = folder;
+        Files.createDirectories(folder.toPath());
+
+        // Add existing files, oldest first
+        File[] files = folder.listFiles(File::isFile);
+        if(files != null) {
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+            for(File file : files) {
+                entries.put(file.getName(), file.length());
+                size += file.length();
+            }
+        }
+    }
+
+    /**
+     * @return the fingerprint of a View rendered with the given parameters, or null if the View can't be cached
+     */
+    String getFingerprint(IDiagramModel dm, Object... parameters) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1"); //$NON-NLS-1$
+        }
+        catch(NoSuchAlgorithmException ex) {
+            return null;
+        }
+
+        for(Object parameter : parameters) {
+            update(digest, parameter);
+        }
+
+        if(!updateObject(digest, dm)) {
+            return null;
+        }
+
+        for(Iterator<EObject> iter = dm.eAllContents(); iter.hasNext();) {
+            if(!updateObject(digest, iter.next())) {
+                return null;
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+        for(byte b : digest.digest()) {
+            sb.append(HEX.charAt((b >> 4) & 0xf)).append(HEX.charAt(b & 0xf));
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Add an object in the View and the objects it refers to
+     * @return false if the object can't be fingerprinted
+     */
+    private boolean updateObject(MessageDigest digest, EObject eObject) {
+        if(eObject instanceof IFeature && TextRenderer.FEATURE_NAME.equals(((IFeature)eObject).getName())
+                && OTHER_OBJECT_EXPRESSION.matcher(StringUtils.safeString(((IFeature)eObject).getValue())).find()) {
+            return false;
+        }
+
+        updateAttributes(digest, eObject);
+
+        for(EReference reference : eObject.eClass().getEAllReferences()) {
+            if(reference.isContainment() || reference.isContainer() || reference.isTransient()) {
+                continue;
+            }
+
+            Object value = eObject.eGet(reference);
+            if(value instanceof Collection) {
+                for(Object o : (Collection<?>)value) {
+                    updateReference(digest, o);
+                }
+            }
+            else {
+                updateReference(digest, value);
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Add an object referred to by an object in the View.
+     * Concepts add their attributes and properties, other objects add their id and name.
+     */
+    private void updateReference(MessageDigest digest, Object object) {
+        if(object instanceof IArchimateConcept) {
+            IArchimateConcept concept = (IArchimateConcept)object;
+            updateAttributes(digest, concept);
+            for(EObject child : concept.eContents()) {
+                updateAttributes(digest, child);
+            }
+        }
+        else if(object instanceof IIdentifier) {
+            update(digest, ((IIdentifier)object).getId());
+            if(object instanceof INameable) {
+                update(digest, ((INameable)object).getName());
+            }
+        }
+    }
+
+    private void updateAttributes(MessageDigest digest, EObject eObject) {
+        update(digest, eObject.eClass().getName());
+
+        for(EAttribute attribute : eObject.eClass().getEAllAttributes()) {
+            if(!attribute.isTransient()) {
+                update(digest, eObject.eGet(attribute));
+            }
+        }
+    }
+
+    private void update(MessageDigest digest, Object value) {
+        digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte)0);
+    }
+
+    /**
+     * @return the cached image bytes for the fingerprint, or null if there are none
+     */
+    synchronized byte[] getBytes(String fingerprint, String extension) throws IOException {
+        File file = getFile(fingerprint, extension);
+        return file != null ? Files.readAllBytes(file.toPath()) : null;
+    }
+
+    /**
+     * Copy the cached image for the fingerprint to target
+     * @return false if there is no cached image
+     */
+    synchronized boolean copyTo(String fingerprint, String extension, File target) throws IOException {
+        File file = getFile(fingerprint, extension);
+        if(file == null) {
+            return false;
+        }
+
+        Files.copy(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return true;
+    }
+
+    /**
+     * @return the cached file for the fingerprint, or null if there is none
+     */
+    private File getFile(String fingerprint, String extension) {
+        String name = fingerprint + extension;
+
+        if(entries.get(name) == null) {
+            return null;
+        }
+
+        File file = new File(folder, name);
+
+        // Deleted outside of the cache
+        if(!file.isFile()) {
+            size -= entries.remove(name);
+            return null;
+        }
+
+        try {
+            Files.setLastModifiedTime(file.toPath(), FileTime.fromMillis(System.currentTimeMillis()));
+        }
+        catch(IOException ex) {
+            // Only used for the order when the cache is next created
+        }
+
+        return file;
+    }
+
+    /**
+     * Copy an image file into the cache
+     */
+    synchronized void put(String fingerprint, String extension, File source) throws IOException {
+        String name = fingerprint + extension;
+        File file = new File(folder, name);
+
+        Files.copy(source.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        add(name, file.length());
+    }
+
+    /**
+     * Write image bytes to the cache
+     */
+    synchronized void put(String fingerprint, String extension, byte[] bytes) throws IOException {
+        String name = fingerprint + extension;
+        File file = new File(folder, name);
+
+        Files.write(file.toPath(), bytes);
+        add(name, bytes.length);
+    }
+
+    private void add(String name, long length) {
+        Long old = entries.put(name, length);
+        if(old != null) {
+            size -= old;
+        }
+        size += length;
+
+        evict();
+    }
+
+    private synchronized void setMaxSize(long maxSize) {
+        this.maxSize = maxSize;
+        evict();
+    }
+
+    /**
+     * Delete the least recently used files until the cache is no larger than the maximum size.
+     * Only called while holding the lock on this cache.
+     */
+    private void evict() {
+        for(Iterator<Map.Entry<String, Long>> iter = entries.entrySet().iterator(); size > maxSize && iter.hasNext();) {
+            Map.Entry<String, Long> entry = iter.next();
+            new File(folder, entry.getKey()).delete();
+            size -= entry.getValue();
+            iter.remove();
+        }
+    }
+}
@@ -0,0 +1,315 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import org.eclipse.core.runtime.preferences.IEclipsePreferences;
+import org.eclipse.core.runtime.preferences.InstanceScope;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.ImageLoader;
+import org.osgi.service.prefs.BackingStoreException;
+
+import com.archimatetool.editor.ArchiPlugin;
+import com.archimatetool.editor.diagram.util.DiagramUtils;
+import com.archimatetool.editor.ui.ImageFactory;
+import com.archimatetool.editor.utils.FileUtils;
+import com.archimatetool.editor.utils.StringUtils;
+import com.archimatetool.model.IDiagramModel;
+
+/**
+ * Renders Views as images.
+ *
+ * Views must be drawn on the UI thread but the image data can be encoded on any thread,
+ * so when rendering many Views each one is drawn in turn and then encoded and written to its file by a pool of workers.
+ * The number of drawn images waiting to be encoded is limited so that memory use stays bounded.
+ * If there is a cache, Views that have not changed since they were cached are not drawn again.
+ */
+class ViewRenderer {
+
+    static final int DEFAULT_SCALE = 1;
+    static final int DEFAULT_MARGIN = 10;
+
+    private int scale;
+    private int margin;
+    private int threads;
+    private boolean useId;
+    private ViewRenderCache cache;
+
+    // The user's Archi preferences when this was created, which set the default colours and fonts that Views are drawn with
+    private String editorPreferences;
+
+    /**
+     * @param options can be "scale" (default 1), "margin" (default 10), "threads" (number of encoding threads, default the number of processors),
+     *        "fileName" ("name" to name files by View name or "id" to name them by View id, default "name"),
+     *        "cache" (a folder to cache rendered images in) and "cacheSize" (maximum size of the cache in megabytes, default 256)
+     * @throws IOException if the cache folder can't be created
+     */
+    ViewRenderer(Map<?, ?> options) throws IOException {
+        scale = ModelUtil.getIntValueFromMap(options, "scale", DEFAULT_SCALE); //$NON-NLS-1$
+        margin = ModelUtil.getIntValueFromMap(options, "margin", DEFAULT_MARGIN); //$NON-NLS-1$
+        threads = Math.max(1, ModelUtil.getIntValueFromMap(options, "threads", Runtime.getRuntime().availableProcessors())); //$NON-NLS-1$
+        useId = "id".equals(ModelUtil.getStringValueFromMap(options, "fileName", "name")); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        cache = ViewRenderCache.get(options);
+
+        if(cache != null) {
+            editorPreferences = getEditorPreferences();
+        }
+    }
+
+    /**
+     * @return the encoded image of a View, from the cache if it has not changed since it was last rendered
+     */
+    byte[] renderImageBytes(IDiagramModel dm, int imgFormat) throws IOException {
+        String extension = getFileExtension(imgFormat);
+        String fingerprint = getFingerprint(dm, imgFormat);
+
+        if(fingerprint != null) {
+            byte[] bytes = cache.getBytes(fingerprint, extension);
+            if(bytes != null) {
+                return bytes;
+            }
+        }
+
+        try(ByteArrayOutputStream stream = new ByteArrayOutputStream(1024)) {
+            save(renderImageData(dm), imgFormat, stream);
+            byte[] bytes = stream.toByteArray();
+
+            if(fingerprint != null) {
+                cache.put(fingerprint, extension, bytes);
+            }
+
+            return bytes;
+        }
+    }
+
+    /**
+     * @return the fingerprint of the View, the render options and the user's preferences, or null if there is no cache or the View can't be cached
+     */
+    private String getFingerprint(IDiagramModel dm, int imgFormat) {
+        return cache != null ? cache.getFingerprint(dm, imgFormat, scale, margin, ImageFactory.getImageDeviceZoom(), editorPreferences) : null;
+    }
+
+    /**
+     * The default fill and line colours, derived line colours, default font and other drawing options are user preferences
+     * so a cached image is only valid for the preferences it was drawn with
+     * @return the Archi preferences that the user has set, sorted by key
+     */
+    static String getEditorPreferences() {
+        StringBuilder sb = new StringBuilder();
+
+        try {
+            IEclipsePreferences preferences = InstanceScope.INSTANCE.getNode(ArchiPlugin.INSTANCE.getBundle().getSymbolicName());
+            String[] keys = preferences.keys();
+            Arrays.sort(keys);
+            for(String key : keys) {
+                sb.append(key).append('=').append(preferences.get(key, "")).append('\n'); //$NON-NLS-1$
+            }
+        }
+        catch(BackingStoreException ex) {
+            ex.printStackTrace();
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * @return the image data of a View
+     */
+    ImageData renderImageData(IDiagramModel dm) {
+        Image image = DiagramUtils.createImage(dm, scale, margin);
+
+        try {
+            return image.getImageData(ImageFactory.getImageDeviceZoom());
+        }
+        finally {
+            image.dispose();
+        }
+    }
+
+    /**
+     * Render each View in views and write it to a file in folder
+     * @param views the Views to render
+     * @param folder the folder to write to. This is created if needed
+     * @param format One of "PNG", "BMP", "GIF", "JPG" or "JPEG"
+     * @return the files written in the order of views
+     * @throws IOException if a file could not be written
+     */
+    List<File> renderViews(List<IDiagramModel> views, File folder, String format) throws IOException {
+        int imgFormat = getImageFormat(format);
+        String extension = getFileExtension(imgFormat);
+
+        Files.createDirectories(folder.toPath());
+
+        List<File> files = new ArrayList<>();
+        List<Future<?>> futures = new ArrayList<>();
+        Set<String> fileNames = new HashSet<>();
+
+        // Drawn images waiting to be encoded
+        Semaphore pending = new Semaphore(threads * 2);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+
+        try {
+            for(IDiagramModel dm : views) {
+                File file = new File(folder, getFileName(dm, extension, fileNames));
+                files.add(file);
+
+                String fingerprint = getFingerprint(dm, imgFormat);
+
+                // Unchanged since it was cached so copy the cached file
+                if(fingerprint != null && cache.copyTo(fingerprint, extension, file)) {
+                    continue;
+                }
+
+                pending.acquire();
+
+                ImageData imageData;
+                try {
+                    imageData = renderImageData(dm);
+                }
+                catch(RuntimeException ex) {
+                    pending.release();
+                    throw ex;
+                }
+
+                futures.add(executor.submit(() -> {
+                    try {
+                        writeImage(imageData, imgFormat, file.toPath());
+                    }
+                    finally {
+                        pending.release();
+                    }
+
+                    if(fingerprint != null) {
+                        cache.put(fingerprint, extension, file);
+                    }
+
+                    return null;
+                }));
+            }
+
+            for(Future<?> future : futures) {
+                future.get();
+            }
+        }
+        catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IOException(ex);
+        }
+        catch(ExecutionException ex) {
+            if(ex.getCause() instanceof IOException) {
+                throw (IOException)ex.getCause();
+            }
+            throw new IOException(ex.getCause());
+        }
+        finally {
+            executor.shutdownNow();
+        }
+
+        return files;
+    }
+
+    /**
+     * Encode imageData and write it straight to file
+     */
+    static void writeImage(ImageData imageData, int imgFormat, Path file) throws IOException {
+        try(OutputStream out = new BufferedOutputStream(Channels.newOutputStream(FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)), 64 * 1024)) {
+            save(imageData, imgFormat, out);
+        }
+    }
+
+    /**
+     * Encode imageData to out
+     */
+    static void save(ImageData imageData, int imgFormat, OutputStream out) {
+        ImageLoader loader = new ImageLoader();
+        loader.data = new ImageData[] { imageData };
+        loader.save(out, imgFormat);
+    }
+
+    /**
+     * @return a unique file name for the View
+     */
+    private String getFileName(IDiagramModel dm, String extension, Set<String> fileNames) {
+        String name = useId ? dm.getId() : FileUtils.getValidFileName(StringUtils.safeString(dm.getName()).trim());
+
+        if(!StringUtils.isSet(name)) {
+            name = dm.getId();
+        }
+
+        String fileName = name + extension;
+
+        for(int i = 2; !fileNames.add(fileName.toLowerCase()); i++) {
+            fileName = name + " (" + i + ")" + extension; //$NON-NLS-1$ //$NON-NLS-2$
+        }
+
+        return fileName;
+    }
+
+    /**
+     * @param format One of "PNG", "BMP", "GIF", "JPG" or "JPEG"
+     * @return the SWT image format, or PNG if format is not known
+     */
+    static int getImageFormat(String format) {
+        switch(format.toUpperCase()) {
+            case "PNG": //$NON-NLS-1$
+                return SWT.IMAGE_PNG;
+
+            case "BMP": //$NON-NLS-1$
+                return SWT.IMAGE_BMP;
+
+            case "GIF": //$NON-NLS-1$
+                return SWT.IMAGE_GIF;
+
+            case "JPG": //$NON-NLS-1$
+            case "JPEG": //$NON-NLS-1$
+                return SWT.IMAGE_JPEG;
+
+            default:
+                return SWT.IMAGE_PNG;
+        }
+    }
+
+    private static String getFileExtension(int imgFormat) {
+        switch(imgFormat) {
+            case SWT.IMAGE_BMP:
+                return ".bmp"; //$NON-NLS-1$
+
+            case SWT.IMAGE_GIF:
+                return ".gif"; //$NON-NLS-1$
+
+            case SWT.IMAGE_JPEG:
+                return ".jpg"; //$NON-NLS-1$
+
+            default:
+                return ".png"; //$NON-NLS-1$
+        }
+    }
+}
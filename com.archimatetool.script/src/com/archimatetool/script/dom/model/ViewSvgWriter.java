@@ -0,0 +1,583 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.model;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.FontData;
+import org.eclipse.swt.graphics.RGB;
+
+import com.archimatetool.editor.ui.ColorFactory;
+import com.archimatetool.editor.ui.FontFactory;
+import com.archimatetool.editor.ui.textrender.TextRenderer;
+import com.archimatetool.editor.utils.StringUtils;
+import com.archimatetool.model.IAccessRelationship;
+import com.archimatetool.model.IArchimateModelObject;
+import com.archimatetool.model.IArchimateRelationship;
+import com.archimatetool.model.IAssociationRelationship;
+import com.archimatetool.model.IBounds;
+import com.archimatetool.model.IConnectable;
+import com.archimatetool.model.IDiagramModel;
+import com.archimatetool.model.IDiagramModelArchimateComponent;
+import com.archimatetool.model.IDiagramModelBendpoint;
+import com.archimatetool.model.IDiagramModelConnection;
+import com.archimatetool.model.IDiagramModelContainer;
+import com.archimatetool.model.IDiagramModelObject;
+import com.archimatetool.model.IDiagramModelReference;
+import com.archimatetool.model.IFontAttribute;
+import com.archimatetool.model.ILineObject;
+import com.archimatetool.model.INameable;
+import com.archimatetool.model.ITextContent;
+
+/**
+ * Writes a View as SVG straight from the diagram model.
+ *
+ * Objects are drawn as rectangles with their text and connections as lines with markers for the type of relationship.
+ * This is a plain drawing of the View rather than a copy of the figures in the diagram editor, but it needs no image of the View
+ * so memory use does not depend on the size of the View. Each object has a class attribute with its type so that the SVG can be styled with CSS.
+ */
+class ViewSvgWriter {
+
+    static final int DEFAULT_MARGIN = 10;
+
+    // Size of objects with a default width or height
+    private static final int DEFAULT_WIDTH = 120;
+    private static final int DEFAULT_HEIGHT = 55;
+
+    private static final String DEFAULT_LINE_COLOR = "#5c5c5c"; //$NON-NLS-1$
+    private static final String DEFAULT_FONT_COLOR = "#000000"; //$NON-NLS-1$
+
+    private IDiagramModel dm;
+    private int margin;
+    private double scale;
+
+    private FontData defaultFontData = FontFactory.getDefaultUserViewFontData();
+
+    private Writer writer;
+
+    // Ids of the markers that have been written. SVG 1.1 markers can't take the colour of the line so there is one for each type and colour
+    private Set<String> markerIds = new HashSet<>();
+
+    /**
+     * @param options can be "margin" (default 10) and "scale" (the size of the SVG compared to the View, default 1)
+     */
+    ViewSvgWriter(IDiagramModel dm, Map<?, ?> options) {
+        this.dm = dm;
+        margin = ModelUtil.getIntValueFromMap(options, "margin", DEFAULT_MARGIN); //$NON-NLS-1$
+        scale = Math.max(0.01, ModelUtil.getDoubleValueFromMap(options, "scale", 1)); //$NON-NLS-1$
+    }
+
+    /**
+     * Write the View as SVG to out. out is not closed.
+     */
+    void write(OutputStream out) throws IOException {
+        writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+
+        int[] extent = getExtent();
+        int x = extent[0] - margin;
+        int y = extent[1] - margin;
+        int width = extent[2] - extent[0] + margin * 2;
+        int height = extent[3] - extent[1] + margin * 2;
+
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"); //$NON-NLS-1$
+        writer.write("<svg xmlns=\"http://www.w3.org/2000/svg\" version=\"1.1\""); //$NON-NLS-1$
+        writer.write(" width=\"" + Math.round(width * scale) + "\" height=\"" + Math.round(height * scale) + "\""); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        writer.write(" viewBox=\"" + x + " " + y + " " + width + " " + height + "\">\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        writer.write("<title>" + escape(dm.getName()) + "</title>\n"); //$NON-NLS-1$ //$NON-NLS-2$
+
+        // Objects are drawn in tree order so that children are on top of their parents
+        for(IDiagramModelObject dmo : dm.getChildren()) {
+            writeObject(dmo, 0, 0);
+        }
+
+        // Connections are drawn on top of all objects
+        for(Iterator<EObject> iter = dm.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+            if(eObject instanceof IDiagramModelConnection) {
+                writeConnection((IDiagramModelConnection)eObject);
+            }
+        }
+
+        writer.write("</svg>\n"); //$NON-NLS-1$
+        writer.flush();
+    }
+
+    /**
+     * @return the minimum x and y and maximum x and y of all objects and bendpoints in the View
+     */
+    private int[] getExtent() {
+        int[] extent = { Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MIN_VALUE, Integer.MIN_VALUE };
+
+        for(Iterator<EObject> iter = dm.eAllContents(); iter.hasNext();) {
+            EObject eObject = iter.next();
+
+            if(eObject instanceof IDiagramModelObject) {
+                int[] bounds = getAbsoluteBounds((IDiagramModelObject)eObject);
+                addToExtent(extent, bounds[0], bounds[1]);
+                addToExtent(extent, bounds[0] + bounds[2], bounds[1] + bounds[3]);
+            }
+            else if(eObject instanceof IDiagramModelConnection) {
+                for(double[] point : getBendpoints((IDiagramModelConnection)eObject)) {
+                    addToExtent(extent, (int)point[0], (int)point[1]);
+                }
+            }
+        }
+
+        // Empty View
+        if(extent[0] > extent[2]) {
+            return new int[] { 0, 0, 0, 0 };
+        }
+
+        return extent;
+    }
+
+    private void addToExtent(int[] extent, int x, int y) {
+        extent[0] = Math.min(extent[0], x);
+        extent[1] = Math.min(extent[1], y);
+        extent[2] = Math.max(extent[2], x);
+        extent[3] = Math.max(extent[3], y);
+    }
+
+    /**
+     * Write the marker of the given type in the given colour if it has not been written already
+     * @param start if true the marker is for the start of the line and is drawn mirrored so that it points to the source
+     * @return the marker's id
+     */
+    private String writeMarker(String type, String color, boolean start) throws IOException {
+        String id = type + (start ? "-start-" : "-") + color.substring(1); //$NON-NLS-1$ //$NON-NLS-2$
+
+        if(markerIds.add(id)) {
+            String path, fill;
+
+            switch(type) {
+                case "arrow": //$NON-NLS-1$
+                    path = "M0,0 L10,5 L0,10"; //$NON-NLS-1$
+                    fill = "none"; //$NON-NLS-1$
+                    break;
+
+                case "arrow-filled": //$NON-NLS-1$
+                    path = "M0,0 L10,5 L0,10 z"; //$NON-NLS-1$
+                    fill = color;
+                    break;
+
+                case "triangle": //$NON-NLS-1$
+                    path = "M0,0 L10,5 L0,10 z"; //$NON-NLS-1$
+                    fill = "white"; //$NON-NLS-1$
+                    break;
+
+                case "diamond": //$NON-NLS-1$
+                    path = "M0,5 L5,0 L10,5 L5,10 z"; //$NON-NLS-1$
+                    fill = color;
+                    break;
+
+                case "diamond-hollow": //$NON-NLS-1$
+                    path = "M0,5 L5,0 L10,5 L5,10 z"; //$NON-NLS-1$
+                    fill = "white"; //$NON-NLS-1$
+                    break;
+
+                default: // dot
+                    path = "M2,5 a3,3 0 1,0 6,0 a3,3 0 1,0 -6,0"; //$NON-NLS-1$
+                    fill = color;
+                    break;
+            }
+
+            writer.write("<defs><marker id=\"" + id + "\" viewBox=\"0 0 10 10\" refX=\"" + (start ? 0 : 10) + "\" refY=\"5\""); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+            writer.write(" markerWidth=\"8\" markerHeight=\"8\" orient=\"auto\">"); //$NON-NLS-1$
+            writer.write("<path d=\"" + path + "\" fill=\"" + fill + "\" stroke=\"" + color + "\""); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+            if(start) {
+                writer.write(" transform=\"translate(10,0) scale(-1,1)\""); //$NON-NLS-1$
+            }
+            writer.write("/></marker></defs>\n"); //$NON-NLS-1$
+        }
+
+        return id;
+    }
+
+    private void writeObject(IDiagramModelObject dmo, int parentX, int parentY) throws IOException {
+        IBounds bounds = dmo.getBounds();
+        int x = parentX + bounds.getX();
+        int y = parentY + bounds.getY();
+        int width = bounds.getWidth() < 0 ? DEFAULT_WIDTH : bounds.getWidth();
+        int height = bounds.getHeight() < 0 ? DEFAULT_HEIGHT : bounds.getHeight();
+
+        writer.write("<g class=\"" + getType(dmo) + "\" id=\"" + escape(dmo.getId()) + "\">\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+        writer.write("<rect x=\"" + x + "\" y=\"" + y + "\" width=\"" + width + "\" height=\"" + height + "\""); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$ //$NON-NLS-5$
+        writer.write(" fill=\"" + getFillColor(dmo) + "\""); //$NON-NLS-1$ //$NON-NLS-2$
+        if(dmo.getAlpha() < 255) {
+            writer.write(" fill-opacity=\"" + (dmo.getAlpha() / 255.0) + "\""); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        writer.write(" stroke=\"" + getLineColor(dmo) + "\" stroke-width=\"" + Math.max(1, dmo.getLineWidth()) + "\"/>\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+        writeText(dmo, getText(dmo), x + width / 2.0, y);
+
+        if(dmo instanceof IDiagramModelContainer) {
+            for(IDiagramModelObject child : ((IDiagramModelContainer)dmo).getChildren()) {
+                writeObject(child, x, y);
+            }
+        }
+
+        writer.write("</g>\n"); //$NON-NLS-1$
+    }
+
+    /**
+     * Write the lines of text centred at the top of an object
+     */
+    private void writeText(IFontAttribute object, String text, double centreX, int top) throws IOException {
+        if(!StringUtils.isSet(text)) {
+            return;
+        }
+
+        FontData fd = object.getFont() != null ? new FontData(object.getFont()) : defaultFontData;
+        // Points to pixels
+        double fontSize = fd.getHeight() * 4 / 3.0;
+
+        writer.write("<text x=\"" + centreX + "\" y=\"" + top + "\" text-anchor=\"middle\""); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        writer.write(" font-family=\"" + escape(fd.getName()) + "\" font-size=\"" + fontSize + "\""); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        if((fd.getStyle() & SWT.BOLD) != 0) {
+            writer.write(" font-weight=\"bold\""); //$NON-NLS-1$
+        }
+        if((fd.getStyle() & SWT.ITALIC) != 0) {
+            writer.write(" font-style=\"italic\""); //$NON-NLS-1$
+        }
+        writer.write(" fill=\"" + getFontColor(object) + "\">"); //$NON-NLS-1$ //$NON-NLS-2$
+
+        for(String line : text.split("\\r?\\n")) { //$NON-NLS-1$
+            writer.write("<tspan x=\"" + centreX + "\" dy=\"" + (fontSize * 1.2) + "\">" + escape(line) + "</tspan>"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$ //$NON-NLS-4$
+        }
+
+        writer.write("</text>\n"); //$NON-NLS-1$
+    }
+
+    private void writeConnection(IDiagramModelConnection connection) throws IOException {
+        List<double[]> points = getBendpoints(connection);
+
+        double[] sourceCentre = getCentre(connection.getSource(), 0);
+        double[] targetCentre = getCentre(connection.getTarget(), 0);
+        if(sourceCentre == null || targetCentre == null) {
+            return;
+        }
+
+        // Clip the ends of the line to the bounds of the source and target objects
+        double[] start = clip(connection.getSource(), sourceCentre, points.isEmpty() ? targetCentre : points.get(0));
+        double[] end = clip(connection.getTarget(), targetCentre, points.isEmpty() ? sourceCentre : points.get(points.size() - 1));
+
+        String color = getLineColor(connection);
+        String[] style = getLineStyle(connection);
+
+        // Markers are defined before the first line that uses them
+        String startMarker = style[1] != null ? writeMarker(style[1], color, true) : null;
+        String endMarker = style[2] != null ? writeMarker(style[2], color, false) : null;
+
+        writer.write("<g class=\"" + getType(connection) + "\" id=\"" + escape(connection.getId()) + "\">\n"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+
+        writer.write("<polyline fill=\"none\" points=\"" + start[0] + "," + start[1]); //$NON-NLS-1$ //$NON-NLS-2$
+        for(double[] point : points) {
+            writer.write(" " + point[0] + "," + point[1]); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        writer.write(" " + end[0] + "," + end[1] + "\""); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+        writer.write(" stroke=\"" + color + "\" stroke-width=\"" + Math.max(1, connection.getLineWidth()) + "\""); //$NON-NLS-1$ //$NON-NLS-2$
+
+        if(style[0] != null) {
+            writer.write(" stroke-dasharray=\"" + style[0] + "\""); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        if(startMarker != null) {
+            writer.write(" marker-start=\"url(#" + startMarker + ")\""); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        if(endMarker != null) {
+            writer.write(" marker-end=\"url(#" + endMarker + ")\""); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+
+        writer.write("/>\n"); //$NON-NLS-1$
+
+        // Text in the middle of the line
+        String text = getText(connection);
+        if(StringUtils.isSet(text)) {
+            double[] middle = points.isEmpty() ? new double[] { (start[0] + end[0]) / 2, (start[1] + end[1]) / 2 } : points.get(points.size() / 2);
+            writeText(connection, text, middle[0], (int)middle[1]);
+        }
+
+        writer.write("</g>\n"); //$NON-NLS-1$
+    }
+
+    /**
+     * @return the dash pattern, start marker type and end marker type for the type of relationship. Each may be null
+     */
+    private String[] getLineStyle(IDiagramModelConnection connection) {
+        if(!(connection instanceof IDiagramModelArchimateComponent)) {
+            return new String[3];
+        }
+
+        IArchimateRelationship relationship = (IArchimateRelationship)((IDiagramModelArchimateComponent)connection).getArchimateConcept();
+
+        String dash = null, startMarker = null, endMarker = null;
+
+        switch(relationship.eClass().getName()) {
+            case "CompositionRelationship": //$NON-NLS-1$
+                startMarker = "diamond"; //$NON-NLS-1$
+                break;
+
+            case "AggregationRelationship": //$NON-NLS-1$
+                startMarker = "diamond-hollow"; //$NON-NLS-1$
+                break;
+
+            case "AssignmentRelationship": //$NON-NLS-1$
+                startMarker = "dot"; //$NON-NLS-1$
+                endMarker = "arrow-filled"; //$NON-NLS-1$
+                break;
+
+            case "RealizationRelationship": //$NON-NLS-1$
+                dash = "4,3"; //$NON-NLS-1$
+                endMarker = "triangle"; //$NON-NLS-1$
+                break;
+
+            case "SpecializationRelationship": //$NON-NLS-1$
+                endMarker = "triangle"; //$NON-NLS-1$
+                break;
+
+            case "ServingRelationship": //$NON-NLS-1$
+                endMarker = "arrow"; //$NON-NLS-1$
+                break;
+
+            case "AccessRelationship": //$NON-NLS-1$
+                dash = "1,3"; //$NON-NLS-1$
+                int accessType = ((IAccessRelationship)relationship).getAccessType();
+                if(accessType == IAccessRelationship.WRITE_ACCESS || accessType == IAccessRelationship.READ_WRITE_ACCESS) {
+                    endMarker = "arrow"; //$NON-NLS-1$
+                }
+                if(accessType == IAccessRelationship.READ_ACCESS || accessType == IAccessRelationship.READ_WRITE_ACCESS) {
+                    startMarker = "arrow"; //$NON-NLS-1$
+                }
+                break;
+
+            case "InfluenceRelationship": //$NON-NLS-1$
+                dash = "6,3"; //$NON-NLS-1$
+                endMarker = "arrow"; //$NON-NLS-1$
+                break;
+
+            case "TriggeringRelationship": //$NON-NLS-1$
+                endMarker = "arrow-filled"; //$NON-NLS-1$
+                break;
+
+            case "FlowRelationship": //$NON-NLS-1$
+                dash = "6,3"; //$NON-NLS-1$
+                endMarker = "arrow-filled"; //$NON-NLS-1$
+                break;
+
+            case "AssociationRelationship": //$NON-NLS-1$
+                if(((IAssociationRelationship)relationship).isDirected()) {
+                    endMarker = "arrow"; //$NON-NLS-1$
+                }
+                break;
+
+            default:
+                break;
+        }
+
+        return new String[] { dash, startMarker, endMarker };
+    }
+
+    /**
+     * @return the absolute positions of the bendpoints of a connection.
+     *         Each bendpoint is stored relative to the centres of the source and target and is weighted by its position on the line.
+     */
+    private List<double[]> getBendpoints(IDiagramModelConnection connection) {
+        List<IDiagramModelBendpoint> bendpoints = connection.getBendpoints();
+        List<double[]> points = new ArrayList<>(bendpoints.size());
+
+        double[] sourceCentre = getCentre(connection.getSource(), 0);
+        double[] targetCentre = getCentre(connection.getTarget(), 0);
+        if(sourceCentre == null || targetCentre == null) {
+            return points;
+        }
+
+        for(int i = 0; i < bendpoints.size(); i++) {
+            IDiagramModelBendpoint bp = bendpoints.get(i);
+            double weight = (i + 1) / (bendpoints.size() + 1.0);
+            points.add(new double[] {
+                    (1 - weight) * (sourceCentre[0] + bp.getStartX()) + weight * (targetCentre[0] + bp.getEndX()),
+                    (1 - weight) * (sourceCentre[1] + bp.getStartY()) + weight * (targetCentre[1] + bp.getEndY())
+            });
+        }
+
+        return points;
+    }
+
+    /**
+     * @return the centre of an object, or the middle of a connection, or null if it can't be found
+     */
+    private double[] getCentre(IConnectable connectable, int depth) {
+        if(connectable instanceof IDiagramModelObject) {
+            int[] bounds = getAbsoluteBounds((IDiagramModelObject)connectable);
+            return new double[] { bounds[0] + bounds[2] / 2.0, bounds[1] + bounds[3] / 2.0 };
+        }
+
+        // Connection to a connection. Guard against connections that connect to each other.
+        if(connectable instanceof IDiagramModelConnection && depth < 10) {
+            IDiagramModelConnection connection = (IDiagramModelConnection)connectable;
+            double[] source = getCentre(connection.getSource(), depth + 1);
+            double[] target = getCentre(connection.getTarget(), depth + 1);
+            if(source != null && target != null) {
+                return new double[] { (source[0] + target[0]) / 2, (source[1] + target[1]) / 2 };
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the point where the line from centre towards point leaves the bounds of connectable
+     */
+    private double[] clip(IConnectable connectable, double[] centre, double[] point) {
+        if(!(connectable instanceof IDiagramModelObject)) {
+            return centre;
+        }
+
+        int[] bounds = getAbsoluteBounds((IDiagramModelObject)connectable);
+        double dx = point[0] - centre[0];
+        double dy = point[1] - centre[1];
+
+        if(dx == 0 && dy == 0) {
+            return centre;
+        }
+
+        double scaleX = dx != 0 ? (bounds[2] / 2.0) / Math.abs(dx) : Double.MAX_VALUE;
+        double scaleY = dy != 0 ? (bounds[3] / 2.0) / Math.abs(dy) : Double.MAX_VALUE;
+        double factor = Math.min(1, Math.min(scaleX, scaleY));
+
+        return new double[] { centre[0] + dx * factor, centre[1] + dy * factor };
+    }
+
+    /**
+     * @return x, y, width and height of an object in the View
+     */
+    private int[] getAbsoluteBounds(IDiagramModelObject dmo) {
+        IBounds bounds = dmo.getBounds();
+        int x = bounds.getX();
+        int y = bounds.getY();
+
+        for(EObject parent = dmo.eContainer(); parent instanceof IDiagramModelObject; parent = parent.eContainer()) {
+            x += ((IDiagramModelObject)parent).getBounds().getX();
+            y += ((IDiagramModelObject)parent).getBounds().getY();
+        }
+
+        return new int[] { x, y, bounds.getWidth() < 0 ? DEFAULT_WIDTH : bounds.getWidth(), bounds.getHeight() < 0 ? DEFAULT_HEIGHT : bounds.getHeight() };
+    }
+
+    /**
+     * @return the text shown in an object
+     */
+    private String getText(EObject eObject) {
+        // Label expression
+        if(eObject instanceof IArchimateModelObject && TextRenderer.getDefault().isSupportedObject(eObject)
+                && StringUtils.isSet(TextRenderer.getDefault().getFormatExpression((IArchimateModelObject)eObject))) {
+            return TextRenderer.getDefault().render((IArchimateModelObject)eObject);
+        }
+
+        if(eObject instanceof ITextContent) {
+            return ((ITextContent)eObject).getContent();
+        }
+
+        if(eObject instanceof IDiagramModelReference) {
+            return ((IDiagramModelReference)eObject).getReferencedModel().getName();
+        }
+
+        if(eObject instanceof IDiagramModelArchimateComponent) {
+            return ((IDiagramModelArchimateComponent)eObject).getArchimateConcept().getName();
+        }
+
+        // Groups and other connections
+        if(eObject instanceof INameable) {
+            return ((INameable)eObject).getName();
+        }
+
+        return null;
+    }
+
+    /**
+     * @return the type of the object or of its concept in kebab case
+     */
+    private String getType(EObject eObject) {
+        if(eObject instanceof IDiagramModelArchimateComponent) {
+            eObject = ((IDiagramModelArchimateComponent)eObject).getArchimateConcept();
+        }
+        return ModelUtil.getKebabCase(eObject.eClass().getName());
+    }
+
+    private String getFillColor(IDiagramModelObject dmo) {
+        RGB rgb = ColorFactory.convertStringToRGB(dmo.getFillColor());
+        if(rgb == null) {
+            Color color = ColorFactory.getDefaultFillColor(dmo);
+            return color != null ? ColorFactory.convertRGBToString(color.getRGB()) : "#ffffff"; //$NON-NLS-1$
+        }
+        return ColorFactory.convertRGBToString(rgb);
+    }
+
+    private String getLineColor(ILineObject object) {
+        RGB rgb = ColorFactory.convertStringToRGB(object.getLineColor());
+        if(rgb == null) {
+            Color color = ColorFactory.getDefaultLineColor(object);
+            return color != null ? ColorFactory.convertRGBToString(color.getRGB()) : DEFAULT_LINE_COLOR;
+        }
+        return ColorFactory.convertRGBToString(rgb);
+    }
+
+    private String getFontColor(IFontAttribute object) {
+        RGB rgb = ColorFactory.convertStringToRGB(object.getFontColor());
+        return rgb != null ? ColorFactory.convertRGBToString(rgb) : DEFAULT_FONT_COLOR;
+    }
+
+    /**
+     * @return text with the XML special characters escaped
+     */
+    private String escape(String text) {
+        if(text == null) {
+            return ""; //$NON-NLS-1$
+        }
+
+        StringBuilder sb = new StringBuilder(text.length());
+
+        for(int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch(c) {
+                case '<':
+                    sb.append("&lt;"); //$NON-NLS-1$
+                    break;
+                case '>':
+                    sb.append("&gt;"); //$NON-NLS-1$
+                    break;
+                case '&':
+                    sb.append("&amp;"); //$NON-NLS-1$
+                    break;
+                case '"':
+                    sb.append("&quot;"); //$NON-NLS-1$
+                    break;
+                default:
+                    // Characters not allowed in XML
+                    if(c >= 0x20 || c == '\t') {
+                        sb.append(c);
+                    }
+                    break;
+            }
+        }
+
+        return sb.toString();
+    }
+}
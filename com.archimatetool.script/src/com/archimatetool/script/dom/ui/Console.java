@@ -5,6 +5,9 @@
  */
 package com.archimatetool.script.dom.ui;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.StringJoiner;
@@ -14,18 +17,31 @@ import org.eclipse.ui.PlatformUI;
 
 import com.archimatetool.editor.ui.ColorFactory;
 import com.archimatetool.editor.ui.services.ViewManager;
+import com.archimatetool.script.ArchiScriptException;
+import com.archimatetool.script.dom.IArchiScriptBinding;
 import com.archimatetool.script.views.console.ConsoleView;
 
 
 /**
  * Represents the Script "console" dom object
+ * 
+ * Output from debug(), info() and warn() is only written if its level is at or above the level set with setLevel().
+ * Output can be written to a file with toFile() instead of to the Console.
  */
 @SuppressWarnings("nls")
-public class Console {
+public class Console implements IArchiScriptBinding {
+    
+    private static final String[] LEVELS = { "debug", "info", "warn" };
+    private static final int DEBUG = 0, INFO = 1, WARN = 2;
     
     // Cache the current color here in case the viewer is not yet instantiated
     private Color currentColor;
     
+    private int level = INFO;
+    
+    // If not null output is written to a file instead of the Console
+    private ConsoleFileSink fileSink;
+    
     public Console() {
     }
     
@@ -54,7 +70,6 @@ public class Console {
     public void setText(String text) {
         ConsoleView viewer = findConsoleViewer();
         if(viewer != null) {
-            viewer.setTextColor(currentColor);
             viewer.setText(text);
         }
         else {
@@ -82,6 +97,97 @@ public class Console {
         toConsole(joiner.toString() + "\n");
     }
 
+    /**
+     * Set the level below which debug(), info() and warn() output is ignored
+     * @param level one of "debug", "info" or "warn"
+     */
+    public void setLevel(String level) {
+        int index = Arrays.asList(LEVELS).indexOf(level);
+        if(index == -1) {
+            throw new ArchiScriptException("Unknown log level: " + level);
+        }
+        this.level = index;
+    }
+    
+    public String getLevel() {
+        return LEVELS[level];
+    }
+    
+    public void debug(Object... objs) {
+        logAtLevel(DEBUG, null, objs);
+    }
+    
+    public void info(Object... objs) {
+        logAtLevel(INFO, null, objs);
+    }
+    
+    public void warn(Object... objs) {
+        logAtLevel(WARN, ColorFactory.get(255, 128, 0), objs);
+    }
+    
+    /**
+     * Write objs at a level. If the level is below the current level the objs are not converted to strings.
+     */
+    private void logAtLevel(int level, Color color, Object[] objs) {
+        if(level < this.level) {
+            return;
+        }
+        
+        StringBuilder sb = new StringBuilder();
+        sb.append('[').append(LEVELS[level].toUpperCase()).append(']');
+        
+        if(objs == null) {
+            sb.append(' ').append(toString(null));
+        }
+        else {
+            for(Object o : objs) {
+                sb.append(' ').append(toString(o));
+            }
+        }
+        
+        sb.append('\n');
+        
+        Color oldColor = currentColor;
+        if(color != null) {
+            currentColor = color;
+        }
+        
+        toConsole(sb.toString());
+        
+        currentColor = oldColor;
+    }
+    
+    /**
+     * Write output to a file instead of the Console until the script ends or this is called again
+     * @param path the file, or null to write to the Console again
+     * @param options can be "rotateMb" (start a new file when the file reaches this size in megabytes, default 0 for no limit)
+     *        and "append" (add to an existing file rather than replacing it, default false)
+     */
+    public void toFile(String path, Map<?, ?> options) throws IOException {
+        closeFile();
+        
+        if(path != null) {
+            double rotateMb = (options != null && options.get("rotateMb") instanceof Number) ? ((Number)options.get("rotateMb")).doubleValue() : 0;
+            boolean append = options != null && Boolean.TRUE.equals(options.get("append"));
+            fileSink = new ConsoleFileSink(new File(path), (long)(Math.max(0, rotateMb) * 1024 * 1024), append);
+        }
+    }
+    
+    public void toFile(String path) throws IOException {
+        toFile(path, null);
+    }
+    
+    /**
+     * Write all output to the file and close it
+     */
+    private void closeFile() throws IOException {
+        if(fileSink != null) {
+            ConsoleFileSink sink = fileSink;
+            fileSink = null;
+            sink.close();
+        }
+    }
+
     public void print(Object obj) {
         toConsole(toString(obj));
     }
@@ -91,11 +197,15 @@ public class Console {
     }
     
     private void toConsole(String output) {
+        if(fileSink != null) {
+            fileSink.write(output);
+            return;
+        }
+        
         ConsoleView viewer = findConsoleViewer();
         
         if(viewer != null) {
-            viewer.setTextColor(currentColor);
-            viewer.append(output);
+            viewer.append(output, currentColor);
         }
         else {
             System.out.print(output);
@@ -135,6 +245,19 @@ public class Console {
     public void clear() {
         setText("");
     }
+    
+    /**
+     * @return the number of characters shown in the Console after appending any buffered text
+     */
+    public int getCharCount() {
+        ConsoleView viewer = findConsoleViewer();
+        if(viewer != null) {
+            viewer.flush();
+            return viewer.getCharCount();
+        }
+        
+        return 0;
+    }
 
     public void setTextColor(int red, int green, int blue) {
         currentColor = ColorFactory.get(red, green, blue);
@@ -144,6 +267,16 @@ public class Console {
         currentColor = null;
     }
     
+    @Override
+    public void dispose() {
+        try {
+            closeFile();
+        }
+        catch(IOException ex) {
+            System.err.println("Could not write console file: " + ex.toString());
+        }
+    }
+    
     private static ConsoleView findConsoleViewer() {
         if(PlatformUI.isWorkbenchRunning()) {
             return (ConsoleView)ViewManager.findViewPart(ConsoleView.ID);
@@ -0,0 +1,220 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.dom.ui;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import com.archimatetool.editor.utils.FileUtils;
+import com.archimatetool.script.ArchiScriptException;
+
+/**
+ * Writes Console output to a file on a background thread.
+ *
+ * Text is queued by the script and written through a buffered file channel by the writer thread.
+ * The queue is bounded so that a script that writes faster than the disk waits rather than using more memory.
+ * If there is a maximum size the file is rotated when it would be exceeded. The current file keeps its name
+ * and the previous files are renamed "name.1.ext", "name.2.ext" and so on, oldest first.
+ */
+@SuppressWarnings("nls")
+class ConsoleFileSink {
+
+    private static final int QUEUE_SIZE = 8192;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    // Queued to tell the writer thread to stop
+    private static final String END = new String();
+
+    private File file;
+    private long maxSize;
+
+    private FileChannel channel;
+    private long size;
+    private int rotations;
+
+    private BlockingQueue<String> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    private Thread thread;
+
+    // First error on the writer thread
+    private volatile IOException error;
+
+    /**
+     * @param file the file to write to
+     * @param maxSize the size in bytes at which to rotate the file, or 0 to not rotate it
+     * @param append if true text is added to the end of an existing file
+     */
+    ConsoleFileSink(File file, long maxSize, boolean append) throws IOException {
+        this.file = file;
+        this.maxSize = maxSize;
+
+        File parent = file.getAbsoluteFile().getParentFile();
+        if(parent != null) {
+            Files.createDirectories(parent.toPath());
+        }
+
+        channel = open(append);
+        size = channel.size();
+
+        thread = new Thread(this::run, "jArchi Console File Writer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Queue text to be written, waiting if the queue is full
+     */
+    void write(String text) {
+        try {
+            put(text);
+        }
+        catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        if(error != null) {
+            throw new ArchiScriptException("Could not write to " + file, error);
+        }
+    }
+
+    /**
+     * Write all queued text and close the file
+     */
+    void close() throws IOException {
+        try {
+            put(END);
+            thread.join();
+        }
+        catch(InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        if(error != null) {
+            throw error;
+        }
+    }
+
+    /**
+     * Queue text, waiting while the queue is full unless the writer thread has stopped
+     */
+    private void put(String text) throws InterruptedException {
+        while(!queue.offer(text, 100, TimeUnit.MILLISECONDS)) {
+            if(!thread.isAlive()) {
+                return;
+            }
+        }
+    }
+
+    private void run() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        List<String> texts = new ArrayList<>();
+
+        try {
+            for(;;) {
+                texts.add(queue.take());
+                queue.drainTo(texts);
+
+                for(String text : texts) {
+                    if(text == END) {
+                        write(buffer);
+                        return;
+                    }
+
+                    byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+
+                    if(maxSize > 0 && size + buffer.position() + bytes.length > maxSize && size + buffer.position() > 0) {
+                        write(buffer);
+                        rotate();
+                    }
+
+                    if(bytes.length > buffer.remaining()) {
+                        write(buffer);
+                    }
+
+                    if(bytes.length > buffer.capacity()) {
+                        size += writeFully(ByteBuffer.wrap(bytes));
+                    }
+                    else {
+                        buffer.put(bytes);
+                    }
+                }
+
+                texts.clear();
+
+                // Nothing else waiting so write what we have
+                if(queue.isEmpty()) {
+                    write(buffer);
+                }
+            }
+        }
+        catch(IOException ex) {
+            error = ex;
+            queue.clear();
+        }
+        catch(InterruptedException ex) {
+            // Stopped
+        }
+        finally {
+            try {
+                channel.close();
+            }
+            catch(IOException ex) {
+                if(error == null) {
+                    error = ex;
+                }
+            }
+        }
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        size += writeFully(buffer);
+        buffer.clear();
+    }
+
+    private int writeFully(ByteBuffer buffer) throws IOException {
+        int count = 0;
+        while(buffer.hasRemaining()) {
+            count += channel.write(buffer);
+        }
+        return count;
+    }
+
+    /**
+     * Close the file, rename it to the next rotated file name and start a new file
+     */
+    private void rotate() throws IOException {
+        channel.close();
+
+        String name = FileUtils.getFileNameWithoutExtension(file);
+        String extension = file.getName().substring(name.length());
+
+        File rotated;
+        do {
+            rotated = new File(file.getAbsoluteFile().getParentFile(), name + "." + (++rotations) + extension);
+        }
+        while(rotated.exists());
+
+        Files.move(file.toPath(), rotated.toPath());
+
+        channel = open(false);
+        size = 0;
+    }
+
+    private FileChannel open(boolean append) throws IOException {
+        return FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+    }
+}
@@ -23,8 +23,12 @@ public interface IPreferenceConstants {
     String PREFS_CONSOLE_WORD_WRAP = "consoleWordWrap";
     String PREFS_CONSOLE_SCROLL_LOCK = "consoleScrollLock";
     String PREFS_CONSOLE_FONT = "consoleFont";
+    String PREFS_CONSOLE_MAX_LINES = "consoleMaxLines";
     
     String PREFS_REFRESH_UI_WHEN_RUNNING_SCRIPT = "refreshUIWhenRunningScript";
+    String PREFS_BATCH_NOTIFICATIONS_WHEN_RUNNING_SCRIPT = "batchNotificationsWhenRunningScript";
+    String PREFS_NOTIFICATION_BATCH_SIZE = "notificationBatchSize";
+    String PREFS_ROLLBACK_ON_ERROR = "rollbackOnError";
     
     String PREFS_JS_ENGINE = "jsEngine";
 }
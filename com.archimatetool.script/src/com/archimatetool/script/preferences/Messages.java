@@ -20,6 +20,10 @@ public class Messages extends NLS {
 
     public static String ScriptPreferencePage_14;
 
+    public static String ScriptPreferencePage_15;
+
+    public static String ScriptPreferencePage_16;
+
     public static String ScriptPreferencePage_2;
 
     public static String ScriptPreferencePage_3;
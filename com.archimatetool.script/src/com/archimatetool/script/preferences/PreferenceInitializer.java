@@ -44,8 +44,12 @@ public class PreferenceInitializer extends AbstractPreferenceInitializer impleme
 		
 		store.setDefault(PREFS_CONSOLE_WORD_WRAP, true);
 		store.setDefault(PREFS_CONSOLE_SCROLL_LOCK, false);
+		store.setDefault(PREFS_CONSOLE_MAX_LINES, 10000);
 		
 		store.setDefault(PREFS_REFRESH_UI_WHEN_RUNNING_SCRIPT, false);
+		store.setDefault(PREFS_BATCH_NOTIFICATIONS_WHEN_RUNNING_SCRIPT, false);
+		store.setDefault(PREFS_NOTIFICATION_BATCH_SIZE, 0);
+		store.setDefault(PREFS_ROLLBACK_ON_ERROR, false);
 		
 		store.setDefault(PREFS_JS_ENGINE, 0);
     }
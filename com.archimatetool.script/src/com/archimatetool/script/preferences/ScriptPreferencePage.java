@@ -24,6 +24,7 @@ import org.eclipse.swt.widgets.FileDialog;
 import org.eclipse.swt.widgets.FontDialog;
 import org.eclipse.swt.widgets.Group;
 import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Spinner;
 import org.eclipse.swt.widgets.Text;
 import org.eclipse.ui.IWorkbench;
 import org.eclipse.ui.IWorkbenchPreferencePage;
@@ -57,6 +58,10 @@ implements IWorkbenchPreferencePage, IPreferenceConstants {
     private FontData fDefaultConsoleFontData = ConsoleView.DEFAULT_FONT.getFontData()[0];
     private FontData fConsoleFontData = fDefaultConsoleFontData;
     
+    private Spinner fConsoleMaxLinesSpinner;
+    
+    private Spinner fNotificationBatchSizeSpinner;
+    
     private String[] DOUBLE_CLICK_BEHAVIOURS = {
             Messages.ScriptPreferencePage_4,
             Messages.ScriptPreferencePage_5,
@@ -171,6 +176,30 @@ implements IWorkbenchPreferencePage, IPreferenceConstants {
             }
         });
         
+        // Console line limit
+        label = new Label(settingsGroup, SWT.NULL);
+        label.setText(Messages.ScriptPreferencePage_15);
+        fConsoleMaxLinesSpinner = new Spinner(settingsGroup, SWT.BORDER);
+        fConsoleMaxLinesSpinner.setMinimum(0);
+        fConsoleMaxLinesSpinner.setMaximum(1000000);
+        fConsoleMaxLinesSpinner.setIncrement(1000);
+        fConsoleMaxLinesSpinner.setPageIncrement(10000);
+        gd = new GridData();
+        gd.horizontalSpan = 2;
+        fConsoleMaxLinesSpinner.setLayoutData(gd);
+        
+        // Notification batch size
+        label = new Label(settingsGroup, SWT.NULL);
+        label.setText(Messages.ScriptPreferencePage_16);
+        fNotificationBatchSizeSpinner = new Spinner(settingsGroup, SWT.BORDER);
+        fNotificationBatchSizeSpinner.setMinimum(0);
+        fNotificationBatchSizeSpinner.setMaximum(1000000);
+        fNotificationBatchSizeSpinner.setIncrement(100);
+        fNotificationBatchSizeSpinner.setPageIncrement(1000);
+        gd = new GridData();
+        gd.horizontalSpan = 2;
+        fNotificationBatchSizeSpinner.setLayoutData(gd);
+        
         setValues();
         
         return client;
@@ -208,6 +237,9 @@ implements IWorkbenchPreferencePage, IPreferenceConstants {
             fConsoleFontData = new FontData(fontName);
         }
         updateFontLabel();
+        
+        fConsoleMaxLinesSpinner.setSelection(getPreferenceStore().getInt(PREFS_CONSOLE_MAX_LINES));
+        fNotificationBatchSizeSpinner.setSelection(getPreferenceStore().getInt(PREFS_NOTIFICATION_BATCH_SIZE));
     }
     
     @Override
@@ -218,6 +250,8 @@ implements IWorkbenchPreferencePage, IPreferenceConstants {
         getPreferenceStore().setValue(PREFS_JS_ENGINE, fJSCombo.getSelectionIndex());
         
         getPreferenceStore().setValue(PREFS_CONSOLE_FONT, fDefaultConsoleFontData.equals(fConsoleFontData) ? "" : fConsoleFontData.toString()); //$NON-NLS-1$
+        getPreferenceStore().setValue(PREFS_CONSOLE_MAX_LINES, fConsoleMaxLinesSpinner.getSelection());
+        getPreferenceStore().setValue(PREFS_NOTIFICATION_BATCH_SIZE, fNotificationBatchSizeSpinner.getSelection());
         
         return true;
     }
@@ -231,6 +265,9 @@ implements IWorkbenchPreferencePage, IPreferenceConstants {
         
         fConsoleFontData = fDefaultConsoleFontData;
         updateFontLabel();
+        
+        fConsoleMaxLinesSpinner.setSelection(getPreferenceStore().getDefaultInt(PREFS_CONSOLE_MAX_LINES));
+        fNotificationBatchSizeSpinner.setSelection(getPreferenceStore().getDefaultInt(PREFS_NOTIFICATION_BATCH_SIZE));
     }
     
     private void updateFontLabel() {
@@ -0,0 +1,77 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.views.console;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.eclipse.swt.custom.StyleRange;
+import org.eclipse.swt.graphics.Color;
+
+/**
+ * Text waiting to be appended to the Console.
+ *
+ * Any thread can add text without locking. The UI thread drains all the text in one go
+ * and runs of text with the same color are merged into one style range.
+ */
+class ConsoleBuffer {
+
+    private static class Chunk {
+        String text;
+        Color color;
+
+        Chunk(String text, Color color) {
+            this.text = text;
+            this.color = color;
+        }
+    }
+
+    private ConcurrentLinkedQueue<Chunk> queue = new ConcurrentLinkedQueue<>();
+
+    void add(String text, Color color) {
+        if(text != null && !text.isEmpty()) {
+            queue.add(new Chunk(text, color));
+        }
+    }
+
+    boolean isEmpty() {
+        return queue.isEmpty();
+    }
+
+    void clear() {
+        queue.clear();
+    }
+
+    /**
+     * Remove all waiting text and append it to sb
+     * @param sb the text
+     * @param offset the offset in the Console of the start of the text
+     * @return style ranges for the runs of text that have a color
+     */
+    List<StyleRange> drain(StringBuilder sb, int offset) {
+        List<StyleRange> ranges = new ArrayList<>();
+        StyleRange last = null;
+
+        Chunk chunk;
+        while((chunk = queue.poll()) != null) {
+            if(chunk.color != null) {
+                // Same color as the previous chunk so extend its range
+                if(last != null && chunk.color.equals(last.foreground) && last.start + last.length == offset + sb.length()) {
+                    last.length += chunk.text.length();
+                }
+                else {
+                    last = new StyleRange(offset + sb.length(), chunk.text.length(), chunk.color, null);
+                    ranges.add(last);
+                }
+            }
+
+            sb.append(chunk.text);
+        }
+
+        return ranges;
+    }
+}
@@ -8,6 +8,8 @@ package com.archimatetool.script.views.console;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
 
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.ui.PlatformUI;
@@ -42,6 +44,11 @@ public class ConsoleOutput {
     public static void end() {
         // Restore streams
         restoreStreams();
+        
+        // Append any buffered text
+        if(fConsole != null) {
+            fConsole.flush();
+        }
     }
     
     /**
@@ -88,10 +95,12 @@ public class ConsoleOutput {
     }
 
     /**
-     * An OutputStream that redirects all System output to the Console
+     * An OutputStream that redirects all System output to the Console.
+     * Bytes are collected until the stream is flushed and then decoded and added to the Console's buffer in one go.
      */
     private static class DumpStream extends OutputStream {
-        StringBuffer buf;
+        byte[] buf = new byte[256];
+        int count;
         Color color;
         
         public DumpStream(Color color) {
@@ -100,21 +109,29 @@ public class ConsoleOutput {
         
         @Override
         public void write(int b) {
-            if(buf == null) {
-                buf = new StringBuffer();
+            ensureCapacity(count + 1);
+            buf[count++] = (byte)b;
+        }
+        
+        @Override
+        public void write(byte[] b, int off, int len) {
+            ensureCapacity(count + len);
+            System.arraycopy(b, off, buf, count, len);
+            count += len;
+        }
+        
+        private void ensureCapacity(int capacity) {
+            if(capacity > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, capacity));
             }
-            buf.append((char)(b & 255));
         }
         
         @Override
         public void flush() throws IOException {
-            if(buf != null && fConsole != null) {
-                Color oldColor = fConsole.getTextColor();
-                fConsole.setTextColor(color);
-                fConsole.append(buf.toString());
-                fConsole.setTextColor(oldColor);
+            if(count > 0 && fConsole != null) {
+                fConsole.append(new String(buf, 0, count, Charset.defaultCharset()), color);
             }
-            buf = null;
+            count = 0;
         }
     }
 
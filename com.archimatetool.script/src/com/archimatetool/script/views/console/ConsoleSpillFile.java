@@ -0,0 +1,85 @@
+/**
+ * This program and the accompanying materials
+ * are made available under the terms of the License
+ * which accompanies this distribution in the file LICENSE.txt
+ */
+package com.archimatetool.script.views.console;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Temporary file holding Console text that has been removed from the text pane.
+ *
+ * The file is created when text is first written and deleted when the Console is cleared or closed.
+ */
+class ConsoleSpillFile {
+
+    private File file;
+    private Writer writer;
+    private long charCount;
+
+    /**
+     * Append text to the file, creating it if needed
+     */
+    void write(String text) throws IOException {
+        if(writer == null) {
+            file = File.createTempFile("jarchi-console", ".txt"); //$NON-NLS-1$ //$NON-NLS-2$
+            file.deleteOnExit();
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8), 64 * 1024);
+        }
+
+        writer.write(text);
+        charCount += text.length();
+    }
+
+    /**
+     * @return the number of characters written to the file
+     */
+    long getCharCount() {
+        return charCount;
+    }
+
+    /**
+     * Save the text in the file followed by tail to target
+     */
+    void saveTo(File target, String tail) throws IOException {
+        if(writer != null) {
+            writer.flush();
+            Files.copy(file.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        else {
+            Files.deleteIfExists(target.toPath());
+        }
+
+        try(Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(target, true), StandardCharsets.UTF_8))) {
+            out.write(tail);
+        }
+    }
+
+    /**
+     * Close and delete the file
+     */
+    void reset() {
+        if(writer != null) {
+            try {
+                writer.close();
+            }
+            catch(IOException ex) {
+                ex.printStackTrace();
+            }
+            file.delete();
+        }
+
+        writer = null;
+        file = null;
+        charCount = 0;
+    }
+}
@@ -5,10 +5,17 @@
  */
 package com.archimatetool.script.views.console;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
 import org.eclipse.jface.action.Action;
 import org.eclipse.jface.action.IAction;
 import org.eclipse.jface.action.IToolBarManager;
 import org.eclipse.jface.action.Separator;
+import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.resource.JFaceResources;
 import org.eclipse.jface.util.IPropertyChangeListener;
 import org.eclipse.swt.SWT;
@@ -17,7 +24,11 @@ import org.eclipse.swt.custom.StyledText;
 import org.eclipse.swt.graphics.Color;
 import org.eclipse.swt.graphics.Font;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.FileDialog;
 import org.eclipse.ui.IActionBars;
+import org.eclipse.ui.ISharedImages;
+import org.eclipse.ui.PlatformUI;
 import org.eclipse.ui.part.ViewPart;
 
 import com.archimatetool.editor.ui.FontFactory;
@@ -39,19 +50,44 @@ extends ViewPart {
 
     public static Font DEFAULT_FONT = JFaceResources.getFontRegistry().get(JFaceResources.TEXT_FONT);
     
-    private IAction fActionClear, fActionWordWrap, fActionScrollLock;
+    private IAction fActionClear, fActionSave, fActionWordWrap, fActionScrollLock;
+    
+    // Interval between appending text to the text pane when text is added on the UI thread
+    private static final long FLUSH_INTERVAL = 50_000_000L; // 50 ms
     
     private StyledText fTextPane;
     private Color fTextColor;
+    private Display fDisplay;
+    
+    // Text waiting to be appended
+    private ConsoleBuffer fBuffer = new ConsoleBuffer();
+    
+    // Whether a flush is queued on the UI thread
+    private AtomicBoolean fFlushScheduled = new AtomicBoolean();
+    
+    // Time (System.nanoTime) of the next flush when text is added on the UI thread
+    private long fNextFlushTime;
+    
+    // Maximum number of lines in the text pane, or 0 for no limit
+    private int fMaxLines;
+    
+    // Text removed from the top of the text pane when there are more than fMaxLines
+    private ConsoleSpillFile fSpillFile = new ConsoleSpillFile();
     
     private IPropertyChangeListener prefsListener = (event) -> {
         if(IPreferenceConstants.PREFS_CONSOLE_FONT == event.getProperty()) {
             setFontFromPreferences();
         }
+        else if(IPreferenceConstants.PREFS_CONSOLE_MAX_LINES == event.getProperty()) {
+            fMaxLines = ArchiScriptPlugin.INSTANCE.getPreferenceStore().getInt(IPreferenceConstants.PREFS_CONSOLE_MAX_LINES);
+            trimLines();
+        }
     };
     
     @Override
     public void createPartControl(Composite parent) {
+        fDisplay = parent.getDisplay();
+        
         fTextPane = new StyledText(parent, SWT.H_SCROLL | SWT.V_SCROLL);
         fTextPane.setEditable(false);
         fTextPane.setTabs(4);
@@ -59,6 +95,8 @@ extends ViewPart {
 
         setFontFromPreferences();
         
+        fMaxLines = ArchiScriptPlugin.INSTANCE.getPreferenceStore().getInt(IPreferenceConstants.PREFS_CONSOLE_MAX_LINES);
+        
         fActionClear = new Action(Messages.ConsoleView_0) {
             {
                 setImageDescriptor(IArchiScriptImages.ImageFactory.getImageDescriptor(IArchiScriptImages.ICON_CLEAR_CONSOLE));
@@ -67,7 +105,19 @@ extends ViewPart {
             
             @Override
             public void run() {
-                fTextPane.setText(""); //$NON-NLS-1$
+                setText(""); //$NON-NLS-1$
+            }
+        };
+        
+        fActionSave = new Action(Messages.ConsoleView_3) {
+            {
+                setImageDescriptor(PlatformUI.getWorkbench().getSharedImages().getImageDescriptor(ISharedImages.IMG_ETOOL_SAVE_EDIT));
+                setToolTipText(getText());
+            }
+            
+            @Override
+            public void run() {
+                saveOutput();
             }
         };
         
@@ -120,6 +170,7 @@ extends ViewPart {
         IToolBarManager manager = bars.getToolBarManager();
 
         manager.add(fActionClear);
+        manager.add(fActionSave);
         manager.add(new Separator());
         manager.add(fActionScrollLock);
         manager.add(fActionWordWrap);
@@ -138,44 +189,219 @@ extends ViewPart {
         }
     }
 
+    /**
+     * Append text in the current text color
+     */
     public void append(String string) {
-        if(!fTextPane.isDisposed()) {
-            StyleRange sr = createStyleRange(string);
-            fTextPane.append(string);
-            fTextPane.setStyleRange(sr);
-            
-            // Scroll to end
-            if(!fActionScrollLock.isChecked()) {
-                fTextPane.setTopIndex(fTextPane.getLineCount() - 1);
-                fTextPane.setCaretOffset(fTextPane.getText().length());
+        append(string, fTextColor);
+    }
+    
+    /**
+     * Append text in a color.
+     * The text is buffered and appended to the text pane in batches. This can be called from any thread.
+     * @param string The text
+     * @param color The color or null for the default color
+     */
+    public void append(String string, Color color) {
+        fBuffer.add(string, color);
+        
+        if(fDisplay.isDisposed() || fTextPane.isDisposed()) {
+            return;
+        }
+        
+        if(Display.getCurrent() == fDisplay) {
+            // Flush now if it's time, else when the UI is next refreshed
+            if(System.nanoTime() - fNextFlushTime >= 0) {
+                flush();
+            }
+            else {
+                scheduleFlush();
             }
             
             // Update UI
             RefreshUIHandler.refresh();
         }
+        else {
+            scheduleFlush();
+        }
+    }
+    
+    /**
+     * Flush when the UI thread is next free, if not already scheduled
+     */
+    private void scheduleFlush() {
+        if(fFlushScheduled.compareAndSet(false, true)) {
+            fDisplay.asyncExec(() -> {
+                fFlushScheduled.set(false);
+                flush();
+            });
+        }
+    }
+    
+    /**
+     * Append all buffered text to the text pane in one go. If not called on the UI thread the flush is queued on the UI thread.
+     */
+    public void flush() {
+        if(fDisplay.isDisposed() || fTextPane.isDisposed()) {
+            fBuffer.clear();
+            return;
+        }
+        
+        if(Display.getCurrent() != fDisplay) {
+            scheduleFlush();
+            return;
+        }
+        
+        fNextFlushTime = System.nanoTime() + FLUSH_INTERVAL;
+        
+        if(fBuffer.isEmpty()) {
+            return;
+        }
+        
+        StringBuilder sb = new StringBuilder();
+        int start = fTextPane.getCharCount();
+        List<StyleRange> ranges = fBuffer.drain(sb, start);
+        
+        // More lines in this batch than the limit so spill all of the text pane and the start of the batch
+        int cut = getStartOfLastLines(sb, fMaxLines);
+        if(cut > 0) {
+            spill(fTextPane.getText());
+            spill(sb.substring(0, cut));
+            fTextPane.setText(""); //$NON-NLS-1$
+            ranges = shiftRanges(ranges, start + cut);
+            sb.delete(0, cut);
+            start = 0;
+        }
+        
+        fTextPane.append(sb.toString());
+        
+        if(!ranges.isEmpty()) {
+            fTextPane.replaceStyleRanges(start, sb.length(), ranges.toArray(new StyleRange[ranges.size()]));
+        }
+        
+        trimLines();
+        scrollToEnd();
+    }
+    
+    /**
+     * If there are more lines in the text pane than the limit spill the oldest lines to the spill file.
+     * Lines are removed when there are a tenth more than the limit so that the text is not shifted on every flush.
+     */
+    private void trimLines() {
+        if(fMaxLines <= 0 || fTextPane == null || fTextPane.isDisposed()) {
+            return;
+        }
+        
+        int lineCount = fTextPane.getLineCount();
+        if(lineCount <= fMaxLines + fMaxLines / 10) {
+            return;
+        }
+        
+        int removedLines = lineCount - fMaxLines;
+        int end = fTextPane.getOffsetAtLine(removedLines);
+        int topIndex = fTextPane.getTopIndex();
+        
+        spill(fTextPane.getTextRange(0, end));
+        fTextPane.replaceTextRange(0, end, ""); //$NON-NLS-1$
+        
+        // Keep the same lines in view if scroll lock is on
+        fTextPane.setTopIndex(Math.max(0, topIndex - removedLines));
+    }
+    
+    /**
+     * @return the offset in text of the start of the last maxLines lines, or 0 if there are not more lines than that
+     */
+    static int getStartOfLastLines(CharSequence text, int maxLines) {
+        if(maxLines > 0) {
+            int lines = 0;
+            for(int i = text.length() - 1; i >= 0; i--) {
+                if(text.charAt(i) == '\n' && ++lines == maxLines) {
+                    return i + 1;
+                }
+            }
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * @return the style ranges that end after offset, moved back by offset
+     */
+    static List<StyleRange> shiftRanges(List<StyleRange> ranges, int offset) {
+        List<StyleRange> result = new ArrayList<>();
+        
+        for(StyleRange range : ranges) {
+            int end = range.start + range.length;
+            if(end > offset) {
+                range.start = Math.max(range.start, offset) - offset;
+                range.length = end - offset - range.start;
+                result.add(range);
+            }
+        }
+        
+        return result;
+    }
+    
+    private void spill(String text) {
+        try {
+            fSpillFile.write(text);
+        }
+        catch(IOException ex) {
+            ex.printStackTrace();
+        }
+    }
+    
+    /**
+     * Save all of the output, including text that has been spilled, to a file chosen by the user
+     */
+    private void saveOutput() {
+        flush();
+        
+        FileDialog dialog = new FileDialog(getSite().getShell(), SWT.SAVE);
+        dialog.setText(Messages.ConsoleView_3);
+        dialog.setFileName("console.txt"); //$NON-NLS-1$
+        dialog.setOverwrite(true);
+        
+        String path = dialog.open();
+        if(path != null) {
+            try {
+                fSpillFile.saveTo(new File(path), fTextPane.getText());
+            }
+            catch(IOException ex) {
+                MessageDialog.openError(getSite().getShell(), Messages.ConsoleView_3, ex.getMessage());
+            }
+        }
     }
     
     public void setText(String text) {
         if(!fTextPane.isDisposed()) {
-            fTextPane.setText(text);
+            // Text waiting to be appended and spilled text is replaced
+            fBuffer.clear();
+            fSpillFile.reset();
             
-            // Scroll to end
-            if(!fActionScrollLock.isChecked()) {
-                fTextPane.setTopIndex(fTextPane.getLineCount() - 1);
-                fTextPane.setCaretOffset(fTextPane.getText().length());
-            }
+            fTextPane.setText(text);
+            trimLines();
+            scrollToEnd();
             
             // Update UI
             RefreshUIHandler.refresh();
         }
     }
     
-    private StyleRange createStyleRange(String string) {
-        StyleRange sr = new StyleRange();
-        sr.foreground = fTextColor;
-        sr.start = fTextPane.getCharCount();
-        sr.length = string.length();
-        return sr;
+    /**
+     * @return the number of characters in the Console, including text spilled to file but not text that has not yet been flushed.
+     *         This must be called on the UI thread.
+     */
+    public int getCharCount() {
+        long count = fSpillFile.getCharCount() + (fTextPane.isDisposed() ? 0 : fTextPane.getCharCount());
+        return (int)Math.min(Integer.MAX_VALUE, count);
+    }
+    
+    private void scrollToEnd() {
+        if(!fActionScrollLock.isChecked()) {
+            fTextPane.setTopIndex(fTextPane.getLineCount() - 1);
+            fTextPane.setCaretOffset(fTextPane.getCharCount());
+        }
     }
     
     private void setFontFromPreferences() {
@@ -192,5 +418,6 @@ extends ViewPart {
     public void dispose() {
         super.dispose();
         ArchiScriptPlugin.INSTANCE.getPreferenceStore().removePropertyChangeListener(prefsListener);
+        fSpillFile.reset();
     }
 }
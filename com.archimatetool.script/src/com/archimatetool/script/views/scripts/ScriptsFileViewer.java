@@ -212,6 +212,30 @@ extends AbstractFileView  {
                 ArchiScriptPlugin.INSTANCE.getPreferenceStore().setValue(IPreferenceConstants.PREFS_REFRESH_UI_WHEN_RUNNING_SCRIPT, isChecked());
             }
         });
+        
+        manager.add(new Action(Messages.ScriptsFileViewer_7, IAction.AS_CHECK_BOX) {
+            {
+                setChecked(ArchiScriptPlugin.INSTANCE.getPreferenceStore().getBoolean(IPreferenceConstants.PREFS_BATCH_NOTIFICATIONS_WHEN_RUNNING_SCRIPT));
+                setToolTipText(getText());
+            }
+            
+            @Override
+            public void run() {
+                ArchiScriptPlugin.INSTANCE.getPreferenceStore().setValue(IPreferenceConstants.PREFS_BATCH_NOTIFICATIONS_WHEN_RUNNING_SCRIPT, isChecked());
+            }
+        });
+        
+        manager.add(new Action(Messages.ScriptsFileViewer_8, IAction.AS_CHECK_BOX) {
+            {
+                setChecked(ArchiScriptPlugin.INSTANCE.getPreferenceStore().getBoolean(IPreferenceConstants.PREFS_ROLLBACK_ON_ERROR));
+                setToolTipText(getText());
+            }
+            
+            @Override
+            public void run() {
+                ArchiScriptPlugin.INSTANCE.getPreferenceStore().setValue(IPreferenceConstants.PREFS_ROLLBACK_ON_ERROR, isChecked());
+            }
+        });
 
     }
     